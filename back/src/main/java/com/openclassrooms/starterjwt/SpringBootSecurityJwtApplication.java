@@ -2,12 +2,18 @@ package com.openclassrooms.starterjwt;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
+import com.openclassrooms.starterjwt.startup.StartupReport;
+
 @SpringBootApplication
 @EnableJpaAuditing
 public class SpringBootSecurityJwtApplication {
 	public static void main(String[] args) {
-    SpringApplication.run(SpringBootSecurityJwtApplication.class, args);
+    SpringApplication application = new SpringApplication(SpringBootSecurityJwtApplication.class);
+    // Startup steps kept in memory for GET /api/startup
+    application.setApplicationStartup(new BufferingApplicationStartup(StartupReport.CAPACITY));
+    application.run(args);
 	}
 }
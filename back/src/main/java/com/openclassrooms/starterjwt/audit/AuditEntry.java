@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.audit;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// One line of the audit log: who did what, on which entity, when, and the fields changed
+@Value
+public class AuditEntry {
+    LocalDateTime occurredAt;
+    // Email of the authenticated account, "anonymous" otherwise
+    String actor;
+    ChangeType action;
+    Resource entity;
+    Long entityId;
+    // Field -> values before and after; empty if there is nothing to compare
+    Map<String, Change> changes;
+
+    @Value
+    public static class Change {
+        Object from;
+        Object to;
+    }
+}
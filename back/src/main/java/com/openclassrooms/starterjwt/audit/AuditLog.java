@@ -0,0 +1,180 @@
+package com.openclassrooms.starterjwt.audit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Audit log of the changes made through the API. The request thread only drops the entry into
+// a lock-free ring buffer; a writer thread drains it in batches every flushMs to the sink
+// (database or file). Buffer full: the entry is lost and counted, the request never waits. A failed batch
+// is kept and retried on the next pass.
+@Component
+public class AuditLog {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    static final String ANONYMOUS = "anonymous";
+    // Technical timestamps, changed on every write: not a change in themselves
+    private static final Set<String> IGNORED_FIELDS = Set.of("createdAt", "updatedAt");
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final AuditSink sink;
+    private final ObjectMapper objectMapper;
+    private final RingBuffer<AuditEntry> buffer;
+    private final int batchSize;
+    private final ScheduledExecutorService writer;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // Held while the sink writes; stats() also takes it from requests, hence a lock that does not block
+    // the carrier thread of a virtual thread, unlike synchronized
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<AuditEntry> failed;
+
+    @Autowired
+    public AuditLog(AuditSink sink,
+                    ObjectMapper objectMapper,
+                    @Value("${oc.app.audit.bufferSize:8192}") int bufferSize,
+                    @Value("${oc.app.audit.batchSize:256}") int batchSize,
+                    @Value("${oc.app.audit.flushMs:200}") long flushMillis) {
+        this(sink, objectMapper, bufferSize, batchSize, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    AuditLog(AuditSink sink,
+             ObjectMapper objectMapper,
+             int bufferSize,
+             int batchSize,
+             ScheduledExecutorService writer) {
+        this.sink = sink;
+        this.objectMapper = objectMapper;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.writer = writer;
+    }
+
+    // Change made by the authenticated account of the current request
+    public void record(ChangeType action, Resource entity, Long entityId, Map<String, AuditEntry.Change> changes) {
+        this.record(currentActor(), action, entity, entityId, changes);
+    }
+
+    public void record(String actor, ChangeType action, Resource entity, Long entityId,
+                       Map<String, AuditEntry.Change> changes) {
+        AuditEntry entry = new AuditEntry(LocalDateTime.now(), actor, action, entity, entityId, changes);
+        if (this.buffer.offer(entry)) {
+            this.recorded.increment();
+        } else {
+            this.dropped.increment();
+        }
+    }
+
+    // Fields that differ between two states of a resource (DTO), null for a missing state (creation, deletion)
+    public Map<String, AuditEntry.Change> diff(Object before, Object after) {
+        Map<String, Object> from = before != null ? this.objectMapper.convertValue(before, FIELDS) : Map.of();
+        Map<String, Object> to = after != null ? this.objectMapper.convertValue(after, FIELDS) : Map.of();
+
+        Map<String, AuditEntry.Change> changes = new TreeMap<>();
+        Set<String> fields = new HashSet<>(from.keySet());
+        fields.addAll(to.keySet());
+        for (String field : fields) {
+            if (!IGNORED_FIELDS.contains(field) && !Objects.equals(from.get(field), to.get(field))) {
+                changes.put(field, new AuditEntry.Change(from.get(field), to.get(field)));
+            }
+        }
+        return changes;
+    }
+
+    // Drains the buffer to the sink, batch after batch. Called by the writer thread, at shutdown and by the tests.
+    public int flush() {
+        int total = 0;
+        this.lock.lock();
+        try {
+            if (this.failed != null) {
+                this.sink.write(this.failed);
+                total += this.failed.size();
+                this.written.add(this.failed.size());
+                this.failed = null;
+            }
+
+            List<AuditEntry> batch = new ArrayList<>(this.batchSize);
+            while (this.buffer.drainTo(batch, this.batchSize) > 0) {
+                try {
+                    this.sink.write(batch);
+                } catch (Exception e) {
+                    this.failed = batch;
+                    throw e;
+                }
+                total += batch.size();
+                this.written.add(batch.size());
+                batch = new ArrayList<>(this.batchSize);
+            }
+        } catch (Exception e) {
+            this.failures.increment();
+            logger.warn("Could not write {} audit entries, will retry: {}", this.failed.size(), e.getMessage());
+        } finally {
+            this.lock.unlock();
+        }
+        return total;
+    }
+
+    public Stats stats() {
+        List<AuditEntry> failed;
+        this.lock.lock();
+        try {
+            failed = this.failed;
+        } finally {
+            this.lock.unlock();
+        }
+        return new Stats(this.recorded.sum(), this.dropped.sum(), this.written.sum(), this.failures.sum(),
+                this.buffer.size() + (failed != null ? failed.size() : 0), this.buffer.capacity());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.writer.shutdownNow();
+        this.flush();
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        return authentication.getName();
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long recorded;
+        // Entries lost, buffer full
+        long dropped;
+        long written;
+        long failures;
+        long pending;
+        int capacity;
+    }
+}
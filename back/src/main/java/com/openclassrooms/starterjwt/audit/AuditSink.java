@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.audit;
+
+import java.util.List;
+
+// Destination of the audit log, called by the writer thread with batches of entries in order
+public interface AuditSink {
+
+    void write(List<AuditEntry> entries) throws Exception;
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.audit;
+
+import com.openclassrooms.starterjwt.repository.AuditRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// One grouped INSERT per batch into AUDIT_LOG (default sink)
+@Component
+@ConditionalOnProperty(name = "oc.app.audit.target", havingValue = "database", matchIfMissing = true)
+public class DatabaseAuditSink implements AuditSink {
+    private final AuditRepository auditRepository;
+
+    public DatabaseAuditSink(AuditRepository auditRepository) {
+        this.auditRepository = auditRepository;
+    }
+
+    @Override
+    public void write(List<AuditEntry> entries) throws Exception {
+        this.auditRepository.insertAll(entries);
+    }
+}
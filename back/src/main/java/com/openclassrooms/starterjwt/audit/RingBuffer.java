@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Lock-free bounded queue, several producers and a single consumer. A producer reserves a slot by CAS
+// on the head then fills it; the consumer reads the tail slot as long as it is filled. Queue full:
+// offer refuses the element instead of waiting, it is up to the caller to count the loss.
+public final class RingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    // Next slot to reserve (producers) and next slot to read (consumer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // capacity is rounded up to the next power of two
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public boolean offer(T value) {
+        while (true) {
+            long claimed = this.head.get();
+            if (claimed - this.tail.get() > this.mask) {
+                return false;
+            }
+            if (this.head.compareAndSet(claimed, claimed + 1)) {
+                this.slots.lazySet((int) claimed & this.mask, value);
+                return true;
+            }
+        }
+    }
+
+    // Single consumer. null if the queue is empty, or if the next slot is reserved but not filled yet.
+    public T poll() {
+        long next = this.tail.get();
+        int index = (int) next & this.mask;
+        T value = this.slots.get(index);
+        if (value == null) {
+            return null;
+        }
+        // The slot is cleared before the tail moves on: a producer only reuses it once empty
+        this.slots.lazySet(index, null);
+        this.tail.lazySet(next + 1);
+        return value;
+    }
+
+    // Single consumer. Moves at most max elements into target, returns their number.
+    public int drainTo(List<? super T> target, int max) {
+        int drained = 0;
+        T value;
+        while (drained < max && (value = this.poll()) != null) {
+            target.add(value);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, this.head.get() - this.tail.get());
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
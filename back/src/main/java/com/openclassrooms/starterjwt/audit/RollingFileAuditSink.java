@@ -0,0 +1,65 @@
+package com.openclassrooms.starterjwt.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// One JSON line per entry. Beyond maxBytes the file becomes file.1, file.1 becomes file.2... and only
+// maxFiles old files are kept.
+@Component
+@ConditionalOnProperty(name = "oc.app.audit.target", havingValue = "file")
+public class RollingFileAuditSink implements AuditSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    public RollingFileAuditSink(ObjectMapper objectMapper,
+                                @Value("${oc.app.audit.file:audit.log}") String file,
+                                @Value("${oc.app.audit.fileMaxBytes:10485760}") long maxBytes,
+                                @Value("${oc.app.audit.fileMaxFiles:5}") int maxFiles) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public void write(List<AuditEntry> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (AuditEntry entry : entries) {
+            lines.append(this.objectMapper.writeValueAsString(entry)).append('\n');
+        }
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (Files.exists(this.file) && Files.size(this.file) + bytes.length > this.maxBytes) {
+            this.rotate();
+        }
+        Files.write(this.file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(this.rotated(this.maxFiles));
+        for (int i = this.maxFiles - 1; i >= 1; i--) {
+            Path rotated = this.rotated(i);
+            if (Files.exists(rotated)) {
+                Files.move(rotated, this.rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(this.file, this.rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    Path rotated(int index) {
+        return this.file.resolveSibling(this.file.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Statistics of the second-level cache regions (hibernate.generate_statistics must be on).
+@Component
+public class HibernateCacheStatistics {
+    private final Statistics statistics;
+
+    public HibernateCacheStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<RegionStats> stats() {
+        String[] names = this.statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+
+        List<RegionStats> regions = new ArrayList<>(names.length);
+        for (String name : names) {
+            CacheRegionStatistics region = this.statistics.getDomainDataRegionStatistics(name);
+            regions.add(new RegionStats(name,
+                    region.getHitCount(),
+                    region.getMissCount(),
+                    region.getPutCount(),
+                    region.getElementCountInMemory()));
+        }
+        return regions;
+    }
+
+    @lombok.Value
+    public static class RegionStats {
+        String region;
+        long hits;
+        long misses;
+        long puts;
+        long entries;
+
+        public double getHitRatio() {
+            long total = this.hits + this.misses;
+            return total == 0 ? 0 : (double) this.hits / total;
+        }
+    }
+}
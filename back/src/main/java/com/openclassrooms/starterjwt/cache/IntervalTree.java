@@ -0,0 +1,178 @@
+package com.openclassrooms.starterjwt.cache;
+
+// Tree of half-open intervals [start, end[: an AVL tree sorted on (start, id), each node knowing the largest
+// end of its subtree. Inserting, removing and finding an overlap are O(log n).
+// Not synchronized: the caller guards access.
+final class IntervalTree {
+    private Node root;
+    private int size;
+
+    void insert(long start, long end, long id) {
+        this.root = this.insert(this.root, new Node(start, end, id));
+    }
+
+    boolean remove(long start, long id) {
+        int before = this.size;
+        this.root = this.remove(this.root, start, id);
+        return this.size < before;
+    }
+
+    // Returns the id of an interval overlapping [start, end[, ignoring excludedId, or null.
+    Long findOverlap(long start, long end, long excludedId) {
+        return find(this.root, start, end, excludedId);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            this.size++;
+            return added;
+        }
+
+        int cmp = compare(added.start, added.id, node);
+        if (cmp < 0) {
+            node.left = this.insert(node.left, added);
+        } else if (cmp > 0) {
+            node.right = this.insert(node.right, added);
+        } else {
+            return node;
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = this.remove(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = this.remove(node.right, start, id);
+        } else {
+            this.size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+
+            Node successor = min(node.right);
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    // If the left subtree holds an interval ending after start without overlapping, that interval starts after
+    // end, as do the current node and its right subtree: only one path is walked.
+    private static Long find(Node node, long start, long end, long excludedId) {
+        if (node == null || node.maxEnd <= start) {
+            return null;
+        }
+
+        Long found = find(node.left, start, end, excludedId);
+        if (found != null) {
+            return found;
+        }
+        if (node.start >= end) {
+            return null;
+        }
+        if (node.end > start && node.id != excludedId) {
+            return node.id;
+        }
+        return find(node.right, start, end, excludedId);
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Long.compare(id, node.id);
+    }
+
+    private static Node min(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = Math.max(node.end, Math.max(maxEnd(node.left), maxEnd(node.right)));
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static long maxEnd(Node node) {
+        return node == null ? Long.MIN_VALUE : node.maxEnd;
+    }
+
+    private static final class Node {
+        private final long start;
+        private final long end;
+        private final long id;
+        private long maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long start, long end, long id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Prefix search of teachers (first name, last name) and members (first name, last name, email), ignoring accents
+// and case. Each index is loaded on the first search then kept up to date by committed writes; a bulk change
+// (import) simply makes it reload. When disabled or unavailable, the search queries the database.
+@Component
+public class NameSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NameSearchIndex.class);
+
+    public static final int MAX_RESULTS = 50;
+
+    private final TeacherRepository teacherRepository;
+    private final UserRepository userRepository;
+    private final TeacherMapper teacherMapper;
+    private final UserMapper userMapper;
+    private final boolean enabled;
+    // Held during database reads (not synchronized, which would pin a virtual thread to its carrier)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile PrefixIndex<TeacherDto> teachers;
+    private volatile PrefixIndex<UserDto> users;
+
+    public NameSearchIndex(TeacherRepository teacherRepository,
+                           UserRepository userRepository,
+                           TeacherMapper teacherMapper,
+                           UserMapper userMapper,
+                           @Value("${oc.app.nameSearch.enabled:true}") boolean enabled) {
+        this.teacherRepository = teacherRepository;
+        this.userRepository = userRepository;
+        this.teacherMapper = teacherMapper;
+        this.userMapper = userMapper;
+        this.enabled = enabled;
+    }
+
+    public List<TeacherDto> searchTeachers(String query, int limit) {
+        if (this.enabled) {
+            try {
+                return this.teachers().search(query, limit);
+            } catch (RuntimeException e) {
+                logger.warn("Teacher search index unavailable, searching the database: {}", e.getMessage());
+            }
+        }
+
+        return this.teacherMapper.toDto(fallback(query, limit, this.teacherRepository::findByNamePrefix,
+                teacher -> PrefixIndex.terms(teacher.getFirstName(), teacher.getLastName())));
+    }
+
+    public List<UserDto> searchUsers(String query, int limit) {
+        if (this.enabled) {
+            try {
+                return this.users().search(query, limit);
+            } catch (RuntimeException e) {
+                logger.warn("User search index unavailable, searching the database: {}", e.getMessage());
+            }
+        }
+
+        return fallback(query, limit, this.userRepository::findByNamePrefix,
+                user -> PrefixIndex.terms(user.getFirstName(), user.getLastName(), user.getEmail())).stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_CACHES)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!this.enabled) {
+            return;
+        }
+
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            if (event.getResource() == Resource.TEACHER && this.teachers != null) {
+                if (event.getId() == null) {
+                    this.teachers = null;
+                } else if (event.getType() == ChangeType.DELETED) {
+                    this.teachers.remove(event.getId());
+                } else {
+                    this.teacherRepository.findById(event.getId())
+                            .ifPresent(teacher -> this.index(this.teachers, teacher));
+                }
+            } else if (event.getResource() == Resource.USER && this.users != null) {
+                if (event.getId() == null) {
+                    this.users = null;
+                } else if (event.getType() == ChangeType.DELETED) {
+                    this.users.remove(event.getId());
+                } else {
+                    this.userRepository.findById(event.getId()).ifPresent(user -> this.index(this.users, user));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Search index refresh failed, it will be reloaded on next search: {}", e.getMessage());
+            this.teachers = null;
+            this.users = null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        PrefixIndex<TeacherDto> teachers = this.teachers;
+        PrefixIndex<UserDto> users = this.users;
+
+        return new Stats(teachers != null ? teachers.size() : 0, users != null ? users.size() : 0);
+    }
+
+    private PrefixIndex<TeacherDto> teachers() {
+        PrefixIndex<TeacherDto> index = this.teachers;
+        return index != null ? index : this.loadTeachers();
+    }
+
+    private PrefixIndex<UserDto> users() {
+        PrefixIndex<UserDto> index = this.users;
+        return index != null ? index : this.loadUsers();
+    }
+
+    // Loaded under the same lock as the events, as for the teacher schedules; the index is only
+    // published once complete.
+    private PrefixIndex<TeacherDto> loadTeachers() {
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            if (this.teachers == null) {
+                PrefixIndex<TeacherDto> index = new PrefixIndex<>();
+                this.teacherRepository.findAll().forEach(teacher -> this.index(index, teacher));
+                this.teachers = index;
+                logger.debug("Teacher search index loaded with {} entries", index.size());
+            }
+            return this.teachers;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private PrefixIndex<UserDto> loadUsers() {
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            if (this.users == null) {
+                PrefixIndex<UserDto> index = new PrefixIndex<>();
+                this.userRepository.findAll().forEach(user -> this.index(index, user));
+                this.users = index;
+                logger.debug("User search index loaded with {} entries", index.size());
+            }
+            return this.users;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void index(PrefixIndex<TeacherDto> index, Teacher teacher) {
+        index.put(teacher.getId(), this.teacherMapper.toDto(teacher), teacher.getFirstName(), teacher.getLastName());
+    }
+
+    // A deleted account, waiting for its purge, is no longer offered
+    private void index(PrefixIndex<UserDto> index, User user) {
+        if (user.isDisabled()) {
+            index.remove(user.getId());
+        } else {
+            index.put(user.getId(), this.toDto(user), user.getFirstName(), user.getLastName(), user.getEmail());
+        }
+    }
+
+    // The password hash has no business in an in-memory index
+    private UserDto toDto(User user) {
+        UserDto dto = this.userMapper.toDto(user);
+        dto.setPassword(null);
+        return dto;
+    }
+
+    // Database search with the index's rules: the query words are folded the same way, the database selects the
+    // rows where a whole field starts with the longest word, and every word must then start one of the row's terms.
+    // Pages are read until the limit is reached. Two differences remain with the index: the longest word must start a
+    // whole field, so "pierre" alone does not find "Jean-Pierre", and accents in the stored names are only ignored
+    // by an accent-insensitive collation (MySQL's utf8mb4 defaults, not H2).
+    private static <E> List<E> fallback(String query, int limit, BiFunction<String, Pageable, List<E>> find,
+                                        Function<E, String[]> terms) {
+        String[] words = PrefixIndex.words(query);
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        String prefix = like(PrefixIndex.longest(words));
+        List<E> results = new ArrayList<>(limit);
+        for (int page = 0; results.size() < limit; page++) {
+            List<E> candidates = find.apply(prefix, PageRequest.of(page, limit));
+            for (E candidate : candidates) {
+                if (results.size() < limit && PrefixIndex.matchesAll(terms.apply(candidate), words)) {
+                    results.add(candidate);
+                }
+            }
+            if (candidates.size() < limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static String like(String word) {
+        return word.replace("%", "").replace("_", "") + "%";
+    }
+
+    @lombok.Value
+    public static class Stats {
+        int teachers;
+        int users;
+    }
+}
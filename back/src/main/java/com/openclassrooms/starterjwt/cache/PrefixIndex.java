@@ -0,0 +1,143 @@
+package com.openclassrooms.starterjwt.cache;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+// Prefix index: each folded term (no accents, no case) is a "term\0id" key of a sorted skip list, so a
+// search walks the keys from the prefix in O(log n + results), with no lock for reads.
+// Each value keeps its terms, so that it can be removed and multi-word queries can be filtered.
+final class PrefixIndex<T> {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\-']+");
+    private static final char SEPARATOR = '\0';
+
+    private final ConcurrentSkipListMap<String, Long> keys = new ConcurrentSkipListMap<>();
+    private final Map<Long, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    // Indexes each field whole and word by word: "Jean-Pierre" answers "jean", "pierre" and "jean-p".
+    void put(long id, T value, String... fields) {
+        this.remove(id);
+
+        String[] terms = terms(fields);
+        this.entries.put(id, new Entry<>(value, terms));
+        for (String term : terms) {
+            this.keys.put(term + SEPARATOR + id, id);
+        }
+    }
+
+    void remove(long id) {
+        Entry<T> entry = this.entries.remove(id);
+        if (entry != null) {
+            for (String term : entry.terms) {
+                this.keys.remove(term + SEPARATOR + id);
+            }
+        }
+    }
+
+    void clear() {
+        this.keys.clear();
+        this.entries.clear();
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    // Values where each query word starts one of the terms, in alphabetical order of the term found.
+    // The skip list is walked on the longest word, the most selective one.
+    List<T> search(String query, int limit) {
+        String[] words = words(query);
+        if (words.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        String prefix = longest(words);
+        Set<Long> seen = new HashSet<>();
+        List<T> results = new ArrayList<>(limit);
+        for (Map.Entry<String, Long> key : this.keys.tailMap(prefix).entrySet()) {
+            if (!key.getKey().startsWith(prefix) || results.size() == limit) {
+                break;
+            }
+
+            Long id = key.getValue();
+            Entry<T> entry = this.entries.get(id);
+            if (entry != null && seen.add(id) && matchesAll(entry.terms, words)) {
+                results.add(entry.value);
+            }
+        }
+        return results;
+    }
+
+    static String[] words(String query) {
+        String folded = fold(query);
+        return folded.isEmpty()
+                ? new String[0]
+                : Arrays.stream(SEPARATORS.split(folded)).filter(word -> !word.isEmpty()).toArray(String[]::new);
+    }
+
+    static String longest(String[] words) {
+        String longest = words[0];
+        for (String word : words) {
+            if (word.length() > longest.length()) {
+                longest = word;
+            }
+        }
+        return longest;
+    }
+
+    // Terms of a value: each folded field, whole and word by word
+    static String[] terms(String... fields) {
+        Set<String> terms = new TreeSet<>();
+        for (String field : fields) {
+            String folded = fold(field);
+            if (!folded.isEmpty()) {
+                terms.add(folded);
+                for (String word : SEPARATORS.split(folded)) {
+                    if (!word.isEmpty()) {
+                        terms.add(word);
+                    }
+                }
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    // Every query word starts one of the terms
+    static boolean matchesAll(String[] terms, String[] words) {
+        for (String word : words) {
+            boolean found = false;
+            for (String term : terms) {
+                if (term.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        return MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .trim();
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final String[] terms;
+
+        private Entry(T value, String[] terms) {
+            this.value = value;
+            this.terms = terms;
+        }
+    }
+}
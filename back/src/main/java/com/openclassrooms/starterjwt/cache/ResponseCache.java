@@ -0,0 +1,215 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cache of already serialized JSON responses, with their gzip and deflate variants computed only once.
+@Component
+public class ResponseCache {
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxEntries;
+
+    private final Map<String, CachedResponse> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder identityBytesServed = new LongAdder();
+    private final LongAdder cpuSavedNanos = new LongAdder();
+
+    public ResponseCache(ObjectMapper objectMapper,
+                         @Value("${oc.app.responseCache.enabled:true}") boolean enabled,
+                         @Value("${oc.app.responseCache.maxEntries:256}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+    }
+
+    // The entry is only reused if it was built for the same ETag: a concurrent write
+    // can therefore never get stale bytes served.
+    public ResponseEntity<?> serve(String key, String etag, Set<Resource> dependsOn, String acceptEncoding,
+                                   Supplier<Object> body) {
+        if (!this.enabled) {
+            return ResponseEntity.ok().eTag(etag).body(body.get());
+        }
+
+        CachedResponse cached = this.entries.get(key);
+        if (cached != null && cached.etag.equals(etag)) {
+            this.hits.increment();
+            this.cpuSavedNanos.add(cached.buildNanos);
+        } else {
+            this.misses.increment();
+            cached = this.build(etag, dependsOn, ReplicaRoutingDataSource.onPrimary(body));
+            if (this.entries.size() < this.maxEntries || this.entries.containsKey(key)) {
+                this.entries.put(key, cached);
+            }
+        }
+
+        return this.write(cached, acceptEncoding);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_RESPONSE_CACHE)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        this.entries.values().removeIf(entry -> entry.dependsOn.contains(event.getResource()));
+    }
+
+    public Stats stats() {
+        long identity = 0;
+        long compressed = 0;
+        for (CachedResponse entry : this.entries.values()) {
+            identity += entry.identity.length;
+            compressed += entry.gzip.length;
+        }
+
+        return new Stats(this.hits.sum(),
+                this.misses.sum(),
+                this.entries.size(),
+                this.bytesServed.sum(),
+                this.identityBytesServed.sum(),
+                identity == 0 ? 1 : (double) compressed / identity,
+                this.cpuSavedNanos.sum());
+    }
+
+    private CachedResponse build(String etag, Set<Resource> dependsOn, Object body) {
+        long start = System.nanoTime();
+        try {
+            byte[] identity = this.objectMapper.writeValueAsBytes(body);
+            byte[] gzip = gzip(identity);
+            byte[] deflate = deflate(identity);
+
+            return new CachedResponse(etag, dependsOn, identity, gzip, deflate, System.nanoTime() - start);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ResponseEntity<byte[]> write(CachedResponse cached, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(cached.etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        byte[] bytes = cached.identity;
+        if (accepts(acceptEncoding, "gzip") && cached.gzip.length < bytes.length) {
+            bytes = cached.gzip;
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else if (accepts(acceptEncoding, "deflate") && cached.deflate.length < bytes.length) {
+            bytes = cached.deflate;
+            response.header(HttpHeaders.CONTENT_ENCODING, "deflate");
+        }
+
+        this.bytesServed.add(bytes.length);
+        this.identityBytesServed.add(cached.identity.length);
+        return response.contentLength(bytes.length).body(bytes);
+    }
+
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (!tokens[0].trim().equalsIgnoreCase(coding) && !tokens[0].trim().equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=") && isZero(param.substring(2))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isZero(String quality) {
+        try {
+            return Double.parseDouble(quality) == 0;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] gzip(byte[] identity) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                this.def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] identity) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(identity.length / 4 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+            out.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static final class CachedResponse {
+        private final String etag;
+        private final Set<Resource> dependsOn;
+        private final byte[] identity;
+        private final byte[] gzip;
+        private final byte[] deflate;
+        private final long buildNanos;
+
+        private CachedResponse(String etag, Set<Resource> dependsOn, byte[] identity, byte[] gzip, byte[] deflate,
+                               long buildNanos) {
+            this.etag = etag;
+            this.dependsOn = dependsOn;
+            this.identity = identity;
+            this.gzip = gzip;
+            this.deflate = deflate;
+            this.buildNanos = buildNanos;
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long hits;
+        long misses;
+        int entries;
+        long bytesServed;
+        long identityBytesServed;
+        double compressionRatio;
+        long cpuSavedNanos;
+    }
+}
@@ -0,0 +1,218 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Read-only catalog of sessions: reads take no lock and do not touch the database,
+// each committed write replaces the whole snapshot with a modified copy.
+// Above maxBytes the catalog stays off and reads go to the database; it is tried again after retryMs, only if the
+// number of sessions leaves room for it.
+@Component
+public class SessionCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(SessionCatalog.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final SessionRepository sessionRepository;
+    private final SessionMapper sessionMapper;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long retryNanos;
+    // Explicit lock rather than synchronized: it is held while the database is read, and a virtual thread
+    // waiting on a monitor blocks its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile SessionSnapshot snapshot;
+    private volatile boolean overCapacity;
+    // System.nanoTime() after which an over-capacity catalog may be loaded again
+    private volatile long retryAt;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong lastRebuildNanos = new AtomicLong();
+    private final AtomicLong totalRebuildNanos = new AtomicLong();
+
+    public SessionCatalog(SessionRepository sessionRepository,
+                          SessionMapper sessionMapper,
+                          @Value("${oc.app.sessionCatalog.enabled:true}") boolean enabled,
+                          @Value("${oc.app.sessionCatalog.maxBytes:67108864}") long maxBytes,
+                          @Value("${oc.app.sessionCatalog.retryMs:300000}") long retryMillis) {
+        this.sessionRepository = sessionRepository;
+        this.sessionMapper = sessionMapper;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMillis);
+    }
+
+    // Returns null when the catalog is disabled or over its memory limit: the caller then reads the database.
+    public SessionSnapshot snapshot() {
+        if (!this.enabled) {
+            return null;
+        }
+
+        SessionSnapshot current = this.snapshot;
+        if (current != null) {
+            this.hits.increment();
+            return current;
+        }
+
+        this.misses.increment();
+        return this.overCapacity && System.nanoTime() - this.retryAt < 0 ? null : this.rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_CACHES)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!this.enabled || event.getResource() != Resource.SESSION) {
+            return;
+        }
+
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            SessionSnapshot current = this.snapshot;
+            if (current == null) {
+                return;
+            }
+
+            try {
+                SessionDto session = event.getType() == ChangeType.DELETED
+                        ? null
+                        : this.sessionRepository.findById(event.getId()).map(this.sessionMapper::toDto).orElse(null);
+
+                this.publish(session == null ? current.without(event.getId()) : current.with(session));
+            } catch (RuntimeException e) {
+                logger.warn("Session catalog refresh failed, it will be rebuilt on next read: {}", e.getMessage());
+                this.snapshot = null;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        SessionSnapshot current = this.snapshot;
+
+        return new Stats(this.hits.sum(),
+                this.misses.sum(),
+                this.rebuilds.get(),
+                this.lastRebuildNanos.get(),
+                this.totalRebuildNanos.get(),
+                current != null ? current.size() : 0,
+                current != null ? current.getEstimatedBytes() : 0);
+    }
+
+    private SessionSnapshot rebuild() {
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            if (this.snapshot != null || this.overCapacity && System.nanoTime() - this.retryAt < 0) {
+                return this.snapshot;
+            }
+
+            // Once over the limit, the table is not loaded again while even minimal entries would not fit
+            if (this.overCapacity) {
+                long minBytes = this.sessionRepository.count() * SessionSnapshot.ENTRY_OVERHEAD_BYTES;
+                if (minBytes > this.maxBytes) {
+                    this.tripOverCapacity("at least " + minBytes);
+                    return null;
+                }
+            }
+
+            long start = System.nanoTime();
+            List<SessionDto> sessions = this.load();
+            if (sessions == null) {
+                return null;
+            }
+            this.publish(SessionSnapshot.of(sessions));
+
+            long elapsed = System.nanoTime() - start;
+            this.rebuilds.incrementAndGet();
+            this.lastRebuildNanos.set(elapsed);
+            this.totalRebuildNanos.addAndGet(elapsed);
+            logger.debug("Session catalog rebuilt with {} sessions in {} ms", sessions.size(), elapsed / 1_000_000);
+
+            return this.snapshot;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Loads the sessions page by page, and stops as soon as they exceed the limit: returns null in that case
+    private List<SessionDto> load() {
+        List<SessionDto> sessions = new ArrayList<>();
+        long bytes = 0;
+        long after = 0;
+        List<Session> page;
+        do {
+            page = this.sessionRepository.findAfter(after, PageRequest.of(0, PAGE_SIZE));
+            for (SessionDto session : this.sessionMapper.toDto(page)) {
+                bytes += SessionSnapshot.estimateBytes(session);
+                sessions.add(session);
+            }
+            if (bytes > this.maxBytes) {
+                this.tripOverCapacity("more than " + bytes);
+                return null;
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        return sessions;
+    }
+
+    private void publish(SessionSnapshot next) {
+        if (next.getEstimatedBytes() > this.maxBytes) {
+            this.tripOverCapacity(Long.toString(next.getEstimatedBytes()));
+            return;
+        }
+
+        this.snapshot = next;
+        this.overCapacity = false;
+    }
+
+    private void tripOverCapacity(String bytes) {
+        if (!this.overCapacity) {
+            logger.warn("Session catalog needs {} bytes, above the {} bytes limit: serving sessions from the database",
+                    bytes, this.maxBytes);
+        }
+        this.overCapacity = true;
+        this.retryAt = System.nanoTime() + this.retryNanos;
+        this.snapshot = null;
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long rebuilds;
+        long lastRebuildNanos;
+        long totalRebuildNanos;
+        int size;
+        long estimatedBytes;
+
+        public double getHitRatio() {
+            long total = this.hits + this.misses;
+            return total == 0 ? 0 : (double) this.hits / total;
+        }
+    }
+}
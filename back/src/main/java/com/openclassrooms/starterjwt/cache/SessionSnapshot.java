@@ -0,0 +1,117 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Immutable snapshot of the catalog, indexed by id, by date and by teacher.
+public final class SessionSnapshot {
+    // Smallest estimate of an entry, whatever its content
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final NavigableMap<Long, SessionDto> byId;
+    private final NavigableMap<Long, List<SessionDto>> byDate;
+    private final Map<Long, List<SessionDto>> byTeacher;
+    private final List<SessionDto> all;
+    private final long estimatedBytes;
+
+    private SessionSnapshot(NavigableMap<Long, SessionDto> byId) {
+        NavigableMap<Long, List<SessionDto>> dates = new TreeMap<>();
+        Map<Long, List<SessionDto>> teachers = new HashMap<>();
+        long bytes = 0;
+
+        for (SessionDto session : byId.values()) {
+            if (session.getDate() != null) {
+                dates.computeIfAbsent(session.getDate().getTime(), key -> new ArrayList<>()).add(session);
+            }
+            if (session.getTeacher_id() != null) {
+                teachers.computeIfAbsent(session.getTeacher_id(), key -> new ArrayList<>()).add(session);
+            }
+            bytes += estimateBytes(session);
+        }
+        dates.replaceAll((key, sessions) -> Collections.unmodifiableList(sessions));
+        teachers.replaceAll((key, sessions) -> Collections.unmodifiableList(sessions));
+
+        this.byId = Collections.unmodifiableNavigableMap(byId);
+        this.byDate = Collections.unmodifiableNavigableMap(dates);
+        this.byTeacher = Collections.unmodifiableMap(teachers);
+        this.all = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+        this.estimatedBytes = bytes;
+    }
+
+    public static SessionSnapshot of(Collection<SessionDto> sessions) {
+        NavigableMap<Long, SessionDto> byId = new TreeMap<>();
+        sessions.forEach(session -> byId.put(session.getId(), freeze(session)));
+
+        return new SessionSnapshot(byId);
+    }
+
+    public SessionSnapshot with(SessionDto session) {
+        NavigableMap<Long, SessionDto> byId = new TreeMap<>(this.byId);
+        byId.put(session.getId(), freeze(session));
+
+        return new SessionSnapshot(byId);
+    }
+
+    public SessionSnapshot without(Long id) {
+        if (!this.byId.containsKey(id)) {
+            return this;
+        }
+
+        NavigableMap<Long, SessionDto> byId = new TreeMap<>(this.byId);
+        byId.remove(id);
+
+        return new SessionSnapshot(byId);
+    }
+
+    public List<SessionDto> findAll() {
+        return this.all;
+    }
+
+    public SessionDto findById(Long id) {
+        return this.byId.get(id);
+    }
+
+    public List<SessionDto> findByTeacher(Long teacherId) {
+        return this.byTeacher.getOrDefault(teacherId, Collections.emptyList());
+    }
+
+    // Sessions whose date falls within [from, to[.
+    public List<SessionDto> findBetween(Date from, Date to) {
+        List<SessionDto> sessions = new ArrayList<>();
+        this.byDate.subMap(from.getTime(), true, to.getTime(), false).values().forEach(sessions::addAll);
+
+        return sessions;
+    }
+
+    public int size() {
+        return this.byId.size();
+    }
+
+    public long getEstimatedBytes() {
+        return this.estimatedBytes;
+    }
+
+    private static SessionDto freeze(SessionDto session) {
+        if (session.getUsers() != null) {
+            session.setUsers(Collections.unmodifiableList(new ArrayList<>(session.getUsers())));
+        }
+        return session;
+    }
+
+    static long estimateBytes(SessionDto session) {
+        long chars = (session.getName() != null ? session.getName().length() : 0)
+                + (session.getDescription() != null ? session.getDescription().length() : 0);
+        int users = session.getUsers() != null ? session.getUsers().size() : 0;
+
+        return ENTRY_OVERHEAD_BYTES + 2 * chars + 24L * users;
+    }
+}
@@ -0,0 +1,215 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSlot;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Teacher schedules. The database is the reference: each check locks the teacher's row, so the bookings of a teacher
+// are checked one at a time across every instance, then looks for an overlap in the database. The interval trees,
+// one per teacher, loaded on the first check then kept up to date by the writes committed on this instance, only
+// reject early a slot already known to be taken; they cannot see the sessions written by other instances.
+@Component
+public class TeacherSchedule {
+    private static final Logger logger = LoggerFactory.getLogger(TeacherSchedule.class);
+
+    private static final long NO_SESSION = -1;
+
+    private final SessionRepository sessionRepository;
+    private final TeacherRepository teacherRepository;
+    private final boolean enabled;
+
+    private final Map<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+    // Indexed slot of each session, to remove it from the old tree when it changes
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    // Loads and events read the database under this lock: a ReentrantLock, on which a waiting virtual thread
+    // releases its carrier. The trees themselves stay guarded by synchronized, without any I/O.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public TeacherSchedule(SessionRepository sessionRepository,
+                           TeacherRepository teacherRepository,
+                           @Value("${oc.app.teacherSchedule.enabled:true}") boolean enabled) {
+        this.sessionRepository = sessionRepository;
+        this.teacherRepository = teacherRepository;
+        this.enabled = enabled;
+    }
+
+    // Returns the id of a session of the teacher overlapping the requested slot, empty if it is free. Must run in
+    // the transaction that writes the session: a free slot stays locked until it commits.
+    public Optional<Long> findConflict(Long teacherId, Date start, int durationMinutes, Long excludedSessionId) {
+        long from = start.getTime();
+        long to = from + TimeUnit.MINUTES.toMillis(durationMinutes);
+        long excluded = excludedSessionId != null ? excludedSessionId : NO_SESSION;
+
+        if (this.enabled) {
+            Optional<Long> known = this.findConflictInMemory(teacherId, from, to, excluded);
+            if (known.isPresent()) {
+                return known;
+            }
+        }
+
+        this.teacherRepository.lockById(teacherId);
+        return this.findConflictInDatabase(teacherId, from, to, excluded);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_CACHES)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!this.enabled || event.getResource() != Resource.SESSION
+                || (event.getType() != ChangeType.CREATED && event.getType() != ChangeType.UPDATED
+                    && event.getType() != ChangeType.DELETED)) {
+            return;
+        }
+
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            this.unindex(event.getId());
+            if (event.getType() != ChangeType.DELETED) {
+                this.sessionRepository.findSlotById(event.getId()).ifPresent(this::index);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Teacher schedule refresh failed, it will be reloaded on next check: {}", e.getMessage());
+            this.trees.clear();
+            this.slots.clear();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int size() {
+        return this.slots.size();
+    }
+
+    // Overlap found in the tree, confirmed by reading the session again: it may have been moved or deleted by another
+    // instance since it was indexed
+    private Optional<Long> findConflictInMemory(Long teacherId, long from, long to, long excluded) {
+        try {
+            Long sessionId;
+            IntervalTree tree = this.tree(teacherId);
+            synchronized (tree) {
+                sessionId = tree.findOverlap(from, to, excluded);
+            }
+            if (sessionId == null) {
+                return Optional.empty();
+            }
+
+            return this.sessionRepository.findSlotById(sessionId)
+                    .filter(sessionSlot -> teacherId.equals(sessionSlot.getTeacherId()) && sessionSlot.getDate() != null)
+                    .map(Slot::of)
+                    .filter(slot -> slot.start < to && slot.end > from)
+                    .map(slot -> slot.sessionId);
+        } catch (RuntimeException e) {
+            logger.warn("Teacher schedule unavailable, checking conflicts in the database: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private IntervalTree tree(Long teacherId) {
+        IntervalTree tree = this.trees.get(teacherId);
+        return tree != null ? tree : this.load(teacherId);
+    }
+
+    // Loaded under the same lock as the events: no write can slip in between reading
+    // the database and publishing the tree.
+    private IntervalTree load(Long teacherId) {
+        this.lock.lock();
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            IntervalTree tree = this.trees.get(teacherId);
+            if (tree != null) {
+                return tree;
+            }
+
+            tree = new IntervalTree();
+            for (SessionSlot sessionSlot : this.sessionRepository.findSlotsByTeacherId(teacherId)) {
+                Slot slot = Slot.of(sessionSlot);
+                tree.insert(slot.start, slot.end, slot.sessionId);
+                this.slots.put(slot.sessionId, slot);
+            }
+            this.trees.put(teacherId, tree);
+            logger.debug("Teacher {} schedule loaded with {} sessions", teacherId, tree.size());
+
+            return tree;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void index(SessionSlot sessionSlot) {
+        IntervalTree tree = sessionSlot.getTeacherId() != null ? this.trees.get(sessionSlot.getTeacherId()) : null;
+        if (tree == null || sessionSlot.getDate() == null) {
+            // Teacher not loaded yet: their tree will read the session from the database
+            return;
+        }
+
+        Slot slot = Slot.of(sessionSlot);
+        synchronized (tree) {
+            tree.insert(slot.start, slot.end, slot.sessionId);
+        }
+        this.slots.put(slot.sessionId, slot);
+    }
+
+    private void unindex(Long sessionId) {
+        Slot slot = this.slots.remove(sessionId);
+        IntervalTree tree = slot != null ? this.trees.get(slot.teacherId) : null;
+        if (tree != null) {
+            synchronized (tree) {
+                tree.remove(slot.start, slot.sessionId);
+            }
+        }
+    }
+
+    // A session never lasts more than MAX_DURATION_MINUTES: only those starting within that window
+    // before the slot can overlap it, which remains a range read on (teacher_id, date).
+    private Optional<Long> findConflictInDatabase(Long teacherId, long from, long to, long excluded) {
+        Date windowStart = new Date(from - TimeUnit.MINUTES.toMillis(Session.MAX_DURATION_MINUTES));
+        for (SessionSlot sessionSlot : this.sessionRepository.findSlotsByTeacherIdStartingBetween(teacherId,
+                windowStart, new Date(to))) {
+            Slot slot = Slot.of(sessionSlot);
+            if (slot.start < to && slot.end > from && slot.sessionId != excluded) {
+                return Optional.of(slot.sessionId);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static final class Slot {
+        private final long sessionId;
+        private final Long teacherId;
+        private final long start;
+        private final long end;
+
+        private Slot(long sessionId, Long teacherId, long start, long end) {
+            this.sessionId = sessionId;
+            this.teacherId = teacherId;
+            this.start = start;
+            this.end = end;
+        }
+
+        private static Slot of(SessionSlot sessionSlot) {
+            int duration = sessionSlot.getDuration() != null
+                    ? sessionSlot.getDuration()
+                    : Session.DEFAULT_DURATION_MINUTES;
+            long start = sessionSlot.getDate().getTime();
+
+            return new Slot(sessionSlot.getId(), sessionSlot.getTeacherId(), start,
+                    start + TimeUnit.MINUTES.toMillis(duration));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.AuditRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Locale;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/audit")
+public class AuditController {
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final AuditLog auditLog;
+    private final AuditRepository auditRepository;
+
+    public AuditController(AuditLog auditLog, AuditRepository auditRepository) {
+        this.auditLog = auditLog;
+        this.auditRepository = auditRepository;
+    }
+
+    // History of an entity (database log only); the entries still in the buffer are not included
+    @GetMapping()
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> findByEntity(@RequestParam("entity") String entity,
+                                          @RequestParam("id") Long id,
+                                          @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Resource resource;
+        try {
+            resource = Resource.valueOf(entity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().body(this.auditRepository.findByEntity(resource, id, limit));
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok().body(this.auditLog.stats());
+    }
+}
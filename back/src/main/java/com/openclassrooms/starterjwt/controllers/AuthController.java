@@ -2,6 +2,10 @@ package com.openclassrooms.starterjwt.controllers;
 
 import javax.validation.Valid;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,6 +18,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
@@ -31,15 +39,21 @@ public class AuthController {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuditLog auditLog;
 
     AuthController(AuthenticationManager authenticationManager,
             PasswordEncoder passwordEncoder,
             JwtUtils jwtUtils,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            ApplicationEventPublisher eventPublisher,
+            AuditLog auditLog) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.auditLog = auditLog;
     }
 
     @PostMapping("/login")
@@ -82,6 +96,15 @@ public class AuthController {
                 false);
 
         userRepository.save(user);
+        eventPublisher.publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.CREATED, user.getId()));
+
+        // Sign-up: the created account is its own author; never the password in the log
+        Map<String, Object> account = new LinkedHashMap<>();
+        account.put("email", user.getEmail());
+        account.put("firstName", user.getFirstName());
+        account.put("lastName", user.getLastName());
+        account.put("admin", user.isAdmin());
+        auditLog.record(user.getEmail(), ChangeType.CREATED, Resource.USER, user.getId(), auditLog.diff(null, account));
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
@@ -0,0 +1,49 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.cache.HibernateCacheStatistics;
+import com.openclassrooms.starterjwt.cache.NameSearchIndex;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.cache.SessionCatalog;
+import com.openclassrooms.starterjwt.events.SessionEventHub;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+    private final SessionCatalog sessionCatalog;
+    private final ResponseCache responseCache;
+    private final SessionEventHub sessionEventHub;
+    private final HibernateCacheStatistics hibernateCacheStatistics;
+    private final NameSearchIndex nameSearchIndex;
+
+    public CacheController(SessionCatalog sessionCatalog,
+                           ResponseCache responseCache,
+                           SessionEventHub sessionEventHub,
+                           HibernateCacheStatistics hibernateCacheStatistics,
+                           NameSearchIndex nameSearchIndex) {
+        this.sessionCatalog = sessionCatalog;
+        this.responseCache = responseCache;
+        this.sessionEventHub = sessionEventHub;
+        this.hibernateCacheStatistics = hibernateCacheStatistics;
+        this.nameSearchIndex = nameSearchIndex;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessionCatalog", this.sessionCatalog.stats());
+        stats.put("responseCache", this.responseCache.stats());
+        stats.put("sessionEvents", this.sessionEventHub.stats());
+        stats.put("secondLevelCache", this.hibernateCacheStatistics.stats());
+        stats.put("nameSearch", this.nameSearchIndex.stats());
+
+        return ResponseEntity.ok().body(stats);
+    }
+}
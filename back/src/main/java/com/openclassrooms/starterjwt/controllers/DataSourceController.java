@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.datasource.ConnectionHoldTimer;
+import com.openclassrooms.starterjwt.datasource.QueryCounter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/datasource")
+public class DataSourceController {
+    private final ConnectionHoldTimer connectionHoldTimer;
+    private final QueryCounter queryCounter;
+
+    public DataSourceController(ConnectionHoldTimer connectionHoldTimer,
+                                QueryCounter queryCounter) {
+        this.connectionHoldTimer = connectionHoldTimer;
+        this.queryCounter = queryCounter;
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connectionHold", this.connectionHoldTimer.stats());
+        stats.put("queries", this.queryCounter.stats());
+
+        return ResponseEntity.ok().body(stats);
+    }
+
+    // Resets the counters, to measure a given period (a load test...)
+    @DeleteMapping("/stats")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> reset() {
+        this.connectionHoldTimer.reset();
+        this.queryCounter.reset();
+        return ResponseEntity.ok().build();
+    }
+}
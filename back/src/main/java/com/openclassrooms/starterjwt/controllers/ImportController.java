@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.services.ImportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// CSV imports, for administrators only. The request body is the file itself, read as a stream.
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+    private static final String TEXT_CSV = "text/csv";
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(value = "/teachers", consumes = {TEXT_CSV, MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> importTeachers(InputStream csv) throws IOException {
+        return ResponseEntity.ok().body(this.importService.importTeachers(csv));
+    }
+
+    @PostMapping(value = "/users", consumes = {TEXT_CSV, MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> importUsers(InputStream csv) throws IOException {
+        return ResponseEntity.ok().body(this.importService.importUsers(csv));
+    }
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.events.OutboxRelay;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+    private final OutboxRelay outboxRelay;
+
+    public OutboxController(OutboxRelay outboxRelay) {
+        this.outboxRelay = outboxRelay;
+    }
+
+    // Pending events, delivery lag and last failure
+    @GetMapping("/stats")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok().body(this.outboxRelay.stats());
+    }
+}
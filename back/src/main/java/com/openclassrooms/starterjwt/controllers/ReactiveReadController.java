@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.repository.ReactiveReadRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+// Reactive profile: session and teacher lists as NDJSON streams (Accept: application/x-ndjson), one object
+// per line. The Tomcat thread is released on subscription; each object is requested from the database once the
+// previous one is written, so a slow client slows the read down. JSON requests are still served by the JPA controllers.
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@Profile("reactive")
+public class ReactiveReadController {
+    private final ReactiveReadRepository reactiveReadRepository;
+
+    public ReactiveReadController(ReactiveReadRepository reactiveReadRepository) {
+        this.reactiveReadRepository = reactiveReadRepository;
+    }
+
+    @GetMapping(value = "/api/session", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SessionDto> streamSessions() {
+        return this.reactiveReadRepository.findAllSessions();
+    }
+
+    @GetMapping(value = "/api/teacher", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TeacherDto> streamTeachers() {
+        return this.reactiveReadRepository.findAllTeachers();
+    }
+}
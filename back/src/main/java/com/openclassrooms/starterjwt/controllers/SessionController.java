@@ -1,16 +1,35 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.openclassrooms.starterjwt.audit.AuditEntry;
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.cache.SessionCatalog;
+import com.openclassrooms.starterjwt.cache.SessionSnapshot;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.events.SessionEventHub;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.services.ResourceVersionService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -19,52 +38,144 @@ import java.util.List;
 public class SessionController {
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
-
+    private final ResourceVersionService resourceVersionService;
+    private final SessionCatalog sessionCatalog;
+    private final ResponseCache responseCache;
+    private final SessionEventHub sessionEventHub;
+    private final AuditLog auditLog;
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             ResourceVersionService resourceVersionService,
+                             SessionCatalog sessionCatalog,
+                             ResponseCache responseCache,
+                             SessionEventHub sessionEventHub,
+                             AuditLog auditLog) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.resourceVersionService = resourceVersionService;
+        this.sessionCatalog = sessionCatalog;
+        this.responseCache = responseCache;
+        this.sessionEventHub = sessionEventHub;
+        this.auditLog = auditLog;
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return this.sessionEventHub.subscribe();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                      @RequestParam(value = "fields", required = false) List<String> fields,
+                                      @RequestParam(value = "expand", required = false) List<String> expand,
+                                      WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            if (fields != null || expand != null) {
+                String etag = this.resourceVersionService.etag(Resource.SESSION, Long.valueOf(id));
+                return this.findProjected(Long.valueOf(id), etag, fields, expand, request);
+            }
 
-            if (session == null) {
+            SessionDto sessionDto;
+            SessionSnapshot catalog = this.sessionCatalog.snapshot();
+            if (catalog != null) {
+                sessionDto = catalog.findById(Long.valueOf(id));
+            } else {
+                // Without the catalog, a conditional request is first checked against the version column: the
+                // session is loaded and mapped only when the client's copy is stale
+                if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                    Long version = this.sessionService.getVersionById(Long.valueOf(id));
+                    if (version == null) {
+                        return ResponseEntity.notFound().build();
+                    }
+                    String etag = this.resourceVersionService.versionEtag(Resource.SESSION, Long.valueOf(id), version);
+                    if (request.checkNotModified(etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                }
+
+                Session session = this.sessionService.getById(Long.valueOf(id));
+                sessionDto = session != null ? this.sessionMapper.toDto(session) : null;
+            }
+
+            if (sessionDto == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            String etag = this.etag(sessionDto);
+            if (etag == null) {
+                return ResponseEntity.ok().body(sessionDto);
+            }
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            return ResponseEntity.ok().eTag(etag).body(sessionDto);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(value = "fields", required = false) List<String> fields,
+                                     @RequestParam(value = "expand", required = false) List<String> expand,
+                                     WebRequest request) {
+        String etag = this.resourceVersionService.collectionEtag(Resource.SESSION);
+        if (fields != null || expand != null) {
+            return this.findProjected(null, etag, fields, expand, request);
+        }
+
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return this.responseCache.serve("/api/session", etag, EnumSet.of(Resource.SESSION),
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING), () -> {
+                    SessionSnapshot catalog = this.sessionCatalog.snapshot();
+                    if (catalog != null) {
+                        return catalog.findAll();
+                    }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+                    return this.sessionMapper.toDto(this.sessionService.findAll());
+                });
     }
 
     @PostMapping()
     public ResponseEntity<?> create(@Valid @RequestBody SessionDto sessionDto) {
-        log.info(sessionDto);
+        log.debug(sessionDto);
 
         Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
-        log.info(session);
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+        log.debug(session);
+        SessionDto created = this.sessionMapper.toDto(session);
+        this.auditLog.record(ChangeType.CREATED, Resource.SESSION, session.getId(), this.auditLog.diff(null, created));
+        return ResponseEntity.ok().body(created);
     }
 
+    // The expected version comes from If-Match, otherwise from the version field of the body; with neither,
+    // the change applies to the current version.
     @PutMapping("{id}")
-    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
+    public ResponseEntity<?> update(@PathVariable("id") String id,
+                                    @Valid @RequestBody SessionDto sessionDto,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+            Long sessionId = Long.parseLong(id);
+            Session entity = this.sessionMapper.toEntity(sessionDto);
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            if (ifMatch != null && ifMatch.trim().equals("*")) {
+                entity.setVersion(null);
+            } else if (ifMatch != null) {
+                Long expected = this.resourceVersionService.parseVersionEtag(Resource.SESSION, sessionId, ifMatch);
+                if (expected == null) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+                }
+                entity.setVersion(expected);
+            }
+
+            SessionDto updated = this.sessionMapper.toDto(this.sessionService.update(sessionId, entity));
+            String etag = this.etag(updated);
+
+            return etag != null ? ResponseEntity.ok().eTag(etag).body(updated) : ResponseEntity.ok().body(updated);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -80,6 +191,8 @@ public class SessionController {
             }
 
             this.sessionService.delete(Long.parseLong(id));
+            this.auditLog.record(ChangeType.DELETED, Resource.SESSION, session.getId(),
+                    this.auditLog.diff(this.sessionMapper.toDto(session), null));
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -90,6 +203,8 @@ public class SessionController {
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
             this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            this.auditLog.record(ChangeType.PARTICIPANT_ADDED, Resource.SESSION, Long.parseLong(id),
+                    Map.of("userId", new AuditEntry.Change(null, Long.parseLong(userId))));
 
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
@@ -101,10 +216,71 @@ public class SessionController {
     public ResponseEntity<?> noLongerParticipate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
             this.sessionService.noLongerParticipate(Long.parseLong(id), Long.parseLong(userId));
+            this.auditLog.record(ChangeType.PARTICIPANT_REMOVED, Resource.SESSION, Long.parseLong(id),
+                    Map.of("userId", new AuditEntry.Change(Long.parseLong(userId), null)));
 
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    private ResponseEntity<?> findProjected(Long id, String etag, List<String> fields, List<String> expand, WebRequest request) {
+        if (!isValidExpand(expand)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> selected = selectedFields(fields);
+        boolean expandTeacher = expand != null;
+
+        String variantEtag = this.variantEtag(etag, selected, expandTeacher);
+        if (request.checkNotModified(variantEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(variantEtag).build();
+        }
+
+        if (id == null) {
+            String key = "/api/session?fields=" + String.join(",", selected) + (expandTeacher ? "&expand=teacher" : "");
+            return this.responseCache.serve(key, variantEtag,
+                    expandTeacher ? EnumSet.of(Resource.SESSION, Resource.TEACHER) : EnumSet.of(Resource.SESSION),
+                    request.getHeader(HttpHeaders.ACCEPT_ENCODING),
+                    () -> this.sessionService.findAllProjected(selected, expandTeacher));
+        }
+
+        Object body = this.sessionService.getProjectedById(id, selected, expandTeacher);
+        if (body == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok().eTag(variantEtag).body(body);
+    }
+
+    private String etag(SessionDto sessionDto) {
+        if (sessionDto == null || sessionDto.getVersion() == null) {
+            return null;
+        }
+
+        return this.resourceVersionService.versionEtag(Resource.SESSION, sessionDto.getId(), sessionDto.getVersion());
+    }
+
+    private static boolean isValidExpand(List<String> expand) {
+        return expand == null || expand.stream().allMatch("teacher"::equals);
+    }
+
+    private static Set<String> selectedFields(List<String> fields) {
+        if (fields == null) {
+            return SessionRepository.FIELDS;
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        fields.forEach(field -> selected.add(field.trim()));
+        return selected;
+    }
+
+    private String variantEtag(String etag, Set<String> fields, boolean expandTeacher) {
+        String variant = String.join(".", fields);
+        if (expandTeacher) {
+            variant += "+teacher-" + this.resourceVersionService.version(Resource.TEACHER);
+        }
+
+        return this.resourceVersionService.variantEtag(etag, variant);
+    }
 }
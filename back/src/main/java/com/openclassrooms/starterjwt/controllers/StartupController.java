@@ -0,0 +1,40 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.startup.StartupReport;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/startup")
+public class StartupController {
+    private final StartupReport startupReport;
+    private final ApplicationAvailability applicationAvailability;
+
+    public StartupController(StartupReport startupReport,
+                             ApplicationAvailability applicationAvailability) {
+        this.startupReport = startupReport;
+        this.applicationAvailability = applicationAvailability;
+    }
+
+    // Startup steps, slowest beans and warm-up
+    @GetMapping
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> report() {
+        return ResponseEntity.ok().body(this.startupReport.report());
+    }
+
+    // Readiness probe for the load balancer, without authentication: 503 until the warm-up is over
+    @GetMapping("/readiness")
+    public ResponseEntity<?> readiness() {
+        ReadinessState state = this.applicationAvailability.getReadinessState();
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(Map.of("state", state));
+    }
+}
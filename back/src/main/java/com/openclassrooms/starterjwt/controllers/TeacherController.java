@@ -1,11 +1,18 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.cache.NameSearchIndex;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.services.ResourceVersionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
+import java.util.EnumSet;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -13,16 +20,35 @@ import java.util.List;
 public class TeacherController {
     private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
+    private final ResourceVersionService resourceVersionService;
+    private final ResponseCache responseCache;
+    private final NameSearchIndex nameSearchIndex;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
+                             TeacherMapper teacherMapper,
+                             ResourceVersionService resourceVersionService,
+                             ResponseCache responseCache,
+                             NameSearchIndex nameSearchIndex) {
         this.teacherMapper = teacherMapper;
         this.teacherService = teacherService;
+        this.resourceVersionService = resourceVersionService;
+        this.responseCache = responseCache;
+        this.nameSearchIndex = nameSearchIndex;
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > NameSearchIndex.MAX_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().body(this.nameSearchIndex.searchTeachers(query, limit));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
             Teacher teacher = this.teacherService.findById(Long.valueOf(id));
 
@@ -30,16 +56,26 @@ public class TeacherController {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+            String etag = this.resourceVersionService.etag(Resource.TEACHER, teacher.getId());
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            return ResponseEntity.ok().eTag(etag).body(this.teacherMapper.toDto(teacher));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Teacher> teachers = this.teacherService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        String etag = this.resourceVersionService.collectionEtag(Resource.TEACHER);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return this.responseCache.serve("/api/teacher", etag, EnumSet.of(Resource.TEACHER),
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING),
+                () -> this.teacherMapper.toDto(this.teacherService.findAll()));
     }
 }
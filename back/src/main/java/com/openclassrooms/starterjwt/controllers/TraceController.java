@@ -0,0 +1,54 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.tracing.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Traces kept in memory (oc.app.tracing.exporter=memory); 404 with another exporter
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/traces")
+public class TraceController {
+    private final ObjectProvider<InMemorySpanExporter> inMemorySpanExporter;
+
+    public TraceController(ObjectProvider<InMemorySpanExporter> inMemorySpanExporter) {
+        this.inMemorySpanExporter = inMemorySpanExporter;
+    }
+
+    // Latest traced requests: root span of each
+    @GetMapping
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> recent(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        InMemorySpanExporter exporter = this.inMemorySpanExporter.getIfAvailable();
+        if (exporter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().body(exporter.roots(limit).stream()
+                .map(span -> InMemorySpanExporter.SpanView.of(span, span.getStartEpochNanos()))
+                .collect(Collectors.toList()));
+    }
+
+    // All the spans of a trace (trace id returned in X-Trace-Id), in order of their start
+    @GetMapping("{traceId}")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> trace(@PathVariable("traceId") String traceId) {
+        InMemorySpanExporter exporter = this.inMemorySpanExporter.getIfAvailable();
+        if (exporter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        List<SpanData> spans = exporter.trace(traceId);
+        if (spans.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        long start = spans.get(0).getStartEpochNanos();
+        return ResponseEntity.ok().body(spans.stream()
+                .map(span -> InMemorySpanExporter.SpanView.of(span, start))
+                .collect(Collectors.toList()));
+    }
+}
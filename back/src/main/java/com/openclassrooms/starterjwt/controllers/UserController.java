@@ -1,28 +1,94 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.cache.NameSearchIndex;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.UserPurgeService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserMapper userMapper;
     private final UserService userService;
+    private final NameSearchIndex nameSearchIndex;
+    private final UserPurgeService userPurgeService;
+    private final AuditLog auditLog;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             NameSearchIndex nameSearchIndex,
+                             UserPurgeService userPurgeService,
+                             AuditLog auditLog) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.nameSearchIndex = nameSearchIndex;
+        this.userPurgeService = userPurgeService;
+        this.auditLog = auditLog;
+    }
+
+    @GetMapping()
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> findAll(@RequestParam(value = "admin", required = false) Boolean admin,
+                                     @RequestParam(value = "createdFrom", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                                     @RequestParam(value = "createdTo", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                                     @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().body(
+                this.userService.directory(admin, createdFrom, createdTo, sort, cursor, limit));
+    }
+
+    @GetMapping("/purges")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> purges() {
+        return ResponseEntity.ok().body(this.userPurgeService.progress());
+    }
+
+    @GetMapping("/purges/{id}")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> purge(@PathVariable("id") String id) {
+        try {
+            return this.userPurgeService.progress(Long.valueOf(id))
+                    .<ResponseEntity<?>>map(progress -> ResponseEntity.ok().body(progress))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("principal.admin == true")
+    public ResponseEntity<?> search(@RequestParam("q") String query,
+                                    @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > NameSearchIndex.MAX_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().body(this.nameSearchIndex.searchUsers(query, limit));
     }
 
     @GetMapping("/{id}")
@@ -55,8 +121,10 @@ public class UserController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
 
-            this.userService.delete(Long.parseLong(id));
-            return ResponseEntity.ok().build();
+            UserPurgeService.Progress progress = this.userService.delete(Long.parseLong(id));
+            this.auditLog.record(ChangeType.DELETED, Resource.USER, user.getId(),
+                    this.auditLog.diff(this.userMapper.toDto(user), null));
+            return ResponseEntity.ok().body(progress);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -0,0 +1,97 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Time JDBC connections are held, from borrowing from the pool to returning, per endpoint ("GET /api/session/{id}").
+// Connections taken by the filters before the request is routed (JWT authentication) are counted
+// under "filters", those taken outside any request under "background".
+@Component
+@Order(JdbcListener.ORDER_CONNECTION_HOLD)
+public class ConnectionHoldTimer implements JdbcListener {
+    static final String FILTERS = "filters";
+    static final String BACKGROUND = "background";
+
+    private final boolean enabled;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    public ConnectionHoldTimer(@Value("${oc.app.connectionHold.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Runnable onConnection() {
+        if (!this.enabled) {
+            return null;
+        }
+
+        String endpoint = endpoint();
+        long start = System.nanoTime();
+        return () -> this.holds.computeIfAbsent(endpoint, key -> new Hold()).record(System.nanoTime() - start);
+    }
+
+    public List<Stats> stats() {
+        return this.holds.entrySet().stream()
+                .map(entry -> entry.getValue().stats(entry.getKey()))
+                .sorted(Comparator.comparingDouble(Stats::getTotalMillis).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        this.holds.clear();
+    }
+
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return BACKGROUND;
+        }
+
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (pattern == null) {
+            return FILTERS;
+        }
+        return ((ServletRequestAttributes) attributes).getRequest().getMethod() + " " + pattern;
+    }
+
+    private static final class Hold {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulate(nanos);
+        }
+
+        private Stats stats(String endpoint) {
+            long count = this.count.sum();
+            double total = this.totalNanos.sum() / 1e6;
+            return new Stats(endpoint, count, total, count > 0 ? total / count : 0, this.maxNanos.get() / 1e6);
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+        String endpoint;
+        long count;
+        double totalMillis;
+        double averageMillis;
+        double maxMillis;
+    }
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.datasource;
+
+// Instrumentation of the JDBC calls made through the "dataSource" bean, applied by JdbcProxy. Listeners are called
+// in their @Order, the lowest first: the first one starts its execution before the others and ends it after them,
+// so that what it measures includes their work.
+public interface JdbcListener {
+    // Traces first, so that their spans cover the other listeners; the query counter last, so that the time it
+    // counts is the driver's alone
+    int ORDER_TRACING = 0;
+    int ORDER_CONNECTION_HOLD = 10;
+    int ORDER_QUERY_COUNTER = 20;
+
+    // A connection was borrowed from the pool. The callback returned, if any, runs when it is given back.
+    default Runnable onConnection() {
+        return null;
+    }
+
+    // A statement is about to run: sql is null when the driver call does not carry it, batchSize is 0 outside a
+    // batch. The execution returned, if any, is told about its end and the rows read from its results.
+    default Execution onExecute(String sql, int batchSize) {
+        return null;
+    }
+
+    interface Execution {
+        // Called for each row read, also after the end of the execution
+        default void onRow() {
+        }
+
+        // error is null when the statement succeeded
+        void onEnd(Throwable error);
+    }
+}
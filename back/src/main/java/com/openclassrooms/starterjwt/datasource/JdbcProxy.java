@@ -0,0 +1,199 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// Single JDK proxy around the "dataSource" bean, through which every JdbcListener observes connections, statements
+// and rows. Applied after the other post-processors, around the DataSource the application finally uses.
+@Component
+public class JdbcProxy implements BeanPostProcessor, Ordered {
+    private final ObjectProvider<JdbcListener> listenerProvider;
+
+    private volatile List<JdbcListener> listeners;
+
+    public JdbcProxy(ObjectProvider<JdbcListener> listenerProvider) {
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+            return new ListenedDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+
+    // Listeners resolved on the first connection: a BeanPostProcessor is created before them
+    private List<JdbcListener> listeners() {
+        List<JdbcListener> resolved = this.listeners;
+        if (resolved == null) {
+            resolved = Collections.unmodifiableList(this.listenerProvider.orderedStream().collect(Collectors.toList()));
+            this.listeners = resolved;
+        }
+        return resolved;
+    }
+
+    private Connection connection(Connection connection) {
+        List<JdbcListener> listeners = this.listeners();
+        if (listeners.isEmpty()) {
+            return connection;
+        }
+
+        List<Runnable> onClose = new ArrayList<>();
+        for (JdbcListener listener : listeners) {
+            Runnable callback = listener.onConnection();
+            if (callback != null) {
+                onClose.add(callback);
+            }
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+
+        return (Connection) proxy(Connection.class, connection, (method, args) -> {
+            if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                for (int i = onClose.size() - 1; i >= 0; i--) {
+                    onClose.get(i).run();
+                }
+            }
+
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return statement(method.getReturnType(), (Statement) result, sql, listeners);
+            }
+            return result;
+        });
+    }
+
+    private static Object statement(Class<?> type, Statement statement, String preparedSql,
+                                    List<JdbcListener> listeners) {
+        String[] batchSql = new String[1];
+        int[] batchSize = new int[1];
+        // Executions of the last statement run, told about the rows of the results fetched afterwards
+        AtomicReference<List<JdbcListener.Execution>> last = new AtomicReference<>(Collections.emptyList());
+
+        return proxy(type, statement, (method, args) -> {
+            String name = method.getName();
+            if (name.equals("addBatch")) {
+                batchSize[0]++;
+                if (args != null && args.length == 1) {
+                    batchSql[0] = (String) args[0];
+                }
+            }
+            if (name.startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : preparedSql != null ? preparedSql : batchSql[0];
+                boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                List<JdbcListener.Execution> executions = new ArrayList<>();
+                for (JdbcListener listener : listeners) {
+                    JdbcListener.Execution execution = listener.onExecute(sql, batch ? batchSize[0] : 0);
+                    if (execution != null) {
+                        executions.add(execution);
+                    }
+                }
+                if (batch) {
+                    batchSize[0] = 0;
+                }
+                last.set(executions);
+
+                Throwable error = null;
+                try {
+                    return resultSet(invoke(statement, method, args), executions);
+                } catch (Throwable e) {
+                    error = e;
+                    throw e;
+                } finally {
+                    for (int i = executions.size() - 1; i >= 0; i--) {
+                        executions.get(i).onEnd(error);
+                    }
+                }
+            }
+            if (name.equals("getResultSet") || name.equals("getGeneratedKeys")) {
+                return resultSet(invoke(statement, method, args), last.get());
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Object resultSet(Object result, List<JdbcListener.Execution> executions) {
+        if (!(result instanceof ResultSet) || executions.isEmpty()) {
+            return result;
+        }
+
+        ResultSet resultSet = (ResultSet) result;
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            Object value = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(value)) {
+                executions.forEach(JdbcListener.Execution::onRow);
+            }
+            return value;
+        });
+    }
+
+    private static Object proxy(Class<?> type, Object target, Handler handler) {
+        return Proxy.newProxyInstance(JdbcProxy.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return target.toString();
+                        default:
+                            return handler.handle(method, args);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ListenedDataSource extends DelegatingDataSource {
+
+        private ListenedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return connection(super.getConnection(username, password));
+        }
+    }
+}
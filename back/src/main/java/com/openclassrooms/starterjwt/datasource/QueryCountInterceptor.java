@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Locale;
+
+// SQL summary of each request. The debug headers are set just before the body is written, while the
+// response is not sent yet; the counter is closed once the request is complete.
+@ControllerAdvice
+public class QueryCountInterceptor implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+    public static final String ROWS_HEADER = "X-Sql-Rows";
+
+    private final QueryCounter queryCounter;
+    private final boolean debugHeaders;
+
+    public QueryCountInterceptor(QueryCounter queryCounter,
+                                 @Value("${oc.app.queryCounter.debugHeaders:false}") boolean debugHeaders) {
+        this.queryCounter = queryCounter;
+        this.debugHeaders = debugHeaders;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class converterType) {
+        return this.debugHeaders;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        QueryCounter.RequestQueries queries = this.queryCounter.current();
+        if (queries != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(queries.getStatements()));
+            response.getHeaders().set(TIME_HEADER, String.format(Locale.ROOT, "%.2f", queries.getJdbcMillis()));
+            response.getHeaders().set(ROWS_HEADER, String.valueOf(queries.getRows()));
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        this.queryCounter.finish(request.getMethod(), pattern != null ? pattern.toString() : "unmapped");
+    }
+}
@@ -0,0 +1,278 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Counts, for each HTTP request, the SQL statements executed, their cumulated JDBC time and the rows read.
+// The counter of the request lives in its attributes: it also covers the filters (JWT authentication). The same
+// statement shape (parameters and IN lists folded) executed more than repeatThreshold times in a request
+// signals an N+1: a warning is logged. Each request is recorded in the jdbc.request.* meters, tagged with its method
+// and uri like http.server.requests; the totals per endpoint are also exposed with the statistics of the DataSource.
+// Outside a request (background tasks), nothing is counted.
+@Component
+@Order(JdbcListener.ORDER_QUERY_COUNTER)
+public class QueryCounter implements JdbcListener {
+    private static final Logger logger = LoggerFactory.getLogger(QueryCounter.class);
+
+    private static final String REQUEST_ATTRIBUTE = QueryCounter.class.getName() + ".REQUEST";
+    private static final Pattern LITERALS = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LISTS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    static final String STATEMENTS_METRIC = "jdbc.request.statements";
+    static final String TIME_METRIC = "jdbc.request.time";
+    static final String ROWS_METRIC = "jdbc.request.rows";
+
+    private final boolean enabled;
+    private final int repeatThreshold;
+    // Registry resolved on the first request: the first connections are taken before it exists
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+    private final List<Recording> recordings = new CopyOnWriteArrayList<>();
+
+    public QueryCounter(@Value("${oc.app.queryCounter.enabled:true}") boolean enabled,
+                        @Value("${oc.app.queryCounter.repeatThreshold:10}") int repeatThreshold,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.repeatThreshold = repeatThreshold;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Counter of the current request, null outside an HTTP request or if counting is disabled
+    public RequestQueries current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!this.enabled || attributes == null) {
+            return null;
+        }
+
+        RequestQueries queries = (RequestQueries) attributes.getAttribute(REQUEST_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (queries == null) {
+            queries = new RequestQueries();
+            attributes.setAttribute(REQUEST_ATTRIBUTE, queries, RequestAttributes.SCOPE_REQUEST);
+        }
+        return queries;
+    }
+
+    // Closes the request's counter when it is done: N+1 warning, meters, endpoint totals, running tests
+    public Summary finish(String method, String uri) {
+        String endpoint = method + " " + uri;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        RequestQueries queries = (RequestQueries) attributes.getAttribute(REQUEST_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (queries == null) {
+            return null;
+        }
+        attributes.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        Summary summary = queries.summary(endpoint, this.repeatThreshold);
+        summary.getRepeated().forEach((shape, count) -> logger.warn(
+                "Possible N+1 on {}: same statement ran {} times in one request: {}", endpoint, count, shape));
+
+        this.record(method, uri, summary);
+        this.totals.computeIfAbsent(endpoint, key -> new Totals()).add(summary);
+        this.recordings.forEach(recording -> recording.summaries.add(summary));
+        return summary;
+    }
+
+    public List<Stats> stats() {
+        return this.totals.entrySet().stream()
+                .map(entry -> entry.getValue().stats(entry.getKey()))
+                .sorted(Comparator.comparingLong(Stats::getStatements).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        this.totals.clear();
+    }
+
+    // Collects the summary of each completed request until closed (query budgets of the tests)
+    public Recording record() {
+        Recording recording = new Recording();
+        this.recordings.add(recording);
+        return recording;
+    }
+
+    private void record(String method, String uri, Summary summary) {
+        MeterRegistry registry = this.meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+
+        DistributionSummary.builder(STATEMENTS_METRIC)
+                .description("SQL statements run by a request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(summary.getStatements());
+        Timer.builder(TIME_METRIC)
+                .description("Cumulated JDBC time of a request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(Math.round(summary.getJdbcMillis() * 1_000_000), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(ROWS_METRIC)
+                .description("Rows read by a request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(summary.getRows());
+    }
+
+    // Shape of a statement: literal values and IN lists replaced, to group the variants
+    static String shape(String sql) {
+        String shape = LITERALS.matcher(sql).replaceAll("?");
+        shape = IN_LISTS.matcher(shape).replaceAll("(?)");
+        return SPACES.matcher(shape).replaceAll(" ").trim();
+    }
+
+    @Override
+    public Execution onExecute(String sql, int batchSize) {
+        RequestQueries queries = this.current();
+        if (queries == null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        return new Execution() {
+            @Override
+            public void onRow() {
+                queries.fetched();
+            }
+
+            @Override
+            public void onEnd(Throwable error) {
+                queries.executed(sql, System.nanoTime() - start);
+            }
+        };
+    }
+
+    // Counters of an HTTP request; the raw SQL text is the key, the shapes are only computed for the summary
+    public static final class RequestQueries {
+        private final Map<String, Integer> executions = new HashMap<>();
+        private int statements;
+        private long jdbcNanos;
+        private long rows;
+
+        private synchronized void executed(String sql, long nanos) {
+            this.statements++;
+            this.jdbcNanos += nanos;
+            if (sql != null) {
+                this.executions.merge(sql, 1, Integer::sum);
+            }
+        }
+
+        private synchronized void fetched() {
+            this.rows++;
+        }
+
+        public synchronized int getStatements() {
+            return this.statements;
+        }
+
+        public synchronized double getJdbcMillis() {
+            return this.jdbcNanos / 1e6;
+        }
+
+        public synchronized long getRows() {
+            return this.rows;
+        }
+
+        private synchronized Summary summary(String endpoint, int repeatThreshold) {
+            Map<String, Integer> shapes = new HashMap<>();
+            this.executions.forEach((sql, count) -> shapes.merge(shape(sql), count, Integer::sum));
+
+            Map<String, Integer> repeated = new TreeMap<>();
+            shapes.forEach((shape, count) -> {
+                if (count > repeatThreshold) {
+                    repeated.put(shape, count);
+                }
+            });
+            return new Summary(endpoint, this.statements, this.jdbcNanos / 1e6, this.rows, repeated);
+        }
+    }
+
+    public final class Recording implements AutoCloseable {
+        private final List<Summary> summaries = new CopyOnWriteArrayList<>();
+
+        private Recording() {
+        }
+
+        public List<Summary> summaries() {
+            return Collections.unmodifiableList(this.summaries);
+        }
+
+        @Override
+        public void close() {
+            QueryCounter.this.recordings.remove(this);
+        }
+    }
+
+    private static final class Totals {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder jdbcMicros = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder repeatWarnings = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+
+        private void add(Summary summary) {
+            this.requests.increment();
+            this.statements.add(summary.getStatements());
+            this.jdbcMicros.add(Math.round(summary.getJdbcMillis() * 1000));
+            this.rows.add(summary.getRows());
+            this.repeatWarnings.add(summary.getRepeated().size());
+            this.maxStatements.accumulate(summary.getStatements());
+        }
+
+        private Stats stats(String endpoint) {
+            long requests = this.requests.sum();
+            long statements = this.statements.sum();
+            return new Stats(endpoint, requests, statements, requests > 0 ? (double) statements / requests : 0,
+                    this.maxStatements.get(), this.jdbcMicros.sum() / 1000.0, this.rows.sum(),
+                    this.repeatWarnings.sum());
+        }
+    }
+
+    @lombok.Value
+    public static class Summary {
+        String endpoint;
+        int statements;
+        double jdbcMillis;
+        long rows;
+        // Shapes executed more than repeatThreshold times, with their number of executions
+        Map<String, Integer> repeated;
+    }
+
+    @lombok.Value
+    public static class Stats {
+        String endpoint;
+        long requests;
+        long statements;
+        double averageStatements;
+        long maxStatements;
+        double jdbcMillis;
+        long rows;
+        long repeatWarnings;
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class QueryCounterConfig implements WebMvcConfigurer {
+    private final QueryCountInterceptor queryCountInterceptor;
+
+    public QueryCounterConfig(QueryCountInterceptor queryCountInterceptor) {
+        this.queryCountInterceptor = queryCountInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this.queryCountInterceptor);
+    }
+}
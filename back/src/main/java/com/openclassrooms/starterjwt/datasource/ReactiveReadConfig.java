@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import javax.annotation.PreDestroy;
+
+// Reactive profile: R2DBC client for session and teacher reads, next to the JPA DataSource which
+// keeps all the writes. The pool is not exposed as a bean: a ConnectionFactory in the context would make
+// Spring Boot give up the JDBC DataSource (the R2DBC auto-configuration is excluded for the same reason).
+@Configuration
+@Profile("reactive")
+public class ReactiveReadConfig {
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(
+            @Value("${oc.app.reactive.url}") String url,
+            @Value("${oc.app.reactive.username:${spring.datasource.username:}}") String username,
+            @Value("${oc.app.reactive.password:${spring.datasource.password:}}") String password,
+            @Value("${oc.app.reactive.maxPoolSize:10}") int maxPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .maxSize(maxPoolSize)
+                .build());
+        return DatabaseClient.create(this.connectionPool);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (this.connectionPool != null) {
+            this.connectionPool.dispose();
+        }
+    }
+}
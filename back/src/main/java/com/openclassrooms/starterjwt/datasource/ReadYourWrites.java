@@ -0,0 +1,165 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.ResourceVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Reading one's own writes despite the replica's lag. A request that modifies (POST, PUT, DELETE...) reads
+// everything from the primary, and hands its client a cookie with the versions it wrote (RESOURCE_VERSIONS, as
+// read in the writing transaction). The client's next reads, whichever instance serves them, stay on the primary
+// until the replica's RESOURCE_VERSIONS has caught up with these versions. maxLagMs bounds the pin: past it, the
+// cookie expires and the replica is read even if it is still behind.
+@Component
+@ConditionalOnProperty(prefix = "oc.app.datasource.replica", name = "url")
+public class ReadYourWrites implements HandlerInterceptor {
+    public static final String COOKIE = "RYW";
+    private static final Logger logger = LoggerFactory.getLogger(ReadYourWrites.class);
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ThreadLocal<Boolean> primaryRequest = ThreadLocal.withInitial(() -> false);
+    // Versions written by the client of the current request: from its cookie, then from its own writes
+    private final ThreadLocal<Map<Resource, Long>> written =
+            ThreadLocal.withInitial(() -> new EnumMap<>(Resource.class));
+    private final long maxLagMillis;
+    private final JdbcTemplate replica;
+    // Resolved on the first write: the repository depends on the DataSource, which depends on this component
+    private final ObjectProvider<ResourceVersionRepository> resourceVersionRepository;
+
+    @Autowired
+    public ReadYourWrites(@Value("${oc.app.datasource.replica.maxLagMs:1000}") long maxLagMillis,
+                          @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                          ObjectProvider<ResourceVersionRepository> resourceVersionRepository) {
+        this(maxLagMillis, new JdbcTemplate(replicaDataSource), resourceVersionRepository);
+    }
+
+    ReadYourWrites(long maxLagMillis, JdbcTemplate replica,
+                   ObjectProvider<ResourceVersionRepository> resourceVersionRepository) {
+        this.maxLagMillis = maxLagMillis;
+        this.replica = replica;
+        this.resourceVersionRepository = resourceVersionRepository;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie != null) {
+            this.written.get().putAll(parse(cookie.getValue()));
+        }
+        if (!SAFE_METHODS.contains(request.getMethod()) || this.replicaBehind(this.written.get())) {
+            this.primaryRequest.set(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        this.primaryRequest.remove();
+        this.written.remove();
+    }
+
+    // Runs in the writing transaction, once the stored version has been incremented: the version read here is the
+    // one this write commits.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_WRITE_TOKEN)
+    public void onResourceWritten(ResourceChangedEvent event) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)
+                || ((ServletRequestAttributes) attributes).getResponse() == null) {
+            return;
+        }
+
+        long version = this.resourceVersionRepository.getObject().find(event.getResource());
+        Map<Resource, Long> versions = this.written.get();
+        versions.merge(event.getResource(), version, Math::max);
+        // Every write of the request adds a cookie holding all of them: the client keeps the last one
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, format(versions))
+                .path("/")
+                .maxAge(Duration.ofSeconds(Math.max(1, (this.maxLagMillis + 999) / 1000)))
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build();
+        ((ServletRequestAttributes) attributes).getResponse().addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    public boolean primaryRequired() {
+        return this.primaryRequest.get();
+    }
+
+    // One query to the replica, only for clients that wrote within maxLagMs. If it fails, the primary is read.
+    private boolean replicaBehind(Map<Resource, Long> versions) {
+        if (versions.isEmpty()) {
+            return false;
+        }
+
+        Map<String, Long> applied;
+        try {
+            applied = this.replica.query("SELECT resource, version FROM RESOURCE_VERSIONS", rs -> {
+                Map<String, Long> rows = new HashMap<>();
+                while (rs.next()) {
+                    rows.put(rs.getString(1), rs.getLong(2));
+                }
+                return rows;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Replica versions unavailable, reading from the primary: {}", e.getMessage());
+            return true;
+        }
+        return versions.entrySet().stream()
+                .anyMatch(entry -> applied.getOrDefault(entry.getKey().name(), 0L) < entry.getValue());
+    }
+
+    // "SESSION.42-USER.7": unknown or malformed parts are ignored
+    static Map<Resource, Long> parse(String value) {
+        Map<Resource, Long> versions = new EnumMap<>(Resource.class);
+        for (String part : value.split("-")) {
+            int dot = part.indexOf('.');
+            if (dot < 0) {
+                continue;
+            }
+            try {
+                versions.put(Resource.valueOf(part.substring(0, dot)), Long.valueOf(part.substring(dot + 1)));
+            } catch (IllegalArgumentException e) {
+                // Skipped
+            }
+        }
+        return versions;
+    }
+
+    static String format(Map<Resource, Long> versions) {
+        return versions.entrySet().stream()
+                .map(entry -> entry.getKey().name() + "." + entry.getValue())
+                .collect(Collectors.joining("-"));
+    }
+}
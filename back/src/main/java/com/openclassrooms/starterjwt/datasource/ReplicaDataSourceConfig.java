@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+// Active only when a replica is configured: spring.datasource.* stays the primary, and the replica falls back on its
+// credentials when it has none. Without a replica, the DataSource auto-configured by Spring Boot is unchanged.
+@Configuration
+@ConditionalOnProperty(prefix = "oc.app.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              HikariDataSource primaryDataSource,
+                                              @Value("${oc.app.datasource.replica.url}") String url,
+                                              @Value("${oc.app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${oc.app.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${oc.app.datasource.replica.maximumPoolSize:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        // Same driver settings as the primary (prepared statement cache...)
+        dataSource.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 HikariDataSource replicaDataSource,
+                                 ReadYourWrites readYourWrites) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+                readYourWrites);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public WebMvcConfigurer readYourWritesInterceptor(ReadYourWrites readYourWrites) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(readYourWrites);
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Routes each connection: read-only transactions go to the replica, except when ReadYourWrites
+// requires the primary; everything else (writes, queries outside a transaction) goes to the primary. Must be wrapped
+// in a LazyConnectionDataSourceProxy: the readOnly flag is only set after the transaction is opened.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Integer> PRIMARY_SCOPES = ThreadLocal.withInitial(() -> 0);
+    private static final PrimaryScope PRIMARY_SCOPE = new PrimaryScope();
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        this.setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        this.setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return current(this.readYourWrites);
+    }
+
+    static Route current(ReadYourWrites readYourWrites) {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && PRIMARY_SCOPES.get() == 0
+                && !readYourWrites.primaryRequired()
+                ? Route.REPLICA
+                : Route.PRIMARY;
+    }
+
+    // Sends every connection opened by this thread to the primary until the scope is closed, read-only
+    // transactions included. Cache loads and background jobs use it: a lagging replica would make them keep or
+    // act on a row that has already changed. Does nothing without a replica.
+    public static PrimaryScope primary() {
+        PRIMARY_SCOPES.set(PRIMARY_SCOPES.get() + 1);
+        return PRIMARY_SCOPE;
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        try (PrimaryScope ignored = primary()) {
+            return work.get();
+        }
+    }
+
+    public static final class PrimaryScope implements AutoCloseable {
+        private PrimaryScope() {
+        }
+
+        @Override
+        public void close() {
+            int depth = PRIMARY_SCOPES.get() - 1;
+            if (depth > 0) {
+                PRIMARY_SCOPES.set(depth);
+            } else {
+                PRIMARY_SCOPES.remove();
+            }
+        }
+    }
+}
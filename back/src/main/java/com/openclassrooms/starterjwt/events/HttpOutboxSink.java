@@ -0,0 +1,38 @@
+package com.openclassrooms.starterjwt.events;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+// Sends each batch as one JSON POST (array of events); any response outside 2xx fails the delivery
+@Component
+@ConditionalOnProperty("oc.app.outbox.httpSink.url")
+public class HttpOutboxSink implements OutboxSink {
+    private final RestTemplate restTemplate;
+    private final String url;
+
+    public HttpOutboxSink(RestTemplateBuilder restTemplateBuilder,
+                          @Value("${oc.app.outbox.httpSink.url}") String url,
+                          @Value("${oc.app.outbox.httpSink.timeoutMs:5000}") long timeoutMillis) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(timeoutMillis))
+                .setReadTimeout(Duration.ofMillis(timeoutMillis))
+                .build();
+        this.url = url;
+    }
+
+    @Override
+    public String name() {
+        return "http";
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) {
+        this.restTemplate.postForEntity(this.url, messages, Void.class);
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Appends each event, as JSON, on one line of the configured file
+@Component
+@ConditionalOnProperty("oc.app.outbox.logSink.file")
+public class LogFileOutboxSink implements OutboxSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public LogFileOutboxSink(ObjectMapper objectMapper,
+                             @Value("${oc.app.outbox.logSink.file}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public String name() {
+        return "logFile";
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) throws IOException {
+        List<String> lines = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            lines.add(this.objectMapper.writeValueAsString(message));
+        }
+        Files.write(this.file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// An event of the OUTBOX table as delivered to the sinks. The id is stable from one attempt to the next: a
+// recipient can use it to ignore a duplicate (at-least-once delivery).
+@Value
+public class OutboxMessage {
+    long id;
+    Resource resource;
+    ChangeType type;
+    Long aggregateId;
+    // Only set for participation changes
+    Long userId;
+    LocalDateTime createdAt;
+}
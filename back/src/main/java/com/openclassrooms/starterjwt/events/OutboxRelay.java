@@ -0,0 +1,192 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.openclassrooms.starterjwt.repository.LeaseRepository;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Outbox relay: drains the table in batches, in id order, to every sink. A batch is only deleted
+// once accepted by each of them; on failure it is delivered again in full after a growing wait, which
+// guarantees at-least-once delivery and the order per session (the rows of a session are written
+// after the lock on its SESSIONS row, hence in commit order). Every instance runs a relay, but only the holder of
+// the OUTBOX_RELAY lease drains the table; the lease is renewed before each batch. An instance stalled for longer
+// than the lease may still deliver a batch its successor already sent: recipients ignore it by id.
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final LeaseRepository leaseRepository;
+    private final List<OutboxSink> sinks;
+    private final int batchSize;
+    private final long leaseMillis;
+    private final long pollMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAccumulator maxDeliveryLagMillis = new LongAccumulator(Math::max, 0);
+    private volatile long lastDeliveryLagMillis;
+    private volatile String lastError;
+    private int consecutiveFailures;
+    private long nextAttemptAt;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       LeaseRepository leaseRepository,
+                       ObjectProvider<OutboxSink> sinks,
+                       @Value("${oc.app.outbox.batchSize:100}") int batchSize,
+                       @Value("${oc.app.outbox.pollMs:500}") long pollMillis,
+                       @Value("${oc.app.outbox.maxBackoffMs:30000}") long maxBackoffMillis,
+                       @Value("${oc.app.outbox.leaseMs:30000}") long leaseMillis) {
+        this(outboxRepository, leaseRepository, sinks.orderedStream().collect(Collectors.toList()), batchSize,
+                pollMillis, maxBackoffMillis, leaseMillis,
+                pollMillis > 0 ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-relay");
+                    thread.setDaemon(true);
+                    return thread;
+                }) : null);
+        if (this.scheduler != null) {
+            this.scheduler.scheduleWithFixedDelay(this::tick, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    OutboxRelay(OutboxRepository outboxRepository,
+                LeaseRepository leaseRepository,
+                List<OutboxSink> sinks,
+                int batchSize,
+                long pollMillis,
+                long maxBackoffMillis,
+                long leaseMillis,
+                ScheduledExecutorService scheduler) {
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+        this.pollMillis = pollMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.scheduler = scheduler;
+    }
+
+    // Delivers everything pending, batch after batch, and stops at the first failure or when another instance holds
+    // the lease. Returns the events delivered.
+    public synchronized int drain() {
+        int total = 0;
+        List<OutboxMessage> batch;
+        do {
+            if (!this.leaseRepository.acquire(LeaseRepository.OUTBOX_RELAY, this.leaseMillis)) {
+                return total;
+            }
+            batch = this.outboxRepository.findNext(this.batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            for (OutboxSink sink : this.sinks) {
+                try {
+                    sink.deliver(batch);
+                } catch (Exception e) {
+                    this.failed(sink.name() + ": " + e.getMessage());
+                    return total;
+                }
+            }
+            this.outboxRepository.delete(batch.stream().map(OutboxMessage::getId).collect(Collectors.toList()));
+            this.succeeded(batch);
+            total += batch.size();
+        } while (batch.size() == this.batchSize);
+        return total;
+    }
+
+    public Stats stats() {
+        OutboxRepository.Pending pending = this.outboxRepository.pending();
+        return new Stats(
+                pending.getCount(),
+                pending.getOldest() != null ? lagMillis(pending.getOldest()) : 0,
+                this.delivered.sum(),
+                this.failures.sum(),
+                this.lastDeliveryLagMillis,
+                this.maxDeliveryLagMillis.get(),
+                this.lastError,
+                this.sinks.stream().map(OutboxSink::name).collect(Collectors.toList()));
+    }
+
+    // Hands the lease over at once rather than when it expires
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        try {
+            this.leaseRepository.release(LeaseRepository.OUTBOX_RELAY);
+        } catch (RuntimeException e) {
+            logger.warn("Outbox relay lease not released: {}", e.getMessage());
+        }
+    }
+
+    // Periodic pass: nothing during the wait that follows a failure
+    synchronized void tick() {
+        if (System.currentTimeMillis() < this.nextAttemptAt) {
+            return;
+        }
+        try {
+            this.drain();
+        } catch (RuntimeException e) {
+            // Database unavailable: same wait as for a failing sink
+            this.failed(e.getMessage());
+        }
+    }
+
+    private void succeeded(List<OutboxMessage> batch) {
+        this.delivered.add(batch.size());
+        this.maxDeliveryLagMillis.accumulate(lagMillis(batch.get(0).getCreatedAt()));
+        this.lastDeliveryLagMillis = lagMillis(batch.get(batch.size() - 1).getCreatedAt());
+        this.consecutiveFailures = 0;
+        this.nextAttemptAt = 0;
+    }
+
+    private void failed(String error) {
+        this.failures.increment();
+        this.consecutiveFailures++;
+        this.lastError = error;
+
+        long backoff = Math.min(this.maxBackoffMillis,
+                Math.max(this.pollMillis, 1) << Math.min(this.consecutiveFailures, 20));
+        this.nextAttemptAt = System.currentTimeMillis() + backoff;
+        logger.warn("Outbox delivery failed ({} in a row), retrying in {} ms: {}",
+                this.consecutiveFailures, backoff, error);
+    }
+
+    private static long lagMillis(LocalDateTime createdAt) {
+        return Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis());
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long pending;
+        // Age of the oldest undelivered event: the lag of the external systems
+        long oldestPendingAgeMillis;
+        long delivered;
+        long failures;
+        long lastDeliveryLagMillis;
+        long maxDeliveryLagMillis;
+        String lastError;
+        List<String> sinks;
+    }
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.starterjwt.events;
+
+import java.util.List;
+
+// Destination of the outbox events. A batch is only deleted from the table once every sink has accepted it:
+// on an exception it will be delivered again, to all of them, in the same order.
+public interface OutboxSink {
+
+    String name();
+
+    void deliver(List<OutboxMessage> messages) throws Exception;
+}
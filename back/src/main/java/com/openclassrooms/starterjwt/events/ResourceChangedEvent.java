@@ -0,0 +1,39 @@
+package com.openclassrooms.starterjwt.events;
+
+import lombok.Value;
+
+@Value
+public class ResourceChangedEvent {
+    public enum Resource { SESSION, TEACHER, USER }
+
+    public enum ChangeType { CREATED, UPDATED, DELETED, PARTICIPANT_ADDED, PARTICIPANT_REMOVED }
+
+    // Order of the before-commit listeners: the stored version is incremented before read routing records it.
+    public static final int ORDER_STORED_VERSION = 0;
+    public static final int ORDER_WRITE_TOKEN = 10;
+
+    // Order of the after-commit listeners. In-memory copies are updated first, then cached
+    // responses are dropped, and only then do the local version counters publish new ETags: a request that sees a
+    // new ETag can no longer read or cache the previous data under it. Subscribers are notified last.
+    public static final int ORDER_CACHES = 0;
+    public static final int ORDER_RESPONSE_CACHE = 10;
+    public static final int ORDER_VERSIONS = 20;
+    public static final int ORDER_NOTIFICATIONS = 30;
+
+    Resource resource;
+    ChangeType type;
+    Long id;
+    // Only set for participation changes
+    Long userId;
+
+    public ResourceChangedEvent(Resource resource, ChangeType type, Long id) {
+        this(resource, type, id, null);
+    }
+
+    public ResourceChangedEvent(Resource resource, ChangeType type, Long id, Long userId) {
+        this.resource = resource;
+        this.type = type;
+        this.id = id;
+        this.userId = userId;
+    }
+}
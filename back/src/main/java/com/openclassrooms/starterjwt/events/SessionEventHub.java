@@ -0,0 +1,314 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Broadcasts session changes as Server-Sent Events.
+// Idle connections hold no thread (asynchronous requests): each subscriber has a bounded queue, drained by its own
+// task while it has events pending. A subscriber whose queue overflows, or whose events have been pending longer
+// than the send timeout, is disconnected: a client that stops reading only holds its own thread.
+@Component
+public class SessionEventHub {
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventHub.class);
+
+    private static final Message CONNECTED = new Message(null, 0, "connected");
+    private static final Message HEARTBEAT = new Message(null, 0, "heartbeat");
+
+    private final ObjectMapper objectMapper;
+    private final SessionRepository sessionRepository;
+    private final SessionMapper sessionMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ExecutorService publisher;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeats;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public SessionEventHub(ObjectMapper objectMapper,
+                           SessionRepository sessionRepository,
+                           SessionMapper sessionMapper,
+                           @Value("${oc.app.sessionEvents.bufferSize:64}") int bufferSize,
+                           @Value("${oc.app.sessionEvents.timeoutMs:1800000}") long timeoutMillis,
+                           @Value("${oc.app.sessionEvents.heartbeatMs:15000}") long heartbeatMillis,
+                           @Value("${oc.app.sessionEvents.sendTimeoutMs:10000}") long sendTimeoutMillis) {
+        this(objectMapper, sessionRepository, sessionMapper, bufferSize, timeoutMillis, sendTimeoutMillis,
+                Executors.newSingleThreadExecutor(daemon("session-events-publisher-")),
+                Executors.newCachedThreadPool(daemon("session-events-")),
+                Executors.newSingleThreadScheduledExecutor(daemon("session-events-heartbeat-")));
+        this.heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long checkMillis = Math.max(1, sendTimeoutMillis / 2);
+        this.heartbeats.scheduleAtFixedRate(this::dropStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    SessionEventHub(ObjectMapper objectMapper,
+                    SessionRepository sessionRepository,
+                    SessionMapper sessionMapper,
+                    int bufferSize,
+                    long timeoutMillis,
+                    long sendTimeoutMillis,
+                    ExecutorService publisher,
+                    ExecutorService dispatcher,
+                    ScheduledExecutorService heartbeats) {
+        this.objectMapper = objectMapper;
+        this.sessionRepository = sessionRepository;
+        this.sessionMapper = sessionMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.publisher = publisher;
+        this.dispatcher = dispatcher;
+        this.heartbeats = heartbeats;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(this.timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, this.bufferSize);
+
+        emitter.onCompletion(() -> this.discard(subscriber));
+        emitter.onTimeout(() -> this.discard(subscriber));
+        emitter.onError(e -> this.discard(subscriber));
+
+        this.subscribers.add(subscriber);
+        this.offer(subscriber, CONNECTED);
+        return emitter;
+    }
+
+    // The thread that made the write only hands the event over: the delta is loaded and serialized once by the
+    // publisher thread, in commit order, then simply put in each subscriber's queue.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_NOTIFICATIONS)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (event.getResource() != Resource.SESSION || this.subscribers.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.publisher.execute(() -> this.publish(event));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the streams are being closed
+            logger.debug("Session event {} not published: shutting down", event);
+        }
+    }
+
+    private void publish(ResourceChangedEvent event) {
+        SessionDto session = null;
+        if (event.getType() == ChangeType.CREATED || event.getType() == ChangeType.UPDATED) {
+            session = ReplicaRoutingDataSource.onPrimary(() -> this.sessionRepository.findById(event.getId())
+                    .map(this.sessionMapper::toDto)
+                    .orElse(null));
+        }
+
+        String name = event.getType().name().toLowerCase(Locale.ROOT);
+        try {
+            String json = this.objectMapper.writeValueAsString(new Delta(name, event.getId(), event.getUserId(), session));
+            this.broadcast(new Message(name, this.sequence.incrementAndGet(), json));
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize session event {}: {}", event, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Could not publish session event {}: {}", event, e.getMessage());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(this.subscribers.size(), this.delivered.sum(), this.dropped.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.heartbeats.shutdownNow();
+        this.publisher.shutdown();
+        this.subscribers.forEach(this::close);
+        this.dispatcher.shutdown();
+    }
+
+    void heartbeat() {
+        this.broadcast(HEARTBEAT);
+    }
+
+    // A send blocked on a full TCP window cannot be interrupted: the subscriber is disconnected so that no more
+    // events pile up for it, and its thread is freed once the container gives up on the write.
+    void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : this.subscribers) {
+            long pendingSince = subscriber.pendingSince;
+            if (pendingSince != 0 && now - pendingSince > this.sendTimeoutNanos) {
+                logger.debug("Dropping session events subscriber stalled for more than {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(this.sendTimeoutNanos));
+                this.dropped.increment();
+                this.close(subscriber);
+            }
+        }
+    }
+
+    private void broadcast(Message message) {
+        for (Subscriber subscriber : this.subscribers) {
+            this.offer(subscriber, message);
+        }
+    }
+
+    private void offer(Subscriber subscriber, Message message) {
+        if (subscriber.closed) {
+            return;
+        }
+
+        if (!subscriber.queue.offer(message)) {
+            logger.debug("Dropping slow session events subscriber after {} pending events", this.bufferSize);
+            this.dropped.increment();
+            this.close(subscriber);
+            return;
+        }
+        this.schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            subscriber.pendingSince = System.nanoTime();
+            this.dispatcher.execute(() -> this.drain(subscriber));
+        }
+    }
+
+    // Only the subscriber's own drain task touches its emitter, and at most one runs at a time: a slow client blocks
+    // neither the writes nor the other subscribers.
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while (!subscriber.closed && (message = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(frame(message));
+                subscriber.pendingSince = System.nanoTime();
+                this.delivered.increment();
+            }
+            if (subscriber.closed && subscriber.completed.compareAndSet(false, true)) {
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client gone: the container will report the error too, forgetting the subscriber is enough
+            this.discard(subscriber);
+        } finally {
+            subscriber.pendingSince = 0;
+            subscriber.scheduled.set(false);
+        }
+
+        if (subscriber.closed ? !subscriber.completed.get() : !subscriber.queue.isEmpty()) {
+            this.schedule(subscriber);
+        }
+    }
+
+    // Closing is left to the drain task, the only one writing to the emitter
+    private void close(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        this.subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        this.schedule(subscriber);
+    }
+
+    // Connection already completed by the container: nothing to close
+    private void discard(Subscriber subscriber) {
+        subscriber.completed.set(true);
+        subscriber.closed = true;
+        this.subscribers.remove(subscriber);
+        subscriber.queue.clear();
+    }
+
+    private static SseEmitter.SseEventBuilder frame(Message message) {
+        if (message.name == null) {
+            return SseEmitter.event().comment(message.data);
+        }
+
+        return SseEmitter.event()
+                .id(Long.toString(message.id))
+                .name(message.name)
+                .data(message.data, MediaType.APPLICATION_JSON);
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Message> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        // System.nanoTime() of the last progress while a drain is scheduled or running, 0 otherwise
+        private volatile long pendingSince;
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private static final class Message {
+        private final String name;
+        private final long id;
+        private final String data;
+
+        private Message(String name, long id, String data) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    @lombok.Value
+    public static class Delta {
+        String type;
+        Long sessionId;
+        Long userId;
+        SessionDto session;
+    }
+
+    @lombok.Value
+    public static class Stats {
+        int subscribers;
+        long delivered;
+        long dropped;
+    }
+}
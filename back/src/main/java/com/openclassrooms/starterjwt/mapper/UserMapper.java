@@ -3,9 +3,15 @@ package com.openclassrooms.starterjwt.mapper;
 import com.openclassrooms.starterjwt.dto.UserDto;
 import com.openclassrooms.starterjwt.models.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.springframework.stereotype.Component;
 
 @Component
 @Mapper(componentModel = "spring")
 public interface UserMapper extends EntityMapper<UserDto, User> {
+
+    // Only set by account deletion, never from a DTO
+    @Override
+    @Mapping(target = "disabled", ignore = true)
+    User toEntity(UserDto dto);
 }
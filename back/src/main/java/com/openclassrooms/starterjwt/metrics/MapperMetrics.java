@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import com.openclassrooms.starterjwt.mapper.EntityMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Duration of the MapStruct mapper conversions (SessionMapper.toEntity loads the teacher and the participants),
+// per mapper and per method. Each EntityMapper bean is wrapped in a class proxy, injectable under its
+// abstract type; calls internal to the mapper (list to elements) are not counted a second time.
+@Component
+public class MapperMetrics implements BeanPostProcessor {
+    static final String METRIC = "mapper.conversions";
+
+    // Registry resolved on the first call: a BeanPostProcessor is created before it
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public MapperMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof EntityMapper)) {
+            return bean;
+        }
+        // Name of the written mapper (SessionMapper), not of the generated class
+        String mapper = ClassUtils.getUserClass(bean).getSimpleName().replaceFirst("Impl$", "");
+        Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+        MethodInterceptor timing = invocation -> {
+            Object[] arguments = invocation.getArguments();
+            if (arguments.length != 1) {
+                return invocation.proceed();
+            }
+            String method = invocation.getMethod().getName()
+                    + (arguments[0] instanceof Collection ? "List" : "");
+            Timer.Sample sample = Timer.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                sample.stop(timers.computeIfAbsent(method, key -> Timer.builder(METRIC)
+                        .description("MapStruct conversions")
+                        .tag("mapper", mapper)
+                        .tag("method", key)
+                        .register(this.meterRegistry.getObject())));
+            }
+        };
+
+        // Already proxied (traces): the timing is added to the existing proxy
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(timing);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(timing);
+        return proxyFactory.getProxy(ClassUtils.getUserClass(bean).getClassLoader());
+    }
+}
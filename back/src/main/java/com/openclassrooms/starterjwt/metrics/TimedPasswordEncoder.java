@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Password encoder that times each hash (sign-up, import) and each check (login):
+// BCrypt is slow on purpose, it is the main cost of POST /api/auth/login.
+public class TimedPasswordEncoder implements PasswordEncoder {
+    static final String METRIC = "password.encoder";
+
+    private final PasswordEncoder delegate;
+    private final Timer encode;
+    private final Timer matches;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.encode = timer(meterRegistry, "encode");
+        this.matches = timer(meterRegistry, "matches");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.encode.record(() -> this.delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return this.matches.record(() -> this.delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(METRIC)
+                .description("Password hashing and verification")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
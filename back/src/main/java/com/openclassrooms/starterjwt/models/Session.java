@@ -3,11 +3,16 @@ package com.openclassrooms.starterjwt.models;
 
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -26,8 +31,15 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 public class Session {
+    public static final int DEFAULT_DURATION_MINUTES = 60;
+    public static final int MAX_DURATION_MINUTES = 24 * 60;
+
+    // Identifiers reserved in blocks in ID_GENERATORS (see V2__id_generators.sql): unlike IDENTITY,
+    // Hibernate knows the id before the insert and can group the INSERTs into JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "sessions_id")
+    @TableGenerator(name = "sessions_id", table = "ID_GENERATORS", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "SESSIONS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -37,6 +49,11 @@ public class Session {
     @NotNull
     private Date date;
 
+    // Duration in minutes
+    @Min(1)
+    @Max(MAX_DURATION_MINUTES)
+    private Integer duration;
+
     @NotNull
     @Size(max = 2500)
     private String description;
@@ -45,13 +62,20 @@ public class Session {
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
+    // Participants of several sessions loaded together (IN on session_id) rather than one query per session
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "session-participants")
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
             inverseJoinColumns = @JoinColumn( name = "user_id" ) )
     private List<User> users;
 
+    // Incremented on every change, registrations included: serves as ETag and optimistic lock
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -2,6 +2,9 @@ package com.openclassrooms.starterjwt.models;
 
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,7 +15,13 @@ import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "TEACHERS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "teachers")
+@BatchSize(size = 50)
+@Table(name = "TEACHERS", indexes = {
+    // Database name search, read in (last_name, id) order
+    @Index(name = "idx_teachers_last_name", columnList = "last_name, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Accessors(chain = true)
@@ -23,7 +32,9 @@ import java.time.LocalDateTime;
 @ToString
 public class Teacher {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teachers_id")
+    @TableGenerator(name = "teachers_id", table = "ID_GENERATORS", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "TEACHERS", allocationSize = 50)
     private Long id;
 
     @NotBlank
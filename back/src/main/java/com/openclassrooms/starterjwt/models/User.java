@@ -2,6 +2,9 @@ package com.openclassrooms.starterjwt.models;
 
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,8 +15,15 @@ import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "USERS", uniqueConstraints = {
     @UniqueConstraint(columnNames = "email")
+}, indexes = {
+    // Keyset pagination of the directory: each sort index ends with the id
+    @Index(name = "idx_users_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_users_admin_created_at", columnList = "admin, created_at, id"),
+    @Index(name = "idx_users_last_name", columnList = "last_name, id")
 })
 @Data
 @Accessors(chain = true)
@@ -26,7 +36,9 @@ import java.time.LocalDateTime;
 @ToString
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+  @TableGenerator(name = "users_id", table = "ID_GENERATORS", pkColumnName = "name",
+          valueColumnName = "next_val", pkColumnValue = "USERS", allocationSize = 50)
   private Long id;
 
   @NonNull
@@ -51,6 +63,11 @@ public class User {
   @NonNull
   private boolean admin;
 
+  // Deleted account whose data is being purged: it can no longer authenticate
+  @ColumnDefault("false")
+  @Column(nullable = false)
+  private boolean disabled;
+
   @CreatedDate
   @Column(name = "created_at", updatable = false)
   private LocalDateTime createdAt;
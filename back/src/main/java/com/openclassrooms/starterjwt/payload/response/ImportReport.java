@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Report of a CSV import. Only the first maxErrors errors are detailed, so that the report of a large
+// invalid file stays bounded in size.
+@Getter
+public class ImportReport {
+  private long imported;
+  private long rejected;
+  private boolean errorsTruncated;
+  private final List<RowError> errors = new ArrayList<>();
+
+  @Getter(AccessLevel.NONE)
+  private final int maxErrors;
+
+  public ImportReport(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  public void imported(int count) {
+    this.imported += count;
+  }
+
+  public void reject(int line, String message) {
+    this.rejected++;
+    if (this.errors.size() < this.maxErrors) {
+      this.errors.add(new RowError(line, message));
+    } else {
+      this.errorsTruncated = true;
+    }
+  }
+
+  @lombok.Value
+  public static class RowError {
+    int line;
+    String message;
+  }
+}
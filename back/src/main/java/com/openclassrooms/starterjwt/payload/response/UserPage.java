@@ -0,0 +1,12 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import com.openclassrooms.starterjwt.repository.UserSummary;
+
+import java.util.List;
+
+// Page of the directory; nextCursor, to be passed back as is, is null on the last page.
+@lombok.Value
+public class UserPage {
+  List<UserSummary> items;
+  String nextCursor;
+}
@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.audit.AuditEntry;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// AUDIT_LOG table, through JDBC: batch inserts from the log's writer thread, reading of an entity's history
+@Repository
+public class AuditRepository {
+    private static final TypeReference<Map<String, Map<String, Object>>> CHANGES =
+            new TypeReference<Map<String, Map<String, Object>>>() {
+            };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public AuditRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public void insertAll(List<AuditEntry> entries) throws JsonProcessingException {
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (AuditEntry entry : entries) {
+            rows.add(new Object[]{Timestamp.valueOf(entry.getOccurredAt()), entry.getActor(), entry.getAction().name(),
+                    entry.getEntity().name(), entry.getEntityId(),
+                    this.objectMapper.writeValueAsString(entry.getChanges())});
+        }
+        this.jdbcTemplate.batchUpdate("INSERT INTO AUDIT_LOG (occurred_at, actor, action, entity, entity_id, changes) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    // The last limit entries of an entity, from the most recent to the oldest
+    public List<AuditEntry> findByEntity(Resource entity, Long entityId, int limit) {
+        return this.jdbcTemplate.query(
+                "SELECT occurred_at, actor, action, entity, entity_id, changes FROM AUDIT_LOG "
+                        + "WHERE entity = ? AND entity_id = ? ORDER BY id DESC LIMIT ?",
+                (rs, rowNum) -> new AuditEntry(
+                        rs.getTimestamp("occurred_at").toLocalDateTime(),
+                        rs.getString("actor"),
+                        ChangeType.valueOf(rs.getString("action")),
+                        Resource.valueOf(rs.getString("entity")),
+                        rs.getObject("entity_id", Long.class),
+                        this.changes(rs.getString("changes"))),
+                entity.name(), entityId, limit);
+    }
+
+    private Map<String, AuditEntry.Change> changes(String json) {
+        Map<String, AuditEntry.Change> changes = new LinkedHashMap<>();
+        if (json == null) {
+            return changes;
+        }
+        try {
+            this.objectMapper.readValue(json, CHANGES).forEach((field, change) ->
+                    changes.put(field, new AuditEntry.Change(change.get("from"), change.get("to"))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable audit changes: " + json, e);
+        }
+        return changes;
+    }
+}
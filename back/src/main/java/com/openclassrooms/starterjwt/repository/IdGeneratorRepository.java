@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Reserves identifiers in ID_GENERATORS for JDBC inserts (CSV import), on the same rows as the
+// Hibernate generators of the entities: the two cannot hand out the same id.
+@Repository
+public class IdGeneratorRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Returns the first id of a block of count consecutive ids. Short, separate transaction: the lock taken
+    // by the UPDATE on the row is released before the batch is inserted.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String table, int count) {
+        int updated = this.jdbcTemplate.update("UPDATE ID_GENERATORS SET next_val = next_val + ? WHERE name = ?",
+                count, table);
+        if (updated == 0) {
+            throw new IllegalStateException("No id generator for table " + table);
+        }
+
+        Long next = this.jdbcTemplate.queryForObject("SELECT next_val FROM ID_GENERATORS WHERE name = ?",
+                Long.class, table);
+        return next - count;
+    }
+}
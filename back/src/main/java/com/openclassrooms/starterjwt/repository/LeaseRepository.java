@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+// Leases in LEASES, for the jobs that must run on a single instance at a time. Expiry is computed on the database
+// clock, so instances need not agree on the time: the holder renews its lease while it works, and another instance
+// takes it over once it has expired.
+@Repository
+public class LeaseRepository {
+    public static final String OUTBOX_RELAY = "OUTBOX_RELAY";
+    private static final String USER_PURGE = "USER_PURGE:";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Identifies this instance as the holder of its leases
+    private final String owner;
+
+    @Autowired
+    public LeaseRepository(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, UUID.randomUUID().toString());
+    }
+
+    public LeaseRepository(JdbcTemplate jdbcTemplate, String owner) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = owner;
+    }
+
+    // Lease of the purge of one account
+    public static String userPurge(Long userId) {
+        return USER_PURGE + userId;
+    }
+
+    // Takes the lease, or renews it if this instance already holds it, for durationMillis. False while another
+    // instance holds it. A lease without a row yet is created by the first instance to ask for it.
+    public boolean acquire(String name, long durationMillis) {
+        long micros = durationMillis * 1000;
+        if (this.jdbcTemplate.update(
+                "UPDATE LEASES SET owner = ?, expires_at = TIMESTAMPADD(MICROSECOND, ?, LOCALTIMESTAMP(3)) "
+                        + "WHERE name = ? AND (owner IS NULL OR owner = ? OR expires_at < LOCALTIMESTAMP(3))",
+                this.owner, micros, name, this.owner) == 1) {
+            return true;
+        }
+
+        try {
+            return this.jdbcTemplate.update("INSERT INTO LEASES (name, owner, expires_at) "
+                    + "VALUES (?, ?, TIMESTAMPADD(MICROSECOND, ?, LOCALTIMESTAMP(3)))", name, this.owner, micros) == 1;
+        } catch (DuplicateKeyException e) {
+            // Held by another instance
+            return false;
+        }
+    }
+
+    // The row is deleted: leases taken per account do not pile up
+    public void release(String name) {
+        this.jdbcTemplate.update("DELETE FROM LEASES WHERE name = ? AND owner = ?", name, this.owner);
+    }
+}
@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.events.OutboxMessage;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// OUTBOX table, through JDBC: rows are written in the current transaction (that of the change) and read
+// then deleted by the relay, outside any transaction.
+@Repository
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(ResourceChangedEvent event) {
+        this.appendAll(Collections.singletonList(event));
+    }
+
+    public void appendAll(List<ResourceChangedEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        this.jdbcTemplate.batchUpdate(
+                "INSERT INTO OUTBOX (resource, type, aggregate_id, user_id, created_at) VALUES (?, ?, ?, ?, ?)",
+                events.stream()
+                        .map(event -> new Object[]{event.getResource().name(), event.getType().name(), event.getId(),
+                                event.getUserId(), now})
+                        .collect(Collectors.toList()));
+    }
+
+    // The oldest pending events, in delivery order
+    public List<OutboxMessage> findNext(int limit) {
+        return this.jdbcTemplate.query(
+                "SELECT id, resource, type, aggregate_id, user_id, created_at FROM OUTBOX ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxMessage(
+                        rs.getLong("id"),
+                        Resource.valueOf(rs.getString("resource")),
+                        ChangeType.valueOf(rs.getString("type")),
+                        rs.getLong("aggregate_id"),
+                        rs.getObject("user_id", Long.class),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                limit);
+    }
+
+    // By ids and not "id <= last delivered": an older transaction can commit its rows afterwards
+    public int delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return this.jdbcTemplate.update("DELETE FROM OUTBOX WHERE id IN (" + in + ")", ids.toArray());
+    }
+
+    // Number of pending events and date of the oldest (null if the table is empty)
+    public Pending pending() {
+        Map<String, Object> row = this.jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM OUTBOX");
+        Timestamp oldest = (Timestamp) row.get("oldest");
+        return new Pending(((Number) row.get("pending")).longValue(),
+                oldest != null ? oldest.toLocalDateTime() : null);
+    }
+
+    @lombok.Value
+    public static class Pending {
+        long count;
+        LocalDateTime oldest;
+    }
+}
@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import io.r2dbc.spi.Row;
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Non-blocking reads (reactive profile): rows are emitted at the pace of the client's demand, without
+// going through Hibernate or its cache. Returns the DTOs directly, in the same format as the JPA reads.
+@Repository
+@Profile("reactive")
+public class ReactiveReadRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<TeacherDto> findAllTeachers() {
+        return this.databaseClient
+                .sql("SELECT id, last_name, first_name, created_at, updated_at FROM TEACHERS ORDER BY id")
+                .map((row, metadata) -> new TeacherDto(
+                        row.get("id", Long.class),
+                        row.get("last_name", String.class),
+                        row.get("first_name", String.class),
+                        row.get("created_at", LocalDateTime.class),
+                        row.get("updated_at", LocalDateTime.class)))
+                .all();
+    }
+
+    // One row per participant, sorted by session: consecutive rows of the same session are grouped
+    // into one DTO as soon as the next one starts, without loading the whole table.
+    public Flux<SessionDto> findAllSessions() {
+        return this.databaseClient
+                .sql("SELECT s.id, s.name, s.description, s.date, s.duration, s.teacher_id, s.version, "
+                        + "s.created_at, s.updated_at, p.user_id "
+                        + "FROM SESSIONS s LEFT JOIN PARTICIPATE p ON p.session_id = s.id "
+                        + "ORDER BY s.id, p.user_id")
+                .map((row, metadata) -> SessionRow.of(row))
+                .all()
+                .bufferUntilChanged(row -> row.getDto().getId())
+                .map(ReactiveReadRepository::toDto);
+    }
+
+    private static SessionDto toDto(List<SessionRow> rows) {
+        SessionDto sessionDto = rows.get(0).getDto();
+        sessionDto.setUsers(rows.stream()
+                .map(SessionRow::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        return sessionDto;
+    }
+
+    @Value
+    static class SessionRow {
+        SessionDto dto;
+        Long userId;
+
+        static SessionRow of(Row row) {
+            LocalDateTime date = row.get("date", LocalDateTime.class);
+            SessionDto sessionDto = new SessionDto(
+                    row.get("id", Long.class),
+                    row.get("name", String.class),
+                    date != null ? Timestamp.valueOf(date) : null,
+                    row.get("duration", Integer.class),
+                    row.get("teacher_id", Long.class),
+                    row.get("description", String.class),
+                    null,
+                    row.get("version", Long.class),
+                    row.get("created_at", LocalDateTime.class),
+                    row.get("updated_at", LocalDateTime.class));
+            return new SessionRow(sessionDto, row.get("user_id", Long.class));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// Versions in RESOURCE_VERSIONS, shared by every instance
+@Repository
+public class ResourceVersionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ResourceVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Called in the writing transaction: the row stays locked until it commits
+    public void increment(Resource resource) {
+        this.jdbcTemplate.update("UPDATE RESOURCE_VERSIONS SET version = version + 1 WHERE resource = ?",
+                resource.name());
+    }
+
+    // Read-only, so that it is routed like the reads of the data it describes: a version read on the replica is
+    // never newer than the rows then read from it.
+    @Transactional(readOnly = true)
+    public long find(Resource resource) {
+        Long version = this.jdbcTemplate.queryForObject("SELECT version FROM RESOURCE_VERSIONS WHERE resource = ?",
+                Long.class, resource.name());
+        return version != null ? version : 0;
+    }
+}
@@ -1,9 +1,41 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    // Sessions after the given id, in id order, without the count query of a Page
+    @Query("select s from Session s where s.id > :after order by s.id")
+    List<Session> findAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select s.version from Session s where s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select s.id as id, s.teacher.id as teacherId, s.date as date, s.duration as duration "
+            + "from Session s where s.id = :id")
+    Optional<SessionSlot> findSlotById(@Param("id") Long id);
+
+    @Query("select s.id as id, s.teacher.id as teacherId, s.date as date, s.duration as duration "
+            + "from Session s where s.teacher.id = :teacherId and s.date is not null")
+    List<SessionSlot> findSlotsByTeacherId(@Param("teacherId") Long teacherId);
+
+    // Sessions of the teacher starting within ]from, to[. A locking read (FOR UPDATE): under REPEATABLE READ it sees
+    // the sessions committed up to now, not the snapshot taken by an earlier read of the transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s.id as id, s.teacher.id as teacherId, s.date as date, s.duration as duration "
+            + "from Session s where s.teacher.id = :teacherId and s.date > :from and s.date < :to")
+    List<SessionSlot> findSlotsByTeacherIdStartingBetween(@Param("teacherId") Long teacherId,
+                                                         @Param("from") Date from,
+                                                         @Param("to") Date to);
 }
@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface SessionRepositoryCustom {
+    Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "id", "name", "date", "duration", "description", "teacher_id", "users", "version", "createdAt", "updatedAt")));
+
+    // Selects only the requested columns; "id" is always returned.
+    List<Map<String, Object>> findProjected(Set<String> fields, boolean expandTeacher, Long id);
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class SessionRepositoryCustomImpl implements SessionRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findProjected(Set<String> fields, boolean expandTeacher, Long id) {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Session> session = query.from(Session.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(session.get("id").alias("id"));
+        for (String field : fields) {
+            switch (field) {
+                case "name":
+                case "date":
+                case "duration":
+                case "description":
+                case "version":
+                case "createdAt":
+                case "updatedAt":
+                    selections.add(session.get(field).alias(field));
+                    break;
+                case "teacher_id":
+                    selections.add(session.get("teacher").get("id").alias("teacher_id"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (expandTeacher) {
+            Join<Session, Teacher> teacher = session.join("teacher", JoinType.LEFT);
+            selections.add(teacher.get("id").alias("teacherId"));
+            selections.add(teacher.get("firstName").alias("teacherFirstName"));
+            selections.add(teacher.get("lastName").alias("teacherLastName"));
+        }
+
+        query.multiselect(selections);
+        if (id != null) {
+            query.where(cb.equal(session.get("id"), id));
+        }
+        query.orderBy(cb.asc(session.get("id")));
+
+        List<Tuple> tuples = this.entityManager.createQuery(query).getResultList();
+        Map<Long, List<Long>> users = fields.contains("users") && !tuples.isEmpty()
+                ? this.findParticipantIds(id)
+                : Collections.emptyMap();
+
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            Long sessionId = tuple.get("id", Long.class);
+            row.put("id", sessionId);
+            for (String field : fields) {
+                if ("users".equals(field)) {
+                    row.put("users", users.getOrDefault(sessionId, Collections.emptyList()));
+                } else if (!"id".equals(field)) {
+                    row.put(field, tuple.get(field));
+                }
+            }
+            if (expandTeacher) {
+                row.put("teacher", this.toTeacher(tuple));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Map<String, Object> toTeacher(Tuple tuple) {
+        if (tuple.get("teacherId") == null) {
+            return null;
+        }
+
+        Map<String, Object> teacher = new LinkedHashMap<>();
+        teacher.put("id", tuple.get("teacherId"));
+        teacher.put("firstName", tuple.get("teacherFirstName"));
+        teacher.put("lastName", tuple.get("teacherLastName"));
+        return teacher;
+    }
+
+    private Map<Long, List<Long>> findParticipantIds(Long id) {
+        String jpql = "select s.id, u.id from Session s join s.users u"
+                + (id != null ? " where s.id = :id" : "")
+                + " order by s.id";
+        TypedQuery<Object[]> query = this.entityManager.createQuery(jpql, Object[].class);
+        if (id != null) {
+            query.setParameter("id", id);
+        }
+
+        Map<Long, List<Long>> participants = new HashMap<>();
+        for (Object[] pair : query.getResultList()) {
+            participants.computeIfAbsent((Long) pair[0], key -> new ArrayList<>()).add((Long) pair[1]);
+        }
+        return participants;
+    }
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.Date;
+
+// Slot of a session: just what is needed to detect a teacher's overlaps.
+public interface SessionSlot {
+    Long getId();
+
+    Long getTeacherId();
+
+    Date getDate();
+
+    Integer getDuration();
+}
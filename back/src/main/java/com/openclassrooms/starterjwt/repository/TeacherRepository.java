@@ -1,9 +1,27 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TeacherRepository  extends JpaRepository<Teacher, Long> {
+    // Search on the start of the first or last name, when the in-memory index is disabled. Sorted on (last_name, id),
+    // the order of idx_teachers_last_name, so that pages are stable and read along the index.
+    @Query("select t from Teacher t where lower(t.firstName) like :prefix or lower(t.lastName) like :prefix "
+            + "order by t.lastName, t.id")
+    List<Teacher> findByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    // Locks the teacher's row until the end of the current transaction (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Teacher t where t.id = :id")
+    Optional<Teacher> lockById(@Param("id") Long id);
 }
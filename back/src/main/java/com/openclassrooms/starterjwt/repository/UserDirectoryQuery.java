@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.repository;
+
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Page of the directory: filters, sort, and position of the last row already read (afterId / afterValue) to
+// resume right after it without OFFSET.
+@lombok.Value
+@Builder
+public class UserDirectoryQuery {
+    Boolean admin;
+    // Creation bounds: createdFrom included, createdTo excluded
+    LocalDateTime createdFrom;
+    LocalDateTime createdTo;
+    @Builder.Default
+    String sort = "id";
+    boolean descending;
+    Long afterId;
+    // Value of the sort field on the last row read, null if it had none
+    Object afterValue;
+    int limit;
+}
@@ -1,15 +1,150 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.starterjwt.models.User;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  // Emails already taken among those given, in one query (batch import)
+  @Query("select u.email from User u where u.email in :emails")
+  List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  // Search on the start of the first name, last name or email, when the in-memory index is disabled. Sorted on
+  // (last_name, id), the order of idx_users_last_name, so that pages are stable and read along the index.
+  @Query("select u from User u where u.disabled = false and (lower(u.firstName) like :prefix "
+          + "or lower(u.lastName) like :prefix or lower(u.email) like :prefix) order by u.lastName, u.id")
+  List<User> findByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+  // Deleted accounts whose purge has not finished
+  @Query("select u.id from User u where u.disabled = true")
+  List<Long> findDisabledIds();
+
+  // Directory of active accounts, sorted on (field, id) and paged by key: one declared query per sort, each
+  // resuming strictly after the (afterValue, afterId) of the last row read. The email is unique and sorts alone,
+  // along uk_users_email. Only created_at can be NULL; MySQL and H2 sort NULLs first ascending and last descending,
+  // and the createdAt predicates follow that order.
+  String DIRECTORY = "select u.id as id, u.email as email, u.firstName as firstName, u.lastName as lastName, "
+          + "u.admin as admin, u.createdAt as createdAt, u.updatedAt as updatedAt from User u "
+          + "where u.disabled = false and (:admin is null or u.admin = :admin) "
+          + "and (:createdFrom is null or u.createdAt >= :createdFrom) "
+          + "and (:createdTo is null or u.createdAt < :createdTo) ";
+
+  default List<UserSummary> findDirectory(UserDirectoryQuery query) {
+    Boolean admin = query.getAdmin();
+    LocalDateTime from = query.getCreatedFrom();
+    LocalDateTime to = query.getCreatedTo();
+    Long afterId = query.getAfterId();
+    Pageable page = PageRequest.of(0, query.getLimit());
+    boolean descending = query.isDescending();
+
+    switch (query.getSort()) {
+      case "createdAt":
+        LocalDateTime createdAt = (LocalDateTime) query.getAfterValue();
+        return descending
+                ? this.findDirectoryOrderByCreatedAtDesc(admin, from, to, afterId, createdAt, page)
+                : this.findDirectoryOrderByCreatedAt(admin, from, to, afterId, createdAt, page);
+      case "email":
+        String email = (String) query.getAfterValue();
+        return descending
+                ? this.findDirectoryOrderByEmailDesc(admin, from, to, afterId, email, page)
+                : this.findDirectoryOrderByEmail(admin, from, to, afterId, email, page);
+      case "lastName":
+        String lastName = (String) query.getAfterValue();
+        return descending
+                ? this.findDirectoryOrderByLastNameDesc(admin, from, to, afterId, lastName, page)
+                : this.findDirectoryOrderByLastName(admin, from, to, afterId, lastName, page);
+      default:
+        return descending
+                ? this.findDirectoryOrderByIdDesc(admin, from, to, afterId, page)
+                : this.findDirectoryOrderById(admin, from, to, afterId, page);
+    }
+  }
+
+  @Query(DIRECTORY + "and (:afterId is null or u.id > :afterId) order by u.id")
+  List<UserSummary> findDirectoryOrderById(@Param("admin") Boolean admin,
+                                           @Param("createdFrom") LocalDateTime createdFrom,
+                                           @Param("createdTo") LocalDateTime createdTo,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+  @Query(DIRECTORY + "and (:afterId is null or u.id < :afterId) order by u.id desc")
+  List<UserSummary> findDirectoryOrderByIdDesc(@Param("admin") Boolean admin,
+                                               @Param("createdFrom") LocalDateTime createdFrom,
+                                               @Param("createdTo") LocalDateTime createdTo,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+  @Query(DIRECTORY + "and (:afterId is null or u.email > :afterValue) order by u.email")
+  List<UserSummary> findDirectoryOrderByEmail(@Param("admin") Boolean admin,
+                                              @Param("createdFrom") LocalDateTime createdFrom,
+                                              @Param("createdTo") LocalDateTime createdTo,
+                                              @Param("afterId") Long afterId,
+                                              @Param("afterValue") String afterValue,
+                                              Pageable pageable);
+
+  @Query(DIRECTORY + "and (:afterId is null or u.email < :afterValue) order by u.email desc")
+  List<UserSummary> findDirectoryOrderByEmailDesc(@Param("admin") Boolean admin,
+                                                  @Param("createdFrom") LocalDateTime createdFrom,
+                                                  @Param("createdTo") LocalDateTime createdTo,
+                                                  @Param("afterId") Long afterId,
+                                                  @Param("afterValue") String afterValue,
+                                                  Pageable pageable);
+
+  @Query(DIRECTORY + "and (:afterId is null or u.lastName > :afterValue "
+          + "or (u.lastName = :afterValue and u.id > :afterId)) order by u.lastName, u.id")
+  List<UserSummary> findDirectoryOrderByLastName(@Param("admin") Boolean admin,
+                                                 @Param("createdFrom") LocalDateTime createdFrom,
+                                                 @Param("createdTo") LocalDateTime createdTo,
+                                                 @Param("afterId") Long afterId,
+                                                 @Param("afterValue") String afterValue,
+                                                 Pageable pageable);
+
+  @Query(DIRECTORY + "and (:afterId is null or u.lastName < :afterValue "
+          + "or (u.lastName = :afterValue and u.id < :afterId)) order by u.lastName desc, u.id desc")
+  List<UserSummary> findDirectoryOrderByLastNameDesc(@Param("admin") Boolean admin,
+                                                     @Param("createdFrom") LocalDateTime createdFrom,
+                                                     @Param("createdTo") LocalDateTime createdTo,
+                                                     @Param("afterId") Long afterId,
+                                                     @Param("afterValue") String afterValue,
+                                                     Pageable pageable);
+
+  // After a NULL date come the other NULLs with a greater id, then every dated row
+  @Query(DIRECTORY + "and (:afterId is null "
+          + "or (:afterValue is null and (u.createdAt is not null or u.id > :afterId)) "
+          + "or u.createdAt > :afterValue or (u.createdAt = :afterValue and u.id > :afterId)) "
+          + "order by u.createdAt, u.id")
+  List<UserSummary> findDirectoryOrderByCreatedAt(@Param("admin") Boolean admin,
+                                                  @Param("createdFrom") LocalDateTime createdFrom,
+                                                  @Param("createdTo") LocalDateTime createdTo,
+                                                  @Param("afterId") Long afterId,
+                                                  @Param("afterValue") LocalDateTime afterValue,
+                                                  Pageable pageable);
+
+  // After a dated row come the earlier dates, then every NULL; after a NULL, only NULLs with a smaller id
+  @Query(DIRECTORY + "and (:afterId is null "
+          + "or (:afterValue is null and u.createdAt is null and u.id < :afterId) "
+          + "or u.createdAt < :afterValue or (u.createdAt = :afterValue and u.id < :afterId) "
+          + "or (:afterValue is not null and u.createdAt is null)) "
+          + "order by u.createdAt desc, u.id desc")
+  List<UserSummary> findDirectoryOrderByCreatedAtDesc(@Param("admin") Boolean admin,
+                                                      @Param("createdFrom") LocalDateTime createdFrom,
+                                                      @Param("createdTo") LocalDateTime createdTo,
+                                                      @Param("afterId") Long afterId,
+                                                      @Param("afterValue") LocalDateTime afterValue,
+                                                      Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.User;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+    Set<String> SORTS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "id", "createdAt", "email", "lastName")));
+
+    // Accounts of the given ids in the same order, null for an unknown id: the accounts already in the second-level
+    // cache are not read again, the others are read in one IN query
+    List<User> findAllByIdInOrder(List<Long> ids);
+}
@@ -0,0 +1,40 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.User;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> findAllByIdInOrder(List<Long> ids) {
+        Cache cache = this.entityManager.getEntityManagerFactory().getCache();
+        Map<Long, User> users = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            if (cache.contains(User.class, id)) {
+                users.put(id, this.entityManager.find(User.class, id));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            this.entityManager.createQuery("select u from User u where u.id in :ids", User.class)
+                    .setParameter("ids", missing)
+                    .getResultList()
+                    .forEach(user -> users.put(user.getId(), user));
+        }
+        return ids.stream().map(users::get).collect(Collectors.toList());
+    }
+}
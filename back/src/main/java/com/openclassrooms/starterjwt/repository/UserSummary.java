@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+
+// Row of the member directory: everything but the password hash, which is never selected.
+public interface UserSummary {
+    Long getId();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getLastName();
+
+    boolean isAdmin();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
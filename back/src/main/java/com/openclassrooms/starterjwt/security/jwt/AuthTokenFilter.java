@@ -19,6 +19,12 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
@@ -26,33 +32,67 @@ public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private Tracer tracer;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
-    try {
+    // Span of the authentication alone: token check and account lookup, not the rest of the filters
+    Span span = tracer.spanBuilder("AuthTokenFilter").startSpan();
+    try (Scope ignored = span.makeCurrent()) {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        UsernamePasswordAuthenticationToken authentication =
-            new UsernamePasswordAuthenticationToken(
-                userDetails,
-                null,
-                userDetails.getAuthorities());
-        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+      UserDetails userDetails = jwt != null ? verify(jwt) : null;
+      if (userDetails != null) {
+        // A deleted account stays in the database during its purge: its still valid tokens are refused
+        if (userDetails.isEnabled()) {
+          UsernamePasswordAuthenticationToken authentication =
+              new UsernamePasswordAuthenticationToken(
+                  userDetails,
+                  null,
+                  userDetails.getAuthorities());
+          authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+          SecurityContextHolder.getContext().setAuthentication(authentication);
+        } else {
+          logger.debug("Rejecting token of disabled account {}", userDetails.getUsername());
+        }
       }
     } catch (Exception e) {
+      span.recordException(e);
       logger.error("Cannot set user authentication: {}", e);
+    } finally {
+      span.setAttribute("authenticated", SecurityContextHolder.getContext().getAuthentication() != null);
+      span.end();
     }
 
     filterChain.doFilter(request, response);
   }
 
+  // Signature check and account lookup, timed together per outcome (jwt.verification); null if the token is refused
+  private UserDetails verify(String jwt) {
+    Timer.Sample sample = Timer.start();
+    String outcome = "invalid";
+    try {
+      if (!jwtUtils.validateJwtToken(jwt)) {
+        return null;
+      }
+      UserDetails userDetails = userDetailsService.loadUserByUsername(jwtUtils.getUserNameFromJwtToken(jwt));
+      outcome = userDetails.isEnabled() ? "valid" : "disabled";
+      return userDetails;
+    } finally {
+      sample.stop(Timer.builder("jwt.verification")
+          .description("JWT signature verification and account lookup in AuthTokenFilter")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+    }
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -29,6 +29,8 @@ public class UserDetailsImpl implements UserDetails {
 
   private Boolean admin;
 
+  private boolean disabled;
+
   @JsonIgnore
   private String password;  
   
@@ -53,7 +55,7 @@ public class UserDetailsImpl implements UserDetails {
 
   @Override
   public boolean isEnabled() {
-    return true;
+    return !disabled;
   }
 
   @Override
@@ -29,6 +29,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
+            .disabled(user.isDisabled())
             .password(user.getPassword())
             .build();
   }
@@ -0,0 +1,173 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// CSV reader (RFC 4180), record by record: only the fields of the current line are in memory.
+// Quoted fields may hold separators, doubled quotes and line breaks.
+// Not synchronized: one instance per stream.
+final class CsvReader {
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final int maxRecordChars;
+
+    private int line = 1;
+    private int pushedBack = EOF - 1;
+    private boolean started;
+    private boolean finished;
+
+    CsvReader(Reader reader, int maxRecordChars) {
+        this.reader = reader;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    // Returns the next record, or null at the end of the stream. Blank lines are skipped.
+    Record next() throws IOException {
+        while (!this.finished) {
+            Record record = this.read();
+            if (record != null) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private Record read() throws IOException {
+        int startLine = this.line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int chars = 0;
+        boolean quoted = false;
+        boolean fieldStarted = false;
+
+        while (true) {
+            int c = this.nextChar();
+            if (c != EOF && ++chars > this.maxRecordChars) {
+                this.skipLine(c);
+                return Record.error(startLine, "Row exceeds " + this.maxRecordChars + " characters");
+            }
+
+            if (quoted) {
+                if (c == EOF) {
+                    this.finished = true;
+                    return Record.error(startLine, "Unterminated quoted field");
+                }
+                if (c == '"') {
+                    int following = this.nextChar();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        this.pushBack(following);
+                    }
+                } else {
+                    if (c == '\n') {
+                        this.line++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == EOF || c == '\n' || c == '\r') {
+                if (c == EOF) {
+                    this.finished = true;
+                } else {
+                    this.endOfLine(c);
+                }
+                if (!fieldStarted && fields.isEmpty() && field.length() == 0) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return new Record(startLine, fields, null);
+            }
+
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStarted = true;
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                fieldStarted = true;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+        }
+    }
+
+    // Drops the rest of a line that is too long, ignoring quotes
+    private void skipLine(int c) throws IOException {
+        while (c != EOF && c != '\n' && c != '\r') {
+            c = this.nextChar();
+        }
+        if (c == EOF) {
+            this.finished = true;
+        } else {
+            this.endOfLine(c);
+        }
+    }
+
+    private void endOfLine(int c) throws IOException {
+        this.line++;
+        if (c == '\r') {
+            int following = this.nextChar();
+            if (following != '\n') {
+                this.pushBack(following);
+            }
+        }
+    }
+
+    private int nextChar() throws IOException {
+        if (this.pushedBack != EOF - 1) {
+            int c = this.pushedBack;
+            this.pushedBack = EOF - 1;
+            return c;
+        }
+
+        int c = this.reader.read();
+        if (!this.started) {
+            this.started = true;
+            // Byte order mark that spreadsheets put at the start of UTF-8 exports
+            if (c == '\uFEFF') {
+                c = this.reader.read();
+            }
+        }
+        return c;
+    }
+
+    private void pushBack(int c) {
+        this.pushedBack = c;
+    }
+
+    static final class Record {
+        private final int line;
+        private final List<String> fields;
+        private final String error;
+
+        private Record(int line, List<String> fields, String error) {
+            this.line = line;
+            this.fields = fields;
+            this.error = error;
+        }
+
+        private static Record error(int line, String error) {
+            return new Record(line, null, error);
+        }
+
+        int getLine() {
+            return this.line;
+        }
+
+        List<String> getFields() {
+            return this.fields;
+        }
+
+        String getError() {
+            return this.error;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.repository.IdGeneratorRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.opentelemetry.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Streaming CSV import: rows are validated as they are read, then inserted in JDBC batches, each batch in its
+// own transaction. Only the current batch is in memory, whatever the size of the file.
+// Rejected rows do not stop the import, they are listed in the report with their line number.
+// The ids of each batch are reserved in ID_GENERATORS, like those of the entities created by Hibernate.
+@Service
+public class ImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
+    static final int MAX_RECORD_CHARS = 8192;
+
+    private static final String EMAIL_TAKEN = "Email is already taken";
+
+    private static final List<String> TEACHER_COLUMNS = Arrays.asList("firstname", "lastname");
+    private static final List<String> USER_COLUMNS = Arrays.asList("email", "firstname", "lastname", "password");
+
+    private static final String INSERT_TEACHER =
+            "INSERT INTO TEACHERS (id, first_name, last_name, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_USER =
+            "INSERT INTO USERS (id, email, first_name, last_name, password, admin, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final IdGeneratorRepository idGeneratorRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final ExecutorService hashPool;
+
+    @Autowired
+    public ImportService(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         UserRepository userRepository,
+                         IdGeneratorRepository idGeneratorRepository,
+                         PasswordEncoder passwordEncoder,
+                         Validator validator,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${oc.app.import.chunkSize:500}") int chunkSize,
+                         @Value("${oc.app.import.maxErrors:1000}") int maxErrors,
+                         @Value("${oc.app.import.hashThreads:4}") int hashThreads) {
+        this(jdbcTemplate, transactionManager, userRepository, idGeneratorRepository, passwordEncoder, validator, eventPublisher,
+                chunkSize, maxErrors,
+                Context.taskWrapping(Executors.newFixedThreadPool(hashThreads, daemon("csv-import-hash-"))));
+    }
+
+    ImportService(JdbcTemplate jdbcTemplate,
+                  PlatformTransactionManager transactionManager,
+                  UserRepository userRepository,
+                  IdGeneratorRepository idGeneratorRepository,
+                  PasswordEncoder passwordEncoder,
+                  Validator validator,
+                  ApplicationEventPublisher eventPublisher,
+                  int chunkSize,
+                  int maxErrors,
+                  ExecutorService hashPool) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Each batch is committed independently of the caller
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.userRepository = userRepository;
+        this.idGeneratorRepository = idGeneratorRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.hashPool = hashPool;
+    }
+
+    // Expected columns: first_name, last_name
+    public ImportReport importTeachers(InputStream csv) throws IOException {
+        ImportReport report = new ImportReport(this.maxErrors);
+        List<Row<TeacherDto>> chunk = new ArrayList<>(this.chunkSize);
+
+        this.read(csv, TEACHER_COLUMNS, report, (line, columns) -> {
+            TeacherDto teacher = new TeacherDto();
+            teacher.setFirstName(columns.get("firstname"));
+            teacher.setLastName(columns.get("lastname"));
+
+            if (this.isValid(teacher, line, report)) {
+                chunk.add(new Row<>(line, teacher));
+                if (chunk.size() == this.chunkSize) {
+                    this.writeTeachers(chunk, report);
+                }
+            }
+        });
+        this.writeTeachers(chunk, report);
+
+        return report;
+    }
+
+    // Expected columns: email, first_name, last_name, password and, optionally, admin
+    public ImportReport importUsers(InputStream csv) throws IOException {
+        ImportReport report = new ImportReport(this.maxErrors);
+        List<Row<UserRow>> chunk = new ArrayList<>(this.chunkSize);
+
+        this.read(csv, USER_COLUMNS, report, (line, columns) -> {
+            SignupRequest user = new SignupRequest();
+            user.setEmail(columns.get("email"));
+            user.setFirstName(columns.get("firstname"));
+            user.setLastName(columns.get("lastname"));
+            user.setPassword(columns.get("password"));
+
+            String admin = columns.get("admin");
+            if (admin != null && !"true".equalsIgnoreCase(admin) && !"false".equalsIgnoreCase(admin)) {
+                report.reject(line, "admin must be true or false");
+                return;
+            }
+
+            if (this.isValid(user, line, report)) {
+                chunk.add(new Row<>(line, new UserRow(user, Boolean.parseBoolean(admin))));
+                if (chunk.size() == this.chunkSize) {
+                    this.writeUsers(chunk, report);
+                }
+            }
+        });
+        this.writeUsers(chunk, report);
+
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.hashPool.shutdown();
+    }
+
+    private void read(InputStream csv, List<String> requiredColumns, ImportReport report, RowHandler handler)
+            throws IOException {
+        CsvReader reader = new CsvReader(
+                new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)), MAX_RECORD_CHARS);
+
+        CsvReader.Record first = reader.next();
+        if (first == null || first.getError() != null) {
+            throw new BadRequestException();
+        }
+        Header header = new Header(first.getFields());
+        if (!header.hasAll(requiredColumns)) {
+            throw new BadRequestException();
+        }
+
+        CsvReader.Record record;
+        while ((record = reader.next()) != null) {
+            if (record.getError() != null) {
+                report.reject(record.getLine(), record.getError());
+            } else if (record.getFields().size() != header.size()) {
+                report.reject(record.getLine(),
+                        "Expected " + header.size() + " columns, found " + record.getFields().size());
+            } else {
+                handler.handle(record.getLine(), header.bind(record.getFields()));
+            }
+        }
+    }
+
+    private boolean isValid(Object row, int line, ImportReport report) {
+        Set<? extends ConstraintViolation<?>> violations = this.validator.validate(row);
+        if (violations.isEmpty()) {
+            return true;
+        }
+
+        report.reject(line, violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; ")));
+        return false;
+    }
+
+    private void writeTeachers(List<Row<TeacherDto>> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        long id = this.idGeneratorRepository.reserve("TEACHERS", chunk.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(chunk.size());
+        for (Row<TeacherDto> row : chunk) {
+            batch.add(new Object[]{id++, row.value.getFirstName(), row.value.getLastName(), now, now});
+        }
+
+        this.insert(Resource.TEACHER, INSERT_TEACHER, batch, chunk, report);
+        chunk.clear();
+    }
+
+    private void writeUsers(List<Row<UserRow>> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        // One query per batch for the emails already in the database; earlier batches being committed, it also
+        // covers duplicates from one batch of the file to the next. Emails are compared lower-cased, as
+        // uk_users_email does under MySQL's case-insensitive collation: "Anne@x.com" and "anne@x.com" are one account.
+        Set<String> taken = this.userRepository.findExistingEmails(
+                        chunk.stream().map(row -> emailKey(row.value.request)).collect(Collectors.toList()))
+                .stream()
+                .map(email -> email.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toCollection(HashSet::new));
+        List<Row<UserRow>> accepted = new ArrayList<>(chunk.size());
+        for (Row<UserRow> row : chunk) {
+            if (taken.add(emailKey(row.value.request))) {
+                accepted.add(row);
+            } else {
+                report.reject(row.line, EMAIL_TAKEN);
+            }
+        }
+
+        // BCrypt is slow on purpose: the passwords of the batch are hashed in parallel on the bounded pool
+        List<Future<String>> hashes = new ArrayList<>(accepted.size());
+        for (Row<UserRow> row : accepted) {
+            String password = row.value.request.getPassword();
+            hashes.add(this.hashPool.submit(() -> this.passwordEncoder.encode(password)));
+        }
+
+        long id = accepted.isEmpty() ? 0 : this.idGeneratorRepository.reserve("USERS", accepted.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            SignupRequest user = accepted.get(i).value.request;
+            batch.add(new Object[]{id + i, user.getEmail(), user.getFirstName(), user.getLastName(), hash(hashes.get(i)),
+                    accepted.get(i).value.admin, now, now});
+        }
+
+        this.insert(Resource.USER, INSERT_USER, batch, accepted, report);
+        chunk.clear();
+    }
+
+    // A batch refused by the database (a constraint violated in the meantime...) is retried row by row, each row
+    // in its own transaction, so that only the faulty rows are rejected, each with its own reason.
+    private void insert(Resource resource, String sql, List<Object[]> batch, List<? extends Row<?>> rows,
+                        ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int imported;
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.batchUpdate(sql, batch));
+            imported = batch.size();
+        } catch (DataAccessException e) {
+            logger.warn("Import batch of {} rows rejected, retrying row by row: {}", batch.size(), e.getMessage());
+            imported = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Object[] args = batch.get(i);
+                Row<?> row = rows.get(i);
+                try {
+                    this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.update(sql, args));
+                    imported++;
+                } catch (DataAccessException rowError) {
+                    report.reject(row.line, reason(resource, rowError));
+                }
+            }
+        }
+
+        if (imported > 0) {
+            report.imported(imported);
+            this.eventPublisher.publishEvent(new ResourceChangedEvent(resource, ChangeType.CREATED, null));
+        }
+    }
+
+    // Ids are reserved, so the only key a row can collide on is the user's email
+    private static String reason(Resource resource, DataAccessException e) {
+        if (e instanceof DuplicateKeyException) {
+            return resource == Resource.USER ? EMAIL_TAKEN : "Already exists";
+        }
+        if (e instanceof DataIntegrityViolationException) {
+            return "Violates a database constraint";
+        }
+        return "Rejected by the database";
+    }
+
+    private static String emailKey(SignupRequest user) {
+        return user.getEmail().toLowerCase(Locale.ROOT);
+    }
+
+    private static String hash(Future<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Column names without case or underscores: "first_name", "firstName" and "FIRST_NAME" are the same
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private interface RowHandler {
+        void handle(int line, Map<String, String> columns);
+    }
+
+    private static final class Header {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final int size;
+
+        private Header(List<String> names) {
+            for (int i = 0; i < names.size(); i++) {
+                this.indexes.putIfAbsent(normalize(names.get(i)), i);
+            }
+            this.size = names.size();
+        }
+
+        private boolean hasAll(List<String> columns) {
+            return this.indexes.keySet().containsAll(columns);
+        }
+
+        private int size() {
+            return this.size;
+        }
+
+        // Trimmed values, an empty cell being null
+        private Map<String, String> bind(List<String> fields) {
+            Map<String, String> columns = new HashMap<>();
+            this.indexes.forEach((name, index) -> {
+                String value = fields.get(index).trim();
+                columns.put(name, value.isEmpty() ? null : value);
+            });
+            return columns;
+        }
+    }
+
+    private static final class Row<T> {
+        private final int line;
+        private final T value;
+
+        private Row(int line, T value) {
+            this.line = line;
+            this.value = value;
+        }
+    }
+
+    private static final class UserRow {
+        private final SignupRequest request;
+        private final boolean admin;
+
+        private UserRow(SignupRequest request, boolean admin) {
+            this.request = request;
+            this.admin = admin;
+        }
+    }
+}
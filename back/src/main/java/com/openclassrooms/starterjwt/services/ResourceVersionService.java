@@ -0,0 +1,88 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.ResourceVersionRepository;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ETags of the resources. Each one combines the version stored in the database, incremented in the writing
+// transaction and therefore seen by every instance, with a local counter incremented once this instance has
+// refreshed its own caches: a new ETag is never served with data cached here before the write.
+// The "epoch" prefix changes on every start so that an ETag from a previous instance is never reused.
+@Service
+public class ResourceVersionService {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ResourceVersionRepository resourceVersionRepository;
+
+    private final Map<Resource, AtomicLong> versions = new EnumMap<>(Resource.class);
+
+    public ResourceVersionService(ResourceVersionRepository resourceVersionRepository) {
+        this.resourceVersionRepository = resourceVersionRepository;
+        for (Resource resource : Resource.values()) {
+            this.versions.put(resource, new AtomicLong());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_STORED_VERSION)
+    public void onResourceWritten(ResourceChangedEvent event) {
+        this.resourceVersionRepository.increment(event.getResource());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ResourceChangedEvent.ORDER_VERSIONS)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        this.versions.get(event.getResource()).incrementAndGet();
+    }
+
+    // Current version of the resource type, read from the database
+    public String version(Resource resource) {
+        // The local counter is read first: the stored version read after it is at least as recent
+        long local = this.versions.get(resource).get();
+        return this.epoch + "-" + local + "-" + this.resourceVersionRepository.find(resource);
+    }
+
+    // Derives an ETag for a particular representation (filtered fields, expansions...).
+    public String variantEtag(String etag, String variant) {
+        return etag.substring(0, etag.length() - 1) + "+" + variant + "\"";
+    }
+
+    public String collectionEtag(Resource resource) {
+        return "\"" + resource.name().toLowerCase() + "-" + this.version(resource) + "\"";
+    }
+
+    // Strong ETag taken from the entity's @Version column: it survives restarts and serves as the precondition
+    // (If-Match) of writes.
+    public String versionEtag(Resource resource, Long id, Long version) {
+        return "\"" + resource.name().toLowerCase() + "-" + id + "-v" + version + "\"";
+    }
+
+    // Returns the version carried by an ETag made by versionEtag for this resource, or null.
+    public Long parseVersionEtag(Resource resource, Long id, String etag) {
+        String prefix = "\"" + resource.name().toLowerCase() + "-" + id + "-v";
+        String value = etag.trim();
+        if (!value.startsWith(prefix) || !value.endsWith("\"") || value.length() <= prefix.length() + 1) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value.substring(prefix.length(), value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Follows the version of the whole resource type: any write to it changes the ETag of every item, and no state
+    // is kept per item.
+    public String etag(Resource resource, Long id) {
+        return "\"" + resource.name().toLowerCase() + "-" + id + "-" + this.version(resource) + "\"";
+    }
+}
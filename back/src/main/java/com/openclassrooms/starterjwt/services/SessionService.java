@@ -1,52 +1,175 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.cache.TeacherSchedule;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class SessionService {
+    private static final int PARTICIPATION_ATTEMPTS = 3;
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TeacherSchedule teacherSchedule;
+
+    private final OutboxRepository outboxRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final SessionMapper sessionMapper;
+
+    private final AuditLog auditLog;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          TeacherSchedule teacherSchedule,
+                          OutboxRepository outboxRepository,
+                          PlatformTransactionManager transactionManager,
+                          SessionMapper sessionMapper,
+                          AuditLog auditLog) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.teacherSchedule = teacherSchedule;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionMapper = sessionMapper;
+        this.auditLog = auditLog;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        session.setVersion(null);
+        this.checkSchedule(null, session);
+        Session created = this.sessionRepository.save(session);
+
+        this.outboxRepository.append(this.publish(ChangeType.CREATED, created.getId()));
+        return created;
     }
 
+    @Transactional
     public void delete(Long id) {
         this.sessionRepository.deleteById(id);
+        this.sessionRepository.flush();
+
+        this.outboxRepository.append(this.publish(ChangeType.DELETED, id));
     }
 
+    @Transactional(readOnly = true)
     public List<Session> findAll() {
         return this.sessionRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
+    public Long getVersionById(Long id) {
+        return this.sessionRepository.findVersionById(id).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllProjected(Set<String> fields, boolean expandTeacher) {
+        this.checkFields(fields);
+
+        return this.sessionRepository.findProjected(fields, expandTeacher, null);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProjectedById(Long id, Set<String> fields, boolean expandTeacher) {
+        this.checkFields(fields);
+
+        List<Map<String, Object>> rows = this.sessionRepository.findProjected(fields, expandTeacher, id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // The current row is loaded once: the merge below reuses it, and it gives the audit entry its previous state
+    @Transactional
     public Session update(Long id, Session session) {
         session.setId(id);
-        return this.sessionRepository.save(session);
+        Session current = this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (session.getVersion() == null) {
+            // Without an expected version, the change applies to the current version
+            session.setVersion(current.getVersion());
+        } else if (!session.getVersion().equals(current.getVersion())) {
+            throw new PreconditionFailedException();
+        }
+        this.checkSchedule(id, session);
+        // Mapped before the merge copies the new state onto the loaded entity
+        SessionDto before = this.sessionMapper.toDto(current);
+
+        Session updated;
+        try {
+            updated = this.sessionRepository.save(session);
+            // The version check happens at flush: it is forced here, inside the try, even within a transaction
+            this.sessionRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new PreconditionFailedException();
+        }
+
+        this.outboxRepository.append(this.publish(ChangeType.UPDATED, id));
+        // After the flush: an update rejected by the version check leaves no entry
+        this.auditLog.record(ChangeType.UPDATED, Resource.SESSION, id,
+                this.auditLog.diff(before, this.sessionMapper.toDto(updated)));
+        return updated;
     }
 
     public void participate(Long id, Long userId) {
+        ResourceChangedEvent event = new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, id, userId);
+        this.retryOnConflict(() -> {
+            this.addParticipant(id, userId);
+            this.outboxRepository.append(event);
+        });
+
+        this.eventPublisher.publishEvent(event);
+    }
+
+    public void noLongerParticipate(Long id, Long userId) {
+        ResourceChangedEvent event = new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, id, userId);
+        this.retryOnConflict(() -> {
+            this.removeParticipant(id, userId);
+            this.outboxRepository.append(event);
+        });
+
+        this.eventPublisher.publishEvent(event);
+    }
+
+    private void addParticipant(Long id, Long userId) {
         Session session = this.sessionRepository.findById(id).orElse(null);
         User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+        // A deleted account is disabled until its purge ends: it can no longer sign up
+        if (session == null || user == null || user.isDisabled()) {
             throw new NotFoundException();
         }
 
@@ -58,9 +181,10 @@ public class SessionService {
         session.getUsers().add(user);
 
         this.sessionRepository.save(session);
+        this.sessionRepository.flush();
     }
 
-    public void noLongerParticipate(Long id, Long userId) {
+    private void removeParticipant(Long id, Long userId) {
         Session session = this.sessionRepository.findById(id).orElse(null);
         if (session == null) {
             throw new NotFoundException();
@@ -74,5 +198,50 @@ public class SessionService {
         session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
 
         this.sessionRepository.save(session);
+        this.sessionRepository.flush();
+    }
+
+    // A registration does not depend on any version expected by the client: if the session changed between the read
+    // and the write, it is read again and the change replayed rather than locking the row. Each attempt has its own
+    // transaction: the new read must not see the session of the failed attempt again.
+    private void retryOnConflict(Runnable change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> change.run());
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= PARTICIPATION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // A teacher cannot lead two overlapping sessions
+    private void checkSchedule(Long id, Session session) {
+        if (session.getDuration() == null) {
+            session.setDuration(Session.DEFAULT_DURATION_MINUTES);
+        }
+        if (session.getTeacher() == null || session.getDate() == null) {
+            return;
+        }
+
+        if (this.teacherSchedule.findConflict(session.getTeacher().getId(), session.getDate(), session.getDuration(), id).isPresent()) {
+            throw new ConflictException();
+        }
+    }
+
+    private void checkFields(Set<String> fields) {
+        if (!SessionRepository.FIELDS.containsAll(fields)) {
+            throw new BadRequestException();
+        }
+    }
+
+    // Events also go to the outbox, in the same transaction and after the flush that locks the row
+    // of the session: two changes to the same session enter it in the order of their commits
+    private ResourceChangedEvent publish(ChangeType type, Long id) {
+        ResourceChangedEvent event = new ResourceChangedEvent(Resource.SESSION, type, id);
+        this.eventPublisher.publishEvent(event);
+        return event;
     }
 }
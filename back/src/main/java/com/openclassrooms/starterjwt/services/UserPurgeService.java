@@ -0,0 +1,341 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.LeaseRepository;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.opentelemetry.context.Context;
+import lombok.Getter;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Background purge of deleted accounts: the member's participations are erased in bounded batches, each
+// in its own transaction, then the USERS row itself. The account is disabled before reaching this point, so it
+// can no longer sign up between two batches. Purges interrupted by a shutdown resume at startup, on every instance:
+// each purge first takes the lease of its account, renewed after each batch, so only one instance runs it.
+@Service
+public class UserPurgeService {
+    private static final Logger logger = LoggerFactory.getLogger(UserPurgeService.class);
+
+    private static final String PARTICIPANTS_ROLE = Session.class.getName() + ".users";
+    // Number of finished purges kept for inspection
+    private static final int FINISHED_RETENTION = 100;
+    // Attempts at the final step when a late participation still blocks the account delete
+    private static final int DELETE_ATTEMPTS = 3;
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final OutboxRepository outboxRepository;
+    private final LeaseRepository leaseRepository;
+    private final Cache secondLevelCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final long leaseMillis;
+    private final ExecutorService worker;
+
+    private final Map<Long, Progress> jobs = new ConcurrentHashMap<>();
+    private final Queue<Long> finished = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public UserPurgeService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            UserRepository userRepository,
+                            OutboxRepository outboxRepository,
+                            LeaseRepository leaseRepository,
+                            EntityManagerFactory entityManagerFactory,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${oc.app.userPurge.chunkSize:500}") int chunkSize,
+                            @Value("${oc.app.userPurge.pauseMs:50}") long pauseMillis,
+                            @Value("${oc.app.userPurge.leaseMs:60000}") long leaseMillis) {
+        this(jdbcTemplate, transactionManager, userRepository, outboxRepository, leaseRepository,
+                entityManagerFactory.unwrap(SessionFactory.class).getCache(), eventPublisher, chunkSize, pauseMillis,
+                leaseMillis,
+                // The purge stays attached to the trace of the request that asked for it
+                Context.taskWrapping(Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "user-purge");
+                    thread.setDaemon(true);
+                    return thread;
+                })));
+    }
+
+    UserPurgeService(JdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager,
+                     UserRepository userRepository,
+                     OutboxRepository outboxRepository,
+                     LeaseRepository leaseRepository,
+                     Cache secondLevelCache,
+                     ApplicationEventPublisher eventPublisher,
+                     int chunkSize,
+                     long pauseMillis,
+                     long leaseMillis,
+                     ExecutorService worker) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.userRepository = userRepository;
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.secondLevelCache = secondLevelCache;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.leaseMillis = leaseMillis;
+        this.worker = worker;
+    }
+
+    // Queues the purge of the account, or returns the one already running. Called inside a transaction, the purge
+    // only starts after the commit: the account's deactivation is then visible to the worker.
+    public Progress purge(Long userId) {
+        Progress[] queued = new Progress[1];
+        Progress progress = this.jobs.compute(userId, (id, current) -> {
+            if (current != null && (current.state == State.QUEUED || current.state == State.RUNNING)) {
+                return current;
+            }
+            queued[0] = new Progress(id);
+            return queued[0];
+        });
+
+        if (queued[0] != null) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == STATUS_COMMITTED) {
+                            UserPurgeService.this.worker.execute(() -> UserPurgeService.this.run(queued[0]));
+                        } else {
+                            UserPurgeService.this.jobs.remove(userId, queued[0]);
+                        }
+                    }
+                });
+            } else {
+                this.worker.execute(() -> this.run(queued[0]));
+            }
+        }
+        return progress;
+    }
+
+    public Optional<Progress> progress(Long userId) {
+        return Optional.ofNullable(this.jobs.get(userId));
+    }
+
+    public List<Progress> progress() {
+        List<Progress> progress = new ArrayList<>(this.jobs.values());
+        progress.sort(Comparator.comparing(Progress::getQueuedAt));
+        return progress;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<Long> pending = ReplicaRoutingDataSource.onPrimary(this.userRepository::findDisabledIds);
+        if (!pending.isEmpty()) {
+            logger.info("Resuming purge of {} deleted accounts", pending.size());
+            pending.forEach(this::purge);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.worker.shutdownNow();
+    }
+
+    private void run(Progress progress) {
+        String lease = LeaseRepository.userPurge(progress.userId);
+        try {
+            if (!this.leaseRepository.acquire(lease, this.leaseMillis)) {
+                // Purged by another instance, which reports its progress
+                logger.debug("Purge of user {} already running on another instance", progress.userId);
+                this.jobs.remove(progress.userId, progress);
+                return;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Purge of user {} failed: {}", progress.userId, e.getMessage());
+            progress.finish(State.FAILED, e.getMessage());
+            this.retire(progress.userId);
+            return;
+        }
+
+        progress.state = State.RUNNING;
+        progress.startedAt = LocalDateTime.now();
+
+        // The worker, and the cache listeners it notifies, must see the account and its participations as they
+        // are now, not as a lagging replica last saw them
+        try (ReplicaRoutingDataSource.PrimaryScope ignored = ReplicaRoutingDataSource.primary()) {
+            List<Long> sessionIds;
+            while (!(sessionIds = this.transactionTemplate.execute(status -> this.purgeChunk(progress))).isEmpty()) {
+                this.afterChunk(progress.userId, sessionIds);
+                if (!this.leaseRepository.acquire(lease, this.leaseMillis)) {
+                    throw new IllegalStateException("Purge taken over by another instance");
+                }
+                if (this.pauseMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(this.pauseMillis);
+                }
+            }
+
+            this.deleteUser(progress);
+            this.eventPublisher.publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.DELETED,
+                    progress.userId));
+            progress.finish(State.DONE, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.finish(State.FAILED, "Interrupted");
+        } catch (RuntimeException e) {
+            logger.warn("Purge of user {} failed: {}", progress.userId, e.getMessage());
+            progress.finish(State.FAILED, e.getMessage());
+        } finally {
+            this.release(lease);
+            this.retire(progress.userId);
+        }
+    }
+
+    private void release(String lease) {
+        try {
+            this.leaseRepository.release(lease);
+        } catch (RuntimeException e) {
+            // The lease will expire
+            logger.warn("Purge lease {} not released: {}", lease, e.getMessage());
+        }
+    }
+
+    // A sign-up that read the account just before it was disabled can still add a participation during the purge.
+    // The last participations are swept again in the transaction that deletes the account, and a sign-up
+    // committed between that sweep and the delete fails it on the foreign key: the step is then replayed.
+    private void deleteUser(Progress progress) {
+        for (int attempt = 1; ; attempt++) {
+            long participationsDeleted = progress.participationsDeleted;
+            long sessionsUpdated = progress.sessionsUpdated;
+            try {
+                List<Long> sessionIds = this.transactionTemplate.execute(status -> {
+                    List<Long> swept = new ArrayList<>();
+                    List<Long> chunk;
+                    while (!(chunk = this.purgeChunk(progress)).isEmpty()) {
+                        swept.addAll(chunk);
+                    }
+
+                    try {
+                        this.userRepository.deleteById(progress.userId);
+                        this.userRepository.flush();
+                    } catch (EmptyResultDataAccessException e) {
+                        // Already deleted
+                    }
+                    return swept;
+                });
+                this.afterChunk(progress.userId, sessionIds);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Rolled back with the transaction
+                progress.participationsDeleted = participationsDeleted;
+                progress.sessionsUpdated = sessionsUpdated;
+                if (attempt >= DELETE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // One batch: the sessions followed by the member, their participations in those sessions, and the version of each
+    // session incremented as for an ordinary withdrawal, outbox included.
+    private List<Long> purgeChunk(Progress progress) {
+        List<Long> sessionIds = this.jdbcTemplate.queryForList(
+                "SELECT DISTINCT session_id FROM PARTICIPATE WHERE user_id = ? LIMIT ?",
+                Long.class, progress.userId, this.chunkSize);
+        if (sessionIds.isEmpty()) {
+            return sessionIds;
+        }
+
+        String in = String.join(", ", Collections.nCopies(sessionIds.size(), "?"));
+        List<Object> args = new ArrayList<>(sessionIds.size() + 1);
+        args.add(progress.userId);
+        args.addAll(sessionIds);
+
+        int deleted = this.jdbcTemplate.update(
+                "DELETE FROM PARTICIPATE WHERE user_id = ? AND session_id IN (" + in + ")", args.toArray());
+        this.jdbcTemplate.update("UPDATE SESSIONS SET version = version + 1 WHERE id IN (" + in + ")",
+                sessionIds.toArray());
+        this.outboxRepository.appendAll(sessionIds.stream()
+                .map(sessionId -> new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED,
+                        sessionId, progress.userId))
+                .collect(Collectors.toList()));
+
+        progress.participationsDeleted += deleted;
+        progress.sessionsUpdated += sessionIds.size();
+        return sessionIds;
+    }
+
+    // JDBC writes bypass Hibernate: the cached participant lists are evicted and the
+    // application caches notified, session by session, once the batch is committed.
+    private void afterChunk(Long userId, List<Long> sessionIds) {
+        for (Long sessionId : sessionIds) {
+            this.secondLevelCache.evictCollectionData(PARTICIPANTS_ROLE, sessionId);
+            this.eventPublisher.publishEvent(new ResourceChangedEvent(Resource.SESSION,
+                    ChangeType.PARTICIPANT_REMOVED, sessionId, userId));
+        }
+    }
+
+    private void retire(Long userId) {
+        this.finished.add(userId);
+        while (this.finished.size() > FINISHED_RETENTION) {
+            Long oldest = this.finished.poll();
+            if (oldest != null) {
+                this.jobs.computeIfPresent(oldest, (id, progress) ->
+                        progress.state == State.DONE || progress.state == State.FAILED ? null : progress);
+            }
+        }
+    }
+
+    @Getter
+    public static class Progress {
+        private final Long userId;
+        private final LocalDateTime queuedAt = LocalDateTime.now();
+        private volatile State state = State.QUEUED;
+        private volatile long participationsDeleted;
+        private volatile long sessionsUpdated;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private Progress(Long userId) {
+            this.userId = userId;
+        }
+
+        private void finish(State state, String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.state = state;
+        }
+    }
+}
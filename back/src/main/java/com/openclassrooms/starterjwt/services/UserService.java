@@ -1,22 +1,155 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.UserPage;
+import com.openclassrooms.starterjwt.repository.UserDirectoryQuery;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.UserRepositoryCustom;
+import com.openclassrooms.starterjwt.repository.UserSummary;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserPurgeService userPurgeService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       UserPurgeService userPurgeService) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.userPurgeService = userPurgeService;
     }
 
-    public void delete(Long id) {
-        this.userRepository.deleteById(id);
+    // The account is disabled right away, its participations and its row are purged in the background
+    @Transactional
+    public UserPurgeService.Progress delete(Long id) {
+        User user = this.userRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (!user.isDisabled()) {
+            user.setDisabled(true);
+            this.userRepository.save(user);
+            this.eventPublisher.publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.UPDATED, id));
+        }
+
+        return this.userPurgeService.purge(id);
     }
 
+    @Transactional(readOnly = true)
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    // Accounts of the given ids, in one query and in the same order; null for an unknown id, like findById
+    @Transactional(readOnly = true)
+    public List<User> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<User> users = this.userRepository.findAllByIdInOrder(ids);
+        // A deleted account waiting for its purge cannot be added to a session
+        if (users.stream().anyMatch(user -> user != null && user.isDisabled())) {
+            throw new NotFoundException();
+        }
+        return users;
+    }
+
+    // Directory of the accounts, one page after the other. The sort reads "field" or "field,desc"; the cursor holds
+    // the (field, id) key of the last row returned and is only valid for the same sort.
+    @Transactional(readOnly = true)
+    public UserPage directory(Boolean admin, LocalDateTime createdFrom, LocalDateTime createdTo,
+                              String sort, String cursor, int limit) {
+        String[] order = sort.split(",", -1);
+        if (order.length > 2 || !UserRepositoryCustom.SORTS.contains(order[0])
+                || (order.length == 2 && !order[1].equalsIgnoreCase("asc") && !order[1].equalsIgnoreCase("desc"))) {
+            throw new BadRequestException();
+        }
+        String field = order[0];
+        boolean descending = order.length == 2 && order[1].equalsIgnoreCase("desc");
+
+        UserDirectoryQuery.UserDirectoryQueryBuilder query = UserDirectoryQuery.builder()
+                .admin(admin)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .sort(field)
+                .descending(descending)
+                .limit(limit + 1);
+        if (cursor != null) {
+            decodeCursor(cursor, field, descending, query);
+        }
+
+        List<UserSummary> rows = this.userRepository.findDirectory(query.build());
+        if (rows.size() <= limit) {
+            return new UserPage(rows, null);
+        }
+
+        List<UserSummary> items = rows.subList(0, limit);
+        return new UserPage(items, encodeCursor(items.get(limit - 1), field, descending));
+    }
+
+    // Opaque cursor: "sort\nid\nvalue", the value prefixed with "=" when it is not null
+    private static String encodeCursor(UserSummary last, String field, boolean descending) {
+        Object value = sortValue(last, field);
+        String raw = field + (descending ? ",desc" : "") + "\n" + last.getId() + "\n"
+                + (value != null ? "=" + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void decodeCursor(String cursor, String field, boolean descending,
+                                     UserDirectoryQuery.UserDirectoryQueryBuilder query) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\n", 3);
+            if (parts.length != 3 || !parts[0].equals(field + (descending ? ",desc" : ""))) {
+                throw new BadRequestException();
+            }
+
+            query.afterId(Long.valueOf(parts[1]));
+            if (parts[2].startsWith("=")) {
+                String value = parts[2].substring(1);
+                query.afterValue(parseSortValue(field, value));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    private static Object sortValue(UserSummary summary, String field) {
+        switch (field) {
+            case "createdAt":
+                return summary.getCreatedAt();
+            case "email":
+                return summary.getEmail();
+            case "lastName":
+                return summary.getLastName();
+            default:
+                return summary.getId();
+        }
+    }
+
+    private static Object parseSortValue(String field, String value) {
+        switch (field) {
+            case "createdAt":
+                return LocalDateTime.parse(value);
+            case "id":
+                return Long.valueOf(value);
+            default:
+                return value;
+        }
+    }
 }
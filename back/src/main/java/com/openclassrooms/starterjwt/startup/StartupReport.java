@@ -0,0 +1,103 @@
+package com.openclassrooms.starterjwt.startup;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+// Startup report: Spring Boot steps and slowest beans, recorded by the BufferingApplicationStartup
+// installed in main (absent under @SpringBootTest: report without steps), time between the JVM launch and
+// the ready state, and outcome of the warm-up.
+@Component
+public class StartupReport {
+    // Steps kept: startup records about one per bean, plus those of the context
+    public static final int CAPACITY = 8192;
+
+    static final String BEAN_STEP = "spring.beans.instantiate";
+    private static final int SLOWEST_BEANS = 10;
+
+    private final ApplicationStartup applicationStartup;
+    private final WarmUp warmUp;
+    private final Instant jvmStart = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+    private volatile long jvmToReadyMillis;
+
+    public StartupReport(ConfigurableApplicationContext applicationContext, WarmUp warmUp) {
+        this.applicationStartup = applicationContext.getApplicationStartup();
+        this.warmUp = warmUp;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        this.jvmToReadyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    public Report report() {
+        if (!(this.applicationStartup instanceof BufferingApplicationStartup)) {
+            return new Report(this.jvmToReadyMillis, false, List.of(), List.of(), this.warmUp.summary());
+        }
+        List<StartupTimeline.TimelineEvent> events =
+                ((BufferingApplicationStartup) this.applicationStartup).getBufferedTimeline().getEvents();
+
+        // Top-level steps (environment preparation, context refresh...) in order
+        List<Phase> phases = events.stream()
+                .filter(event -> event.getStartupStep().getParentId() == null)
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getStartTime))
+                .map(event -> new Phase(event.getStartupStep().getName(),
+                        Duration.between(this.jvmStart, event.getStartTime()).toMillis(),
+                        event.getDuration().toMillis()))
+                .collect(Collectors.toList());
+        // Instantiation time of a bean, including that of the beans it needed created
+        List<Bean> slowestBeans = events.stream()
+                .filter(event -> BEAN_STEP.equals(event.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(SLOWEST_BEANS)
+                .map(event -> new Bean(beanName(event.getStartupStep()), event.getDuration().toMillis()))
+                .collect(Collectors.toList());
+
+        return new Report(this.jvmToReadyMillis, true, phases, slowestBeans, this.warmUp.summary());
+    }
+
+    private static String beanName(StartupStep step) {
+        return StreamSupport.stream(step.getTags().spliterator(), false)
+                .filter(tag -> "beanName".equals(tag.getKey()))
+                .map(StartupStep.Tag::getValue)
+                .findFirst()
+                .orElse("?");
+    }
+
+    @lombok.Value
+    public static class Report {
+        // 0 until the application is ready
+        long jvmToReadyMillis;
+        boolean timelineRecorded;
+        List<Phase> phases;
+        List<Bean> slowestBeans;
+        WarmUp.Summary warmUp;
+    }
+
+    @lombok.Value
+    public static class Phase {
+        String name;
+        // Start of the step since the JVM launch
+        long startMillis;
+        long durationMillis;
+    }
+
+    @lombok.Value
+    public static class Bean {
+        String name;
+        long durationMillis;
+    }
+}
@@ -0,0 +1,217 @@
+package com.openclassrooms.starterjwt.startup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.response.JwtResponse;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Warm-up before the instance reports itself ready: the runners run before the ApplicationReady event, hence
+// before the availability state becomes ACCEPTING_TRAFFIC (GET /api/startup/readiness). Each task is
+// repeated up to iterations times on synthetic data: class loading, JIT compilation, Hibernate query
+// plans and Jackson serializers are ready for the first real requests. The database reads only
+// target nonexistent ids and emails or a page of sessions; nothing is written. Beyond maxMs, the remaining
+// tasks are dropped.
+@Component
+public class WarmUp implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+    static final String UNKNOWN_EMAIL = "warmup@invalid";
+    private static final long UNKNOWN_ID = 0L;
+    private static final TypeReference<List<SessionDto>> SESSION_LIST = new TypeReference<List<SessionDto>>() {
+    };
+
+    private final Map<String, Runnable> tasks;
+    private final boolean enabled;
+    private final int iterations;
+    private final long maxMillis;
+    private volatile Summary summary;
+
+    @Autowired
+    public WarmUp(JwtUtils jwtUtils,
+                  SessionMapper sessionMapper,
+                  ObjectMapper objectMapper,
+                  UserRepository userRepository,
+                  SessionRepository sessionRepository,
+                  TeacherRepository teacherRepository,
+                  @Value("${oc.app.warmup.enabled:true}") boolean enabled,
+                  @Value("${oc.app.warmup.iterations:500}") int iterations,
+                  @Value("${oc.app.warmup.maxMs:15000}") long maxMillis) {
+        this(tasks(jwtUtils, sessionMapper, objectMapper, userRepository, sessionRepository, teacherRepository),
+                enabled, iterations, maxMillis);
+    }
+
+    WarmUp(Map<String, Runnable> tasks, boolean enabled, int iterations, long maxMillis) {
+        this.tasks = tasks;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!this.enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.maxMillis);
+
+        List<TaskResult> results = new ArrayList<>();
+        for (Map.Entry<String, Runnable> task : this.tasks.entrySet()) {
+            results.add(this.repeat(task.getKey(), task.getValue(), deadline));
+        }
+
+        this.summary = new Summary(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), results);
+        logger.info("Warm-up done in {} ms: {}", this.summary.getTotalMillis(), results.stream()
+                .map(result -> result.getName() + " x" + result.getIterations()
+                        + " (" + result.getFirstMicros() + " -> " + result.getLastMicros() + " us)")
+                .collect(Collectors.joining(", ")));
+    }
+
+    // Last warm-up, null if it did not take place
+    public Summary summary() {
+        return this.summary;
+    }
+
+    private TaskResult repeat(String name, Runnable task, long deadline) {
+        long start = System.nanoTime();
+        long first = 0;
+        long last = 0;
+        int done = 0;
+        String error = null;
+        while (done < this.iterations && System.nanoTime() < deadline) {
+            long iterationStart = System.nanoTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // A failed warm-up must never prevent the startup
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                logger.warn("Warm-up task {} failed after {} iterations: {}", name, done, error);
+                break;
+            }
+            last = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - iterationStart);
+            if (done++ == 0) {
+                first = last;
+            }
+        }
+        return new TaskResult(name, done, first, last, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                error);
+    }
+
+    private static Map<String, Runnable> tasks(JwtUtils jwtUtils,
+                                               SessionMapper sessionMapper,
+                                               ObjectMapper objectMapper,
+                                               UserRepository userRepository,
+                                               SessionRepository sessionRepository,
+                                               TeacherRepository teacherRepository) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.builder().id(UNKNOWN_ID).username(UNKNOWN_EMAIL).firstName("Warm").lastName("Up")
+                        .admin(false).password("").build(), null, Collections.emptyList());
+        Session session = syntheticSession();
+        List<SessionDto> sessionDtos = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> syntheticSessionDto(id, List.of(1L, 2L, 3L)))
+                .collect(Collectors.toList());
+        SessionDto unknownSession = syntheticSessionDto(UNKNOWN_ID, List.of(UNKNOWN_ID));
+        unknownSession.setTeacher_id(UNKNOWN_ID);
+
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        // Issuing then verifying a token, like the login then AuthTokenFilter
+        tasks.put("jwt", () -> {
+            String token = jwtUtils.generateJwtToken(authentication);
+            if (!jwtUtils.validateJwtToken(token) || !UNKNOWN_EMAIL.equals(jwtUtils.getUserNameFromJwtToken(token))) {
+                throw new IllegalStateException("Generated token does not validate");
+            }
+        });
+        // toEntity looks up the teacher and the participants: nonexistent ids
+        tasks.put("sessionMapper", () -> {
+            sessionMapper.toDto(session);
+            sessionMapper.toEntity(unknownSession);
+        });
+        tasks.put("jackson", () -> {
+            try {
+                String json = objectMapper.writeValueAsString(sessionDtos);
+                objectMapper.readValue(json, SESSION_LIST);
+                objectMapper.writeValueAsString(new JwtResponse("token", UNKNOWN_ID, UNKNOWN_EMAIL, "Warm", "Up", false));
+                objectMapper.readValue("{\"email\":\"" + UNKNOWN_EMAIL + "\",\"password\":\"password\"}",
+                        LoginRequest.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        // Queries of the login, the sign-up and the session reads
+        tasks.put("repositories", () -> {
+            userRepository.findByEmail(UNKNOWN_EMAIL);
+            userRepository.existsByEmail(UNKNOWN_EMAIL);
+            sessionRepository.findAll(PageRequest.of(0, 20));
+            sessionRepository.findVersionById(UNKNOWN_ID);
+            teacherRepository.findById(UNKNOWN_ID);
+        });
+        return tasks;
+    }
+
+    private static Session syntheticSession() {
+        return Session.builder()
+                .id(1L)
+                .name("Warm-up")
+                .description("Warm-up session")
+                .date(new Date())
+                .teacher(new Teacher().setId(1L))
+                .users(LongStream.rangeClosed(1, 3)
+                        .mapToObj(id -> new User().setId(id))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static SessionDto syntheticSessionDto(Long id, List<Long> users) {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setId(id);
+        sessionDto.setName("Warm-up");
+        sessionDto.setDescription("Warm-up session");
+        sessionDto.setDate(new Date());
+        sessionDto.setTeacher_id(1L);
+        sessionDto.setUsers(users);
+        return sessionDto;
+    }
+
+    @lombok.Value
+    public static class Summary {
+        long totalMillis;
+        List<TaskResult> tasks;
+    }
+
+    @lombok.Value
+    public static class TaskResult {
+        String name;
+        int iterations;
+        // Duration of the first and of the last iteration: the effect of the warm-up
+        long firstMicros;
+        long lastMicros;
+        long totalMillis;
+        String error;
+    }
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.threads;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Virtual thread mode (oc.app.threads.virtual=true): Tomcat runs each request on its own virtual thread instead of
+// its fixed pool, and so do @Async work and async MVC requests. A request waiting on MySQL releases its carrier.
+@Configuration
+@ConditionalOnProperty(prefix = "oc.app.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(this.executor("http-vt-"));
+    }
+
+    // Same name as the auto-configured executor, which it replaces for @Async and async MVC. The TaskDecorator
+    // (trace context) still applies.
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(ObjectProvider<TaskDecorator> taskDecorator) {
+        TaskExecutorAdapter adapter = new TaskExecutorAdapter(this.executor("task-vt-"));
+        taskDecorator.ifUnique(adapter::setTaskDecorator);
+        return adapter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executors.forEach(ExecutorService::shutdown);
+    }
+
+    // One virtual thread per task, named prefix0, prefix1...
+    private ExecutorService executor(String prefix) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+        this.executors.add(executor);
+        return executor;
+    }
+}
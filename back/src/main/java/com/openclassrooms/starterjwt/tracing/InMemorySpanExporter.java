@@ -0,0 +1,108 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Latest finished spans, kept in memory within maxSpans (the oldest are forgotten)
+public class InMemorySpanExporter implements SpanExporter {
+    private final int maxSpans;
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public InMemorySpanExporter(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> batch) {
+        this.lock.lock();
+        try {
+            for (SpanData span : batch) {
+                if (this.spans.size() == this.maxSpans) {
+                    this.spans.removeFirst();
+                }
+                this.spans.addLast(span);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    // Spans of a trace, in order of their start
+    public List<SpanData> trace(String traceId) {
+        return this.snapshot().stream()
+                .filter(span -> span.getTraceId().equals(traceId))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .collect(Collectors.toList());
+    }
+
+    // Root spans (incoming requests), most recent first
+    public List<SpanData> roots(int limit) {
+        List<SpanData> roots = this.snapshot().stream()
+                .filter(span -> !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote())
+                .collect(Collectors.toList());
+        Collections.reverse(roots);
+        return roots.stream().limit(limit).collect(Collectors.toList());
+    }
+
+    public void reset() {
+        this.lock.lock();
+        try {
+            this.spans.clear();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        this.reset();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    // JSON view of a span: start relative to that of the trace, durations in microseconds
+    @lombok.Value
+    public static class SpanView {
+        String traceId;
+        String spanId;
+        String parentSpanId;
+        String name;
+        String kind;
+        long startOffsetMicros;
+        long durationMicros;
+        String status;
+        Map<String, Object> attributes;
+
+        public static SpanView of(SpanData span, long traceStartEpochNanos) {
+            Map<String, Object> attributes = new TreeMap<>();
+            span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+            return new SpanView(span.getTraceId(), span.getSpanId(),
+                    span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                    span.getName(), span.getKind().name(),
+                    (span.getStartEpochNanos() - traceStartEpochNanos) / 1000,
+                    (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000,
+                    span.getStatus().getStatusCode().name(),
+                    attributes);
+        }
+    }
+
+    private List<SpanData> snapshot() {
+        this.lock.lock();
+        try {
+            return new ArrayList<>(this.spans);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import com.openclassrooms.starterjwt.datasource.JdbcListener;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// One CLIENT span per JDBC statement execution, with its SQL text (parameters not included) and the batch size.
+// Only inside an already open trace: background tasks without a context do not create traces.
+@Component
+@Order(JdbcListener.ORDER_TRACING)
+public class JdbcTracing implements JdbcListener {
+    private static final int MAX_STATEMENT_LENGTH = 2000;
+
+    // Tracer resolved on the first call: the first connections are taken before it exists
+    private final ObjectProvider<Tracer> tracer;
+
+    public JdbcTracing(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Execution onExecute(String sql, int batchSize) {
+        if (!Span.current().getSpanContext().isValid()) {
+            return null;
+        }
+
+        Span span = this.tracer.getObject().spanBuilder(operation(sql))
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("db.statement", sql != null && sql.length() > MAX_STATEMENT_LENGTH
+                        ? sql.substring(0, MAX_STATEMENT_LENGTH) : String.valueOf(sql))
+                .startSpan();
+        if (batchSize > 0) {
+            span.setAttribute("db.batch_size", batchSize);
+        }
+        Scope scope = span.makeCurrent();
+        return error -> {
+            if (error != null) {
+                span.recordException(error);
+                span.setStatus(StatusCode.ERROR);
+            }
+            scope.close();
+            span.end();
+        };
+    }
+
+    // First word of the statement: SELECT, INSERT, UPDATE...
+    static String operation(String sql) {
+        if (sql == null) {
+            return "JDBC";
+        }
+        String trimmed = sql.trim();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return end > 0 ? trimmed.substring(0, end).toUpperCase(Locale.ROOT) : "JDBC";
+    }
+}
@@ -0,0 +1,82 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import com.openclassrooms.starterjwt.mapper.EntityMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// One span per public method call of the controllers, services and mappers ("SessionService.update"),
+// inside an already open trace (HTTP request, or task that inherited its context).
+// The advice is added at the head of the existing proxy (transaction, method security), so the span of a service
+// also covers the Hibernate flush and the commit of its transaction. Calls internal to a bean do not
+// go through the proxy and have no span.
+@Component
+public class LayerTracing extends AbstractAdvisingBeanPostProcessor {
+
+    public LayerTracing(ObjectProvider<Tracer> tracer) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(clazz -> layer(clazz) != null);
+
+        this.advisor = new DefaultPointcutAdvisor(pointcut, (MethodInterceptor) invocation -> {
+            // Outside a trace (background tasks, warm-up), no new trace per call
+            if (!Span.current().getSpanContext().isValid()) {
+                return invocation.proceed();
+            }
+            Class<?> targetClass = ClassUtils.getUserClass(invocation.getThis());
+            Span span = tracer.getObject()
+                    .spanBuilder(name(targetClass) + "." + invocation.getMethod().getName())
+                    .setAttribute("code.namespace", targetClass.getName())
+                    .setAttribute("code.function", invocation.getMethod().getName())
+                    .setAttribute("layer", layer(targetClass))
+                    .startSpan();
+            try (Scope ignored = span.makeCurrent()) {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                span.recordException(e);
+                span.setStatus(StatusCode.ERROR);
+                throw e;
+            } finally {
+                span.end();
+            }
+        });
+        this.setBeforeExistingAdvisors(true);
+        this.setProxyTargetClass(true);
+    }
+
+    static String layer(Class<?> clazz) {
+        if (AnnotatedElementUtils.hasAnnotation(clazz, RestController.class)) {
+            return "controller";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(clazz, Service.class)) {
+            return "service";
+        }
+        if (EntityMapper.class.isAssignableFrom(clazz)) {
+            return "mapper";
+        }
+        return null;
+    }
+
+    // Name of the written mapper (SessionMapper), not of the generated class
+    private static String name(Class<?> clazz) {
+        return clazz.getSimpleName().replaceFirst("Impl$", "");
+    }
+}
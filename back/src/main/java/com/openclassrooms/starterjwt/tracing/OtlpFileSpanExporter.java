@@ -0,0 +1,177 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Exports each batch of spans on one line of the file, in the OTLP/JSON format of an ExportTraceServiceRequest
+// (ids in hexadecimal, 64-bit integers as strings, enums as numbers): readable by the otlpjsonfile
+// receiver of the OpenTelemetry collector or replayable to any OTLP backend.
+public class OtlpFileSpanExporter implements SpanExporter {
+    private static final Logger logger = LoggerFactory.getLogger(OtlpFileSpanExporter.class);
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BufferedWriter writer;
+
+    public OtlpFileSpanExporter(Path file) {
+        this.file = file;
+    }
+
+    // Called by the single thread of the BatchSpanProcessor
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            if (this.writer == null) {
+                this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            this.writer.write(this.objectMapper.writeValueAsString(request(spans)));
+            this.writer.newLine();
+            this.writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            logger.warn("Could not write {} spans to {}: {}", spans.size(), this.file, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            if (this.writer != null) {
+                this.writer.close();
+                this.writer = null;
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    ObjectNode request(Collection<SpanData> spans) {
+        ObjectNode request = this.objectMapper.createObjectNode();
+        ArrayNode resourceSpans = request.putArray("resourceSpans");
+
+        Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grouped = spans.stream()
+                .collect(Collectors.groupingBy(SpanData::getResource, LinkedHashMap::new,
+                        Collectors.groupingBy(SpanData::getInstrumentationScopeInfo, LinkedHashMap::new,
+                                Collectors.toList())));
+        grouped.forEach((resource, scopes) -> {
+            ObjectNode resourceNode = resourceSpans.addObject();
+            this.attributes(resourceNode.putObject("resource"), resource.getAttributes());
+            ArrayNode scopeSpans = resourceNode.putArray("scopeSpans");
+            scopes.forEach((scope, scopeSpanList) -> {
+                ObjectNode scopeNode = scopeSpans.addObject();
+                ObjectNode scopeInfo = scopeNode.putObject("scope").put("name", scope.getName());
+                if (scope.getVersion() != null) {
+                    scopeInfo.put("version", scope.getVersion());
+                }
+                ArrayNode spanNodes = scopeNode.putArray("spans");
+                scopeSpanList.forEach(span -> this.span(spanNodes.addObject(), span));
+            });
+        });
+        return request;
+    }
+
+    private void span(ObjectNode node, SpanData span) {
+        node.put("traceId", span.getTraceId());
+        node.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            node.put("parentSpanId", span.getParentSpanId());
+        }
+        node.put("name", span.getName());
+        // SPAN_KIND_INTERNAL = 1, SERVER, CLIENT, PRODUCER, CONSUMER
+        node.put("kind", span.getKind().ordinal() + 1);
+        node.put("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        node.put("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        this.attributes(node, span.getAttributes());
+
+        if (!span.getEvents().isEmpty()) {
+            ArrayNode events = node.putArray("events");
+            for (EventData event : span.getEvents()) {
+                ObjectNode eventNode = events.addObject()
+                        .put("timeUnixNano", Long.toString(event.getEpochNanos()))
+                        .put("name", event.getName());
+                this.attributes(eventNode, event.getAttributes());
+            }
+        }
+
+        ObjectNode status = node.putObject("status");
+        // STATUS_CODE_UNSET = 0, OK = 1, ERROR = 2
+        status.put("code", span.getStatus().getStatusCode() == StatusCode.OK ? 1
+                : span.getStatus().getStatusCode() == StatusCode.ERROR ? 2 : 0);
+        if (!span.getStatus().getDescription().isEmpty()) {
+            status.put("message", span.getStatus().getDescription());
+        }
+    }
+
+    private void attributes(ObjectNode node, Attributes attributes) {
+        ArrayNode array = node.putArray("attributes");
+        attributes.forEach((key, value) -> {
+            ObjectNode attribute = array.addObject().put("key", key.getKey());
+            this.value(attribute.putObject("value"), key, value);
+        });
+    }
+
+    private void value(ObjectNode node, AttributeKey<?> key, Object value) {
+        switch (key.getType()) {
+            case BOOLEAN:
+                node.put("boolValue", (Boolean) value);
+                break;
+            case LONG:
+                node.put("intValue", value.toString());
+                break;
+            case DOUBLE:
+                node.put("doubleValue", (Double) value);
+                break;
+            case STRING:
+                node.put("stringValue", (String) value);
+                break;
+            default:
+                // Arrays: one value per element, of the element's type
+                ArrayNode values = node.putObject("arrayValue").putArray("values");
+                for (Object element : (List<?>) value) {
+                    ObjectNode elementNode = values.addObject();
+                    if (element instanceof Boolean) {
+                        elementNode.put("boolValue", (Boolean) element);
+                    } else if (element instanceof Long) {
+                        elementNode.put("intValue", element.toString());
+                    } else if (element instanceof Double) {
+                        elementNode.put("doubleValue", (Double) element);
+                    } else {
+                        elementNode.put("stringValue", String.valueOf(element));
+                    }
+                }
+                break;
+        }
+    }
+}
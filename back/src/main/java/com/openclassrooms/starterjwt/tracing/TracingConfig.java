@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
+
+import java.nio.file.Path;
+
+// In-process OpenTelemetry traces, without a collector: one span per HTTP request (filters included), per
+// controller, service and mapper call, and per JDBC statement, linked by their trace id. Finished spans go to
+// each declared SpanExporter: in memory (GET /api/traces) or to an OTLP/JSON file (oc.app.tracing.exporter).
+// sampleRatio=0 disables recording, the context is still propagated.
+@Configuration
+public class TracingConfig {
+    static final String INSTRUMENTATION = "com.openclassrooms.starterjwt";
+
+    @Bean
+    @ConditionalOnProperty(name = "oc.app.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+    public InMemorySpanExporter inMemorySpanExporter(@Value("${oc.app.tracing.maxSpans:10000}") int maxSpans) {
+        return new InMemorySpanExporter(maxSpans);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "oc.app.tracing.exporter", havingValue = "file")
+    public OtlpFileSpanExporter otlpFileSpanExporter(@Value("${oc.app.tracing.file:traces.jsonl}") String file) {
+        return new OtlpFileSpanExporter(Path.of(file));
+    }
+
+    // Exported at the end of the span, in-memory spans are readable as soon as the request ends; the other exporters
+    // write in batches, on a separate thread
+    @Bean(destroyMethod = "close")
+    public SdkTracerProvider sdkTracerProvider(ObjectProvider<SpanExporter> exporters,
+                                               @Value("${spring.application.name:yoga-app}") String serviceName,
+                                               @Value("${oc.app.tracing.sampleRatio:1.0}") double sampleRatio) {
+        SdkTracerProviderBuilder builder = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.of(AttributeKey.stringKey("service.name"), serviceName))))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)));
+        exporters.orderedStream().forEach(exporter -> builder.addSpanProcessor(
+                exporter instanceof InMemorySpanExporter
+                        ? SimpleSpanProcessor.create(exporter)
+                        : BatchSpanProcessor.builder(exporter).build()));
+        return builder.build();
+    }
+
+    @Bean
+    public Tracer tracer(SdkTracerProvider sdkTracerProvider) {
+        return sdkTracerProvider.get(INSTRUMENTATION);
+    }
+
+    // Before the Spring Security chain: the request span covers every filter
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(Tracer tracer) {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(new TracingFilter(tracer));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Picked up by the Spring Boot executor (@Async, async MVC): the task keeps the trace of whoever submitted it
+    @Bean
+    public TaskDecorator tracingTaskDecorator() {
+        return runnable -> Context.current().wrap(runnable);
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+// Root span of each HTTP request, opened before the filter chain: the gap with the controller span is the
+// time spent in the filters. An incoming traceparent header attaches the request to the caller's trace; the
+// trace id is returned in X-Trace-Id to find the trace (GET /api/traces/{traceId}).
+public class TracingFilter extends OncePerRequestFilter {
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final TextMapGetter<HttpServletRequest> HEADERS = new TextMapGetter<HttpServletRequest>() {
+        @Override
+        public Iterable<String> keys(HttpServletRequest request) {
+            return Collections.list(request.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest request, String key) {
+            return request != null ? request.getHeader(key) : null;
+        }
+    };
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Context parent = W3CTraceContextPropagator.getInstance().extract(Context.root(), request, HEADERS);
+        Span span = this.tracer.spanBuilder(request.getMethod())
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.method", request.getMethod())
+                .setAttribute("http.target", request.getRequestURI())
+                .startSpan();
+        response.setHeader(TRACE_ID_HEADER, span.getSpanContext().getTraceId());
+
+        try (Scope ignored = span.makeCurrent()) {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            // Pattern of the routed URL ("/api/session/{id}"), known once the request is handled
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (route != null) {
+                span.updateName(request.getMethod() + " " + route);
+                span.setAttribute("http.route", route.toString());
+            }
+            span.setAttribute("http.status_code", response.getStatus());
+            if (response.getStatus() >= 500) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+-- Initial schema. Identifiers are BIGINT like the Long ids of the entities, which Hibernate validates at startup.
+
+CREATE TABLE `TEACHERS` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `last_name` VARCHAR(40) NOT NULL,
+  `first_name` VARCHAR(40) NOT NULL,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `pk_teachers` PRIMARY KEY (`id`)
+);
+
+CREATE TABLE `SESSIONS` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `name` VARCHAR(50) NOT NULL,
+  `description` VARCHAR(2500) NOT NULL,
+  `date` DATETIME NOT NULL,
+  `duration` INT DEFAULT 60,
+  `teacher_id` BIGINT,
+  `version` BIGINT NOT NULL DEFAULT 0,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `pk_sessions` PRIMARY KEY (`id`),
+  CONSTRAINT `fk_sessions_teacher` FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`)
+);
+
+-- Overlap detection (teacher + date range); also serves the foreign key to TEACHERS
+CREATE INDEX `idx_sessions_teacher_date` ON `SESSIONS` (`teacher_id`, `date`);
+-- Upcoming sessions, by date
+CREATE INDEX `idx_sessions_date` ON `SESSIONS` (`date`);
+
+CREATE TABLE `USERS` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `email` VARCHAR(255) NOT NULL,
+  `last_name` VARCHAR(40) NOT NULL,
+  `first_name` VARCHAR(40) NOT NULL,
+  `password` VARCHAR(255) NOT NULL,
+  `admin` BOOLEAN NOT NULL DEFAULT false,
+  `disabled` BOOLEAN NOT NULL DEFAULT false,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT `pk_users` PRIMARY KEY (`id`),
+  -- Also serves as the index for login and imports (lookup by email)
+  CONSTRAINT `uk_users_email` UNIQUE (`email`)
+);
+
+-- Directory paged by key: each sort index ends with the id
+CREATE INDEX `idx_users_created_at` ON `USERS` (`created_at`, `id`);
+CREATE INDEX `idx_users_admin_created_at` ON `USERS` (`admin`, `created_at`, `id`);
+CREATE INDEX `idx_users_last_name` ON `USERS` (`last_name`, `id`);
+-- Deleted accounts waiting to be purged, resumed at startup
+CREATE INDEX `idx_users_disabled` ON `USERS` (`disabled`);
+
+-- One registration per member and per session; the primary key serves the participant list of a session,
+-- the index on user_id the sessions of a member (account purge)
+CREATE TABLE `PARTICIPATE` (
+  `session_id` BIGINT NOT NULL,
+  `user_id` BIGINT NOT NULL,
+  CONSTRAINT `pk_participate` PRIMARY KEY (`session_id`, `user_id`),
+  CONSTRAINT `fk_participate_session` FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`),
+  CONSTRAINT `fk_participate_user` FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`)
+);
+
+CREATE INDEX `idx_participate_user` ON `PARTICIPATE` (`user_id`, `session_id`);
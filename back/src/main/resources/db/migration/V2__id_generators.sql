@@ -0,0 +1,12 @@
+-- Block identifier generators, one row per table: next_val is the first id of the next block.
+-- Hibernate (pooled-lo optimizer) and the CSV import reserve their blocks by incrementing it.
+-- The columns keep their AUTO_INCREMENT for manual scripts, which must then realign next_val.
+CREATE TABLE `ID_GENERATORS` (
+  `name` VARCHAR(64) NOT NULL,
+  `next_val` BIGINT NOT NULL,
+  CONSTRAINT `pk_id_generators` PRIMARY KEY (`name`)
+);
+
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'TEACHERS', COALESCE(MAX(`id`), 0) + 1 FROM `TEACHERS`;
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'SESSIONS', COALESCE(MAX(`id`), 0) + 1 FROM `SESSIONS`;
+INSERT INTO `ID_GENERATORS` (`name`, `next_val`) SELECT 'USERS', COALESCE(MAX(`id`), 0) + 1 FROM `USERS`;
@@ -0,0 +1,11 @@
+-- Events to publish to external systems (billing, notifications), written in the transaction of
+-- the change and deleted by the relay once delivered. The order of the ids is the delivery order.
+CREATE TABLE `OUTBOX` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `resource` VARCHAR(20) NOT NULL,
+  `type` VARCHAR(30) NOT NULL,
+  `aggregate_id` BIGINT NOT NULL,
+  `user_id` BIGINT,
+  `created_at` DATETIME(3) NOT NULL,
+  CONSTRAINT `pk_outbox` PRIMARY KEY (`id`)
+);
@@ -0,0 +1,14 @@
+-- Audit log of the changes made through the API, append only: the application never UPDATEs or DELETEs it
+CREATE TABLE `AUDIT_LOG` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `occurred_at` DATETIME(3) NOT NULL,
+  `actor` VARCHAR(255) NOT NULL,
+  `action` VARCHAR(30) NOT NULL,
+  `entity` VARCHAR(20) NOT NULL,
+  `entity_id` BIGINT,
+  `changes` TEXT,
+  CONSTRAINT `pk_audit_log` PRIMARY KEY (`id`)
+);
+
+-- History of an entity, from the most recent to the oldest
+CREATE INDEX `idx_audit_log_entity` ON `AUDIT_LOG` (`entity`, `entity_id`, `id`);
@@ -0,0 +1,2 @@
+-- Database name search (in-memory index disabled), read in (last_name, id) order
+CREATE INDEX `idx_teachers_last_name` ON `TEACHERS` (`last_name`, `id`);
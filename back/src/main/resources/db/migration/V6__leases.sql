@@ -0,0 +1,10 @@
+-- Leases of the background jobs that must run on one instance at a time, one row per job. owner holds the lease
+-- until expires_at, on the database clock; a row without owner is free.
+CREATE TABLE `LEASES` (
+  `name` VARCHAR(64) NOT NULL,
+  `owner` VARCHAR(64),
+  `expires_at` DATETIME(3),
+  CONSTRAINT `pk_leases` PRIMARY KEY (`name`)
+);
+
+INSERT INTO `LEASES` (`name`) VALUES ('OUTBOX_RELAY');
@@ -0,0 +1,9 @@
+-- Version of each resource type, incremented in every transaction that writes to it: collection ETags are derived
+-- from it, so that all instances agree. A write made outside the application must increment it too.
+CREATE TABLE `RESOURCE_VERSIONS` (
+  `resource` VARCHAR(16) NOT NULL,
+  `version` BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT `pk_resource_versions` PRIMARY KEY (`resource`)
+);
+
+INSERT INTO `RESOURCE_VERSIONS` (`resource`) VALUES ('SESSION'), ('TEACHER'), ('USER');
@@ -0,0 +1,120 @@
+package com.openclassrooms.starterjwt.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+// Unit test for the audit log
+@ExtendWith(MockitoExtension.class)
+public class AuditLogTest {
+
+    @Mock
+    private AuditSink sink;
+
+    @Mock
+    private ScheduledExecutorService writer;
+
+    private AuditLog auditLog;
+
+    @BeforeEach
+    void setUp() {
+        auditLog = new AuditLog(sink, new ObjectMapper(), 4, 2, writer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // Entries wait in the buffer, then leave in batches in order; the author is the logged-in account
+    @Test
+    @DisplayName("Should write buffered entries in batches with the current actor")
+    void flush_ShouldWriteEntriesInBatches() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("yoga@studio.com", null, Collections.emptyList()));
+        List<List<AuditEntry>> batches = new ArrayList<>();
+        doAnswer(invocation -> batches.add(new ArrayList<>(invocation.getArgument(0)))).when(sink).write(any());
+
+        auditLog.record(ChangeType.CREATED, Resource.SESSION, 1L, Map.of());
+        auditLog.record(ChangeType.UPDATED, Resource.SESSION, 1L, Map.of());
+        auditLog.record(ChangeType.DELETED, Resource.SESSION, 1L, Map.of());
+        verifyNoInteractions(sink);
+
+        assertEquals(3, auditLog.flush());
+        assertEquals(2, batches.size());
+        assertEquals(List.of(ChangeType.CREATED, ChangeType.UPDATED),
+                List.of(batches.get(0).get(0).getAction(), batches.get(0).get(1).getAction()));
+        assertEquals("yoga@studio.com", batches.get(1).get(0).getActor());
+        assertEquals(3, auditLog.stats().getWritten());
+    }
+
+    // Buffer full: the request does not wait, the entry is counted as lost
+    @Test
+    @DisplayName("Should drop and count entries when the buffer is full")
+    void record_ShouldDropEntries_WhenBufferIsFull() {
+        for (int i = 0; i < 6; i++) {
+            auditLog.record(ChangeType.UPDATED, Resource.SESSION, (long) i, Map.of());
+        }
+
+        AuditLog.Stats stats = auditLog.stats();
+        assertEquals(4, stats.getRecorded());
+        assertEquals(2, stats.getDropped());
+        assertEquals(4, stats.getPending());
+    }
+
+    // A failed batch is not lost: it leaves first on the next pass
+    @Test
+    @DisplayName("Should keep and retry a batch the sink refused")
+    void flush_ShouldRetryFailedBatch() throws Exception {
+        auditLog.record(ChangeType.CREATED, Resource.USER, 5L, Map.of());
+        doThrow(new IOException("disk full")).doNothing().when(sink).write(any());
+
+        assertEquals(0, auditLog.flush());
+        assertEquals(1, auditLog.stats().getPending());
+        assertEquals(1, auditLog.stats().getFailures());
+
+        assertEquals(1, auditLog.flush());
+        assertEquals(0, auditLog.stats().getPending());
+        verify(sink, times(2)).write(argThat(entries -> entries.get(0).getActor().equals(AuditLog.ANONYMOUS)));
+    }
+
+    // Only the changed fields are kept, technical timestamps excluded
+    @Test
+    @DisplayName("Should keep only the fields that changed")
+    void diff_ShouldKeepChangedFieldsOnly() {
+        Map<String, Object> before = new LinkedHashMap<>();
+        before.put("name", "Yoga");
+        before.put("duration", 60);
+        before.put("updatedAt", "2026-01-01T10:00:00");
+        Map<String, Object> after = new LinkedHashMap<>(before);
+        after.put("name", "Pilates");
+        after.put("updatedAt", "2026-01-02T10:00:00");
+
+        Map<String, AuditEntry.Change> changes = auditLog.diff(before, after);
+
+        assertEquals(Map.of("name", new AuditEntry.Change("Yoga", "Pilates")), changes);
+        assertEquals(new AuditEntry.Change(null, 60), auditLog.diff(null, before).get("duration"));
+    }
+}
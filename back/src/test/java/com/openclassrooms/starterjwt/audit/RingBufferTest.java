@@ -0,0 +1,97 @@
+package com.openclassrooms.starterjwt.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the lock-free ring buffer of the audit log
+public class RingBufferTest {
+
+    @Test
+    @DisplayName("Should round the capacity up to a power of two")
+    void capacity_ShouldBeRoundedUpToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(8, new RingBuffer<>(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+
+    // Arrival order kept, and a full queue refuses instead of overwriting
+    @Test
+    @DisplayName("Should keep FIFO order and refuse elements when full")
+    void offer_ShouldRefuse_WhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(List.of(1, 2, 3), drained);
+        assertEquals(4, buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    // Several producers, one consumer: nothing is lost or read twice, each producer's order holds
+    @Test
+    @DisplayName("Should not lose or duplicate elements with concurrent producers")
+    void offer_ShouldBeSafe_WithConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        RingBuffer<long[]> buffer = new RingBuffer<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        long[] next = new long[producers];
+        Set<String> seen = new HashSet<>();
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            long[] value = buffer.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertEquals(next[(int) value[0]]++, value[1]);
+            assertTrue(seen.add(value[0] + ":" + value[1]));
+            received++;
+        }
+        pool.shutdownNow();
+
+        assertEquals(producers * perProducer, received);
+        assertNull(buffer.poll());
+    }
+}
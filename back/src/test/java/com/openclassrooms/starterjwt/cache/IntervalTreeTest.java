@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the interval tree of the teacher schedules
+public class IntervalTreeTest {
+
+    @Test
+    @DisplayName("Should find overlapping intervals and treat touching intervals as free")
+    void findOverlap_ShouldUseHalfOpenIntervals() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(10, 20, 1L);
+        tree.insert(30, 40, 2L);
+
+        assertEquals(1L, tree.findOverlap(15, 16, -1));
+        assertEquals(2L, tree.findOverlap(5, 35, 1L));
+        assertNull(tree.findOverlap(20, 30, -1));
+        assertNull(tree.findOverlap(0, 10, -1));
+        assertNull(tree.findOverlap(40, 50, -1));
+    }
+
+    @Test
+    @DisplayName("Should ignore the excluded interval")
+    void findOverlap_ShouldSkipExcludedId() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(10, 20, 1L);
+
+        assertNull(tree.findOverlap(10, 20, 1L));
+    }
+
+    @Test
+    @DisplayName("Should forget removed intervals")
+    void remove_ShouldDropInterval() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(10, 20, 1L);
+        tree.insert(10, 30, 2L);
+
+        assertTrue(tree.remove(10, 1L));
+        assertFalse(tree.remove(10, 1L));
+        assertEquals(1, tree.size());
+        assertEquals(2L, tree.findOverlap(25, 26, -1));
+    }
+
+    @Test
+    @DisplayName("Should agree with a linear scan on random intervals")
+    void findOverlap_ShouldMatchBruteForce() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+
+        for (long id = 0; id < 2_000; id++) {
+            long start = random.nextInt(100_000);
+            long[] interval = {start, start + 1 + random.nextInt(200), id};
+            intervals.add(interval);
+            tree.insert(interval[0], interval[1], id);
+        }
+        for (int i = 0; i < 500; i++) {
+            long[] removed = intervals.remove(random.nextInt(intervals.size()));
+            assertTrue(tree.remove(removed[0], removed[2]));
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(100);
+            long excluded = random.nextInt(2_000);
+
+            Long found = tree.findOverlap(start, end, excluded);
+            boolean expected = intervals.stream().anyMatch(interval -> interval[2] != excluded
+                    && interval[0] < end && start < interval[1]);
+
+            assertEquals(expected, found != null);
+            if (found != null) {
+                assertNotEquals(excluded, found);
+            }
+        }
+        assertEquals(intervals.size(), tree.size());
+    }
+}
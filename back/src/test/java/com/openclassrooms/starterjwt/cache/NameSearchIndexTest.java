@@ -0,0 +1,158 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.mapper.UserMapper;
+import com.openclassrooms.starterjwt.mocks.TeacherMocks;
+import com.openclassrooms.starterjwt.mocks.UserMocks;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Unit test for the name search of teachers and members
+@ExtendWith(MockitoExtension.class)
+public class NameSearchIndexTest {
+
+    @Mock
+    private TeacherRepository teacherRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TeacherMapper teacherMapper;
+
+    @Mock
+    private UserMapper userMapper;
+
+    private final TeacherMocks teacherMocks = new TeacherMocks();
+    private final UserMocks userMocks = new UserMocks();
+
+    @Test
+    @DisplayName("Should load teachers once and answer later searches from memory")
+    void searchTeachers_ShouldUseInMemoryIndex() {
+        NameSearchIndex nameSearchIndex = index(true);
+        Teacher margot = teacherMocks.createTeacher(1L, "DELAHAYE", "Margot", false);
+        Teacher helene = teacherMocks.createTeacher(2L, "THIERCELIN", "Hélène", false);
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(margot, helene));
+        when(teacherMapper.toDto(any(Teacher.class)))
+                .thenAnswer(invocation -> toDto((Teacher) invocation.getArgument(0)));
+
+        List<TeacherDto> found = nameSearchIndex.searchTeachers("hel", 10);
+        nameSearchIndex.searchTeachers("del", 10);
+
+        assertEquals(1, found.size());
+        assertEquals("THIERCELIN", found.get(0).getLastName());
+        verify(teacherRepository, times(1)).findAll();
+        assertEquals(2, nameSearchIndex.stats().getTeachers());
+    }
+
+    @Test
+    @DisplayName("Should follow user writes and reload after a bulk change")
+    void onResourceChanged_ShouldKeepUserIndexInSync() {
+        NameSearchIndex nameSearchIndex = index(true);
+        User anne = userMocks.createUser(1L, "anne@test.com", "Martin", "Anne", "hash", false, false);
+        when(userRepository.findAll()).thenReturn(Collections.singletonList(anne));
+        when(userMapper.toDto(any(User.class))).thenAnswer(invocation -> toDto((User) invocation.getArgument(0)));
+        nameSearchIndex.searchUsers("anne", 10);
+
+        User renamed = userMocks.createUser(1L, "anne@test.com", "Durand", "Anne", "hash", false, false);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(renamed));
+        nameSearchIndex.onResourceChanged(new ResourceChangedEvent(Resource.USER, ChangeType.UPDATED, 1L));
+
+        assertTrue(nameSearchIndex.searchUsers("martin", 10).isEmpty());
+        UserDto found = nameSearchIndex.searchUsers("anne@", 10).get(0);
+        assertEquals("Durand", found.getLastName());
+        assertNull(found.getPassword());
+
+        nameSearchIndex.onResourceChanged(new ResourceChangedEvent(Resource.USER, ChangeType.DELETED, 1L));
+        assertTrue(nameSearchIndex.searchUsers("anne", 10).isEmpty());
+
+        nameSearchIndex.onResourceChanged(new ResourceChangedEvent(Resource.USER, ChangeType.CREATED, null));
+        assertEquals(1, nameSearchIndex.searchUsers("anne", 10).size());
+        verify(userRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should search the database when the index is disabled")
+    @SuppressWarnings("unchecked")
+    void searchTeachers_ShouldFallBackToDatabase() {
+        NameSearchIndex nameSearchIndex = index(false);
+        Teacher margot = teacherMocks.createTeacher(1L, "DELAHAYE", "Margot", false);
+        when(teacherRepository.findByNamePrefix(eq("marg%"), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(margot));
+        when(teacherMapper.toDto(anyList())).thenAnswer(invocation -> ((List<Teacher>) invocation.getArgument(0))
+                .stream().map(NameSearchIndexTest::toDto).collect(Collectors.toList()));
+
+        assertEquals(1, nameSearchIndex.searchTeachers("Marg", 5).size());
+        assertTrue(nameSearchIndex.searchTeachers(" ", 5).isEmpty());
+
+        verify(teacherRepository, never()).findAll();
+        verify(teacherRepository, times(1)).findByNamePrefix(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Database search should fold the query and match every word, reading pages until the limit")
+    void searchUsers_ShouldMatchAllWords_InDatabase() {
+        NameSearchIndex nameSearchIndex = index(false);
+        User anne = userMocks.createUser(1L, "anne@test.com", "Martin", "Anne", "hash", false, false);
+        User marc = userMocks.createUser(2L, "marc@test.com", "Martin", "Marc", "hash", false, false);
+        User agnes = userMocks.createUser(3L, "agnes@test.com", "Martinez", "Agnès", "hash", false, false);
+        when(userRepository.findByNamePrefix(eq("martin%"), any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(1);
+            return page.getPageNumber() == 0 ? Arrays.asList(anne, marc) : Collections.singletonList(agnes);
+        });
+        when(userMapper.toDto(any(User.class))).thenAnswer(invocation -> toDto((User) invocation.getArgument(0)));
+
+        List<UserDto> found = nameSearchIndex.searchUsers("A MARTÍN", 2);
+
+        assertEquals(Arrays.asList("anne@test.com", "agnes@test.com"),
+                Arrays.asList(found.get(0).getEmail(), found.get(1).getEmail()));
+        assertNull(found.get(0).getPassword());
+        verify(userRepository, times(2)).findByNamePrefix(eq("martin%"), any(Pageable.class));
+    }
+
+    private NameSearchIndex index(boolean enabled) {
+        return new NameSearchIndex(teacherRepository, userRepository, teacherMapper, userMapper, enabled);
+    }
+
+    private static TeacherDto toDto(Teacher teacher) {
+        TeacherDto dto = new TeacherDto();
+        dto.setId(teacher.getId());
+        dto.setFirstName(teacher.getFirstName());
+        dto.setLastName(teacher.getLastName());
+        return dto;
+    }
+
+    private static UserDto toDto(User user) {
+        UserDto dto = new UserDto();
+        dto.setId(user.getId());
+        dto.setEmail(user.getEmail());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setPassword(user.getPassword());
+        return dto;
+    }
+}
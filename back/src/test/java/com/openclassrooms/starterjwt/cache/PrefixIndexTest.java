@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the prefix index of the name search
+public class PrefixIndexTest {
+
+    @Test
+    @DisplayName("Should match any word prefix regardless of accents and case")
+    void search_ShouldFoldAccentsAndCase() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put(1L, "Hélène THIERCELIN", "Hélène", "THIERCELIN");
+        index.put(2L, "Margot DELAHAYE", "Margot", "DELAHAYE");
+        index.put(3L, "Jean-Pierre Élan", "Jean-Pierre", "Élan");
+
+        assertEquals(Collections.singletonList("Hélène THIERCELIN"), index.search("HELE", 10));
+        assertEquals(Collections.singletonList("Margot DELAHAYE"), index.search("dela", 10));
+        assertEquals(Collections.singletonList("Jean-Pierre Élan"), index.search("pierre", 10));
+        assertEquals(Collections.singletonList("Jean-Pierre Élan"), index.search("elan", 10));
+        assertTrue(index.search("zzz", 10).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should require every word of the query and return each value once")
+    void search_ShouldMatchAllWords() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put(1L, "Marie Martin", "Marie", "Martin");
+        index.put(2L, "Marc Dupont", "Marc", "Dupont");
+
+        assertEquals(Arrays.asList("Marc Dupont", "Marie Martin"), index.search("mar", 10));
+        assertEquals(Collections.singletonList("Marie Martin"), index.search("mar mart", 10));
+        assertEquals(Collections.singletonList("Marc Dupont"), index.search("dup mar", 10));
+        assertEquals(1, index.search("mar", 1).size());
+    }
+
+    @Test
+    @DisplayName("Should replace the terms of a value that is put again and forget removed values")
+    void put_ShouldReplaceTerms() {
+        PrefixIndex<String> index = new PrefixIndex<>();
+        index.put(1L, "Anne Martin", "Anne", "Martin");
+        index.put(1L, "Anne Durand", "Anne", "Durand");
+
+        assertTrue(index.search("martin", 10).isEmpty());
+        assertEquals(Collections.singletonList("Anne Durand"), index.search("dur", 10));
+
+        index.remove(1L);
+        assertTrue(index.search("anne", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the serialized response cache
+public class ResponseCacheTest {
+
+    private static final String ETAG = "\"session-1\"";
+
+    private ResponseCache responseCache;
+    private AtomicInteger loads;
+    private Supplier<Object> body;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(new ObjectMapper(), true, 16);
+        loads = new AtomicInteger();
+        List<String> names = Collections.nCopies(50, "Yoga session for beginners");
+        body = () -> {
+            loads.incrementAndGet();
+            return names;
+        };
+    }
+
+    @Test
+    @DisplayName("Should serialize once and serve the cached bytes afterwards")
+    void serve_ShouldReuseBytes_WhenEtagIsUnchanged() {
+        ResponseEntity<?> first = responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), null, body);
+        ResponseEntity<?> second = responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), null, body);
+
+        assertEquals(1, loads.get());
+        assertArrayEquals((byte[]) first.getBody(), (byte[]) second.getBody());
+        assertEquals(ETAG, second.getHeaders().getETag());
+        assertEquals(1, responseCache.stats().getHits());
+        assertEquals(1, responseCache.stats().getMisses());
+    }
+
+    @Test
+    @DisplayName("Should rebuild when the ETag moved on")
+    void serve_ShouldRebuild_WhenEtagChanged() {
+        responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), null, body);
+        responseCache.serve("/api/session", "\"session-2\"", EnumSet.of(Resource.SESSION), null, body);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should drop entries depending on the changed resource only")
+    void onResourceChanged_ShouldInvalidateDependentEntries() {
+        responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), null, body);
+        responseCache.serve("/api/teacher", ETAG, EnumSet.of(Resource.TEACHER), null, body);
+
+        responseCache.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, 1L));
+
+        assertEquals(1, responseCache.stats().getEntries());
+        responseCache.serve("/api/teacher", ETAG, EnumSet.of(Resource.TEACHER), null, body);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should serve the gzip variant when the client accepts it")
+    void serve_ShouldReturnGzip_WhenAccepted() throws IOException {
+        byte[] identity = (byte[]) responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), null, body).getBody();
+
+        ResponseEntity<?> response = responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION),
+                "gzip, deflate, br", body);
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] compressed = (byte[]) response.getBody();
+        assertTrue(compressed.length < identity.length);
+        assertArrayEquals(identity, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+        assertTrue(responseCache.stats().getCompressionRatio() < 1);
+    }
+
+    @Test
+    @DisplayName("Should serve the deflate variant when gzip is refused")
+    void serve_ShouldReturnDeflate_WhenGzipIsRefused() throws IOException {
+        ResponseEntity<?> response = responseCache.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION),
+                "gzip;q=0, deflate", body);
+
+        assertEquals("deflate", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        String json = new String(new InflaterInputStream(new ByteArrayInputStream((byte[]) response.getBody())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[\"Yoga session for beginners\""));
+    }
+
+    @Test
+    @DisplayName("Should keep tiny payloads uncompressed")
+    void serve_ShouldReturnIdentity_WhenCompressionDoesNotHelp() {
+        ResponseEntity<?> response = responseCache.serve("/api/teacher", ETAG, EnumSet.of(Resource.TEACHER), "gzip",
+                Collections::emptyList);
+
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("[]", new String((byte[]) response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should pass the body through untouched when disabled")
+    void serve_ShouldNotCache_WhenDisabled() {
+        ResponseCache disabled = new ResponseCache(new ObjectMapper(), false, 16);
+
+        ResponseEntity<?> response = disabled.serve("/api/session", ETAG, EnumSet.of(Resource.SESSION), "gzip", body);
+
+        assertTrue(response.getBody() instanceof List);
+        assertEquals(0, disabled.stats().getEntries());
+    }
+}
@@ -0,0 +1,191 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mocks.SessionMocks;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Unit test for the in-memory session catalog
+@ExtendWith(MockitoExtension.class)
+public class SessionCatalogTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
+    private final SessionMocks sessionMocks = new SessionMocks();
+
+    private SessionCatalog sessionCatalog;
+    private SessionDto first;
+    private SessionDto second;
+
+    @BeforeEach
+    void setUp() {
+        sessionCatalog = new SessionCatalog(sessionRepository, sessionMapper, true, 1_000_000, 60_000);
+
+        first = sessionMocks.createSessionDto(1L, "Morning", 1L, Collections.emptyList(), false, false);
+        second = sessionMocks.createSessionDto(2L, "Evening", 2L, Collections.emptyList(), false, false);
+        second.setDate(Date.valueOf("2025-04-01"));
+    }
+
+    @Test
+    @DisplayName("Should load the catalog once and then serve reads from memory")
+    void snapshot_ShouldBeBuiltOnce() {
+        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(first, second));
+
+        SessionSnapshot snapshot = sessionCatalog.snapshot();
+        sessionCatalog.snapshot();
+        sessionCatalog.snapshot();
+
+        assertEquals(2, snapshot.findAll().size());
+        assertSame(first, snapshot.findById(1L));
+        verify(sessionRepository, times(1)).findAfter(eq(0L), any());
+        assertEquals(1, sessionCatalog.stats().getRebuilds());
+        assertEquals(2.0 / 3, sessionCatalog.stats().getHitRatio(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should index sessions by teacher and by date")
+    void snapshot_ShouldIndexByTeacherAndDate() {
+        SessionSnapshot snapshot = SessionSnapshot.of(Arrays.asList(first, second));
+
+        assertEquals(Collections.singletonList(second), snapshot.findByTeacher(2L));
+        assertTrue(snapshot.findByTeacher(3L).isEmpty());
+        assertEquals(Collections.singletonList(second),
+                snapshot.findBetween(Date.valueOf("2025-03-15"), Date.valueOf("2025-04-02")));
+    }
+
+    @Test
+    @DisplayName("Should replace a session after an update without touching the previous snapshot")
+    void onResourceChanged_ShouldCopyOnWrite() {
+        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(first, second));
+        SessionSnapshot before = sessionCatalog.snapshot();
+
+        Session entity = new Session();
+        SessionDto renamed = sessionMocks.createSessionDto(1L, "Renamed", 1L, Collections.emptyList(), false, false);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(entity));
+        when(sessionMapper.toDto(entity)).thenReturn(renamed);
+
+        sessionCatalog.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, 1L));
+        SessionSnapshot after = sessionCatalog.snapshot();
+
+        assertEquals("Morning", before.findById(1L).getName());
+        assertEquals("Renamed", after.findById(1L).getName());
+        verify(sessionRepository, times(1)).findAfter(eq(0L), any());
+    }
+
+    @Test
+    @DisplayName("Should remove a deleted session without reading the database")
+    void onResourceChanged_ShouldRemoveDeletedSession() {
+        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(first, second));
+        sessionCatalog.snapshot();
+
+        sessionCatalog.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 2L));
+
+        assertNull(sessionCatalog.snapshot().findById(2L));
+        verify(sessionRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should ignore events about other resources")
+    void onResourceChanged_ShouldIgnoreOtherResources() {
+        when(sessionMapper.toDto(anyList())).thenReturn(Collections.singletonList(first));
+        SessionSnapshot before = sessionCatalog.snapshot();
+
+        sessionCatalog.onResourceChanged(new ResourceChangedEvent(Resource.TEACHER, ChangeType.UPDATED, 1L));
+
+        assertSame(before, sessionCatalog.snapshot());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the database when the memory cap is exceeded")
+    void snapshot_ShouldReturnNull_WhenOverCapacity() {
+        SessionCatalog small = new SessionCatalog(sessionRepository, sessionMapper, true, 100, 60_000);
+        List<SessionDto> sessions = Arrays.asList(first, second);
+        when(sessionMapper.toDto(anyList())).thenReturn(sessions);
+
+        assertNull(small.snapshot());
+        assertNull(small.snapshot());
+        verify(sessionRepository, times(1)).findAfter(eq(0L), any());
+    }
+
+    @Test
+    @DisplayName("Should stay over capacity after writes instead of reloading the table")
+    void onResourceChanged_ShouldKeepOverCapacity() {
+        SessionCatalog small = new SessionCatalog(sessionRepository, sessionMapper, true, 100, 60_000);
+        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(first, second));
+        assertNull(small.snapshot());
+
+        small.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, 1L));
+
+        assertNull(small.snapshot());
+        verify(sessionRepository, times(1)).findAfter(anyLong(), any());
+        verify(sessionRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should stop loading pages as soon as the memory cap is exceeded")
+    void snapshot_ShouldStopLoading_WhenCapIsExceeded() {
+        SessionCatalog small = new SessionCatalog(sessionRepository, sessionMapper, true, 100, 60_000);
+        Session entity = new Session();
+        entity.setId(1L);
+        when(sessionRepository.findAfter(eq(0L), any())).thenReturn(Collections.nCopies(500, entity));
+        when(sessionMapper.toDto(anyList())).thenReturn(Arrays.asList(first, second));
+
+        assertNull(small.snapshot());
+        verify(sessionRepository, times(1)).findAfter(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Should retry after the backoff only when the number of sessions leaves room for the catalog")
+    void snapshot_ShouldCheckCount_BeforeRetrying() {
+        SessionCatalog small = new SessionCatalog(sessionRepository, sessionMapper, true, 1000, 0);
+        when(sessionMapper.toDto(anyList())).thenReturn(Collections.nCopies(10, first));
+        assertNull(small.snapshot());
+
+        // Four sessions cannot fit: the table is not read again
+        when(sessionRepository.count()).thenReturn(4L);
+        assertNull(small.snapshot());
+        verify(sessionRepository, times(1)).findAfter(anyLong(), any());
+
+        // Down to one session: the catalog is loaded again
+        when(sessionRepository.count()).thenReturn(1L);
+        when(sessionMapper.toDto(anyList())).thenReturn(Collections.singletonList(first));
+        assertNotNull(small.snapshot());
+        verify(sessionRepository, times(2)).findAfter(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Should never build a catalog when disabled")
+    void snapshot_ShouldReturnNull_WhenDisabled() {
+        SessionCatalog disabled = new SessionCatalog(sessionRepository, sessionMapper, false, 1_000_000, 60_000);
+
+        assertNull(disabled.snapshot());
+        verifyNoInteractions(sessionRepository, sessionMapper);
+    }
+}
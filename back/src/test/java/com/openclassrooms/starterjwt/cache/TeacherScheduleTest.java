@@ -0,0 +1,150 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionSlot;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+// Unit test for the teacher schedules
+@ExtendWith(MockitoExtension.class)
+public class TeacherScheduleTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private TeacherRepository teacherRepository;
+
+    @Test
+    @DisplayName("Should load a teacher schedule once and reject known overlaps without locking the teacher")
+    void findConflict_ShouldUseInMemoryIndex() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, true);
+        when(sessionRepository.findSlotsByTeacherId(1L))
+                .thenReturn(Arrays.asList(slot(10L, 1L, 0, 60), slot(11L, 1L, 3 * HOUR, 90)));
+        when(sessionRepository.findSlotById(10L)).thenReturn(Optional.of(slot(10L, 1L, 0, 60)));
+        when(sessionRepository.findSlotById(11L)).thenReturn(Optional.of(slot(11L, 1L, 3 * HOUR, 90)));
+
+        assertEquals(Optional.of(10L), teacherSchedule.findConflict(1L, new Date(HOUR / 2), 60, null));
+        assertEquals(Optional.of(11L), teacherSchedule.findConflict(1L, new Date(4 * HOUR), 30, null));
+
+        verify(sessionRepository, times(1)).findSlotsByTeacherId(1L);
+        verifyNoInteractions(teacherRepository);
+        assertEquals(2, teacherSchedule.size());
+    }
+
+    @Test
+    @DisplayName("Should lock the teacher and check the database when the index knows no overlap")
+    void findConflict_ShouldConfirmFreeSlotInDatabase() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, true);
+        when(sessionRepository.findSlotsByTeacherId(1L)).thenReturn(Collections.singletonList(slot(10L, 1L, 0, 60)));
+        // Booked by another instance after the tree was loaded
+        when(sessionRepository.findSlotsByTeacherIdStartingBetween(eq(1L), any(Date.class), any(Date.class)))
+                .thenReturn(Arrays.asList(slot(10L, 1L, 0, 60), slot(12L, 1L, HOUR, 60)));
+
+        assertEquals(Optional.of(12L), teacherSchedule.findConflict(1L, new Date(HOUR), 60, null));
+        assertFalse(teacherSchedule.findConflict(1L, new Date(3 * HOUR), 60, null).isPresent());
+
+        verify(teacherRepository, times(2)).lockById(1L);
+    }
+
+    @Test
+    @DisplayName("Should not trust an overlap of the index whose session was moved by another instance")
+    void findConflict_ShouldIgnoreStaleOverlap() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, true);
+        when(sessionRepository.findSlotsByTeacherId(1L)).thenReturn(Collections.singletonList(slot(10L, 1L, 0, 60)));
+        when(sessionRepository.findSlotById(10L)).thenReturn(Optional.of(slot(10L, 1L, 5 * HOUR, 60)));
+
+        assertFalse(teacherSchedule.findConflict(1L, new Date(0), 60, null).isPresent());
+
+        verify(teacherRepository).lockById(1L);
+    }
+
+    @Test
+    @DisplayName("Should move a session in the index when it is rescheduled and drop it when deleted")
+    void onResourceChanged_ShouldKeepIndexInSync() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, true);
+        when(sessionRepository.findSlotsByTeacherId(1L)).thenReturn(Collections.singletonList(slot(10L, 1L, 0, 60)));
+        teacherSchedule.findConflict(1L, new Date(0), 60, null);
+
+        when(sessionRepository.findSlotById(10L)).thenReturn(Optional.of(slot(10L, 1L, 5 * HOUR, 60)));
+        teacherSchedule.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, 10L));
+
+        assertFalse(teacherSchedule.findConflict(1L, new Date(0), 60, null).isPresent());
+        assertEquals(Optional.of(10L), teacherSchedule.findConflict(1L, new Date(5 * HOUR), 60, null));
+
+        teacherSchedule.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 10L));
+
+        assertFalse(teacherSchedule.findConflict(1L, new Date(5 * HOUR), 60, null).isPresent());
+        assertEquals(0, teacherSchedule.size());
+    }
+
+    @Test
+    @DisplayName("Should not track sessions of teachers that were never checked")
+    void onResourceChanged_ShouldSkipTeachersNotLoaded() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, true);
+        when(sessionRepository.findSlotById(10L)).thenReturn(Optional.of(slot(10L, 2L, 0, 60)));
+
+        teacherSchedule.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, 10L));
+        teacherSchedule.onResourceChanged(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, 10L, 3L));
+
+        assertEquals(0, teacherSchedule.size());
+        verify(sessionRepository, times(1)).findSlotById(10L);
+    }
+
+    @Test
+    @DisplayName("Should check conflicts in the database when the index is disabled")
+    void findConflict_ShouldFallBackToDatabase() {
+        TeacherSchedule teacherSchedule = new TeacherSchedule(sessionRepository, teacherRepository, false);
+        when(sessionRepository.findSlotsByTeacherIdStartingBetween(eq(1L), any(Date.class), any(Date.class)))
+                .thenReturn(Arrays.asList(slot(10L, 1L, 0, 60), slot(11L, 1L, 2 * HOUR, 60)));
+
+        assertEquals(Optional.of(11L), teacherSchedule.findConflict(1L, new Date(HOUR), 90, null));
+        assertFalse(teacherSchedule.findConflict(1L, new Date(HOUR), 60, null).isPresent());
+
+        verify(sessionRepository, never()).findSlotsByTeacherId(anyLong());
+        verify(teacherRepository, times(2)).lockById(1L);
+    }
+
+    private static SessionSlot slot(Long id, Long teacherId, long start, int duration) {
+        return new SessionSlot() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getTeacherId() {
+                return teacherId;
+            }
+
+            @Override
+            public Date getDate() {
+                return new Date(start);
+            }
+
+            @Override
+            public Integer getDuration() {
+                return duration;
+            }
+        };
+    }
+}
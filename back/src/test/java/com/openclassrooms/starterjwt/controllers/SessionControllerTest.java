@@ -27,12 +27,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.mocks.SessionMocks;
 import com.openclassrooms.starterjwt.mocks.TeacherMocks;
@@ -40,10 +43,12 @@ import com.openclassrooms.starterjwt.mocks.UserMocks;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.ResourceVersionService;
 import com.openclassrooms.starterjwt.services.SessionService;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@TestPropertySource(properties = {"oc.app.sessionCatalog.enabled=false", "oc.app.responseCache.enabled=false"})
 public class SessionControllerTest {
 
     // MockMvc pour simuler les appels HTTP et ObjectMapper pour sérialiser/désérialiser les objets JSON
@@ -69,6 +74,9 @@ public class SessionControllerTest {
     @MockBean
     private SessionMapper sessionMapper;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     private Session testSession;
     private SessionDto testSessionDto;
     private List<Session> testSessions;
@@ -132,6 +140,49 @@ public class SessionControllerTest {
         verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
+    // Without the catalog, a conditional GET is answered from the version column alone
+    @Test
+    @DisplayName("GET /api/session/{id} - Not Modified without loading the session")
+    public void testGetSessionById_NotModified() throws Exception {
+        when(sessionService.getVersionById(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/session/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, resourceVersionService.versionEtag(Resource.SESSION, 1L, 3L))
+                        .with(SecurityMockMvcRequestPostProcessors.user("andre@mail.com")))
+                .andExpect(status().isNotModified());
+
+        verify(sessionService, never()).getById(anyLong());
+        verify(sessionMapper, never()).toDto(any(Session.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/session/{id} - Stale copy loads the session")
+    public void testGetSessionById_StaleCopy() throws Exception {
+        when(sessionService.getVersionById(1L)).thenReturn(4L);
+        when(sessionService.getById(1L)).thenReturn(testSession);
+
+        mockMvc.perform(get("/api/session/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, resourceVersionService.versionEtag(Resource.SESSION, 1L, 3L))
+                        .with(SecurityMockMvcRequestPostProcessors.user("andre@mail.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+
+        verify(sessionService).getById(1L);
+    }
+
+    @Test
+    @DisplayName("GET /api/session/{id} - Conditional request for a missing session")
+    public void testGetSessionById_ConditionalNotFound() throws Exception {
+        when(sessionService.getVersionById(99L)).thenReturn(null);
+
+        mockMvc.perform(get("/api/session/99")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"session-99-v1\"")
+                        .with(SecurityMockMvcRequestPostProcessors.user("andre@mail.com")))
+                .andExpect(status().isNotFound());
+
+        verify(sessionService, never()).getById(anyLong());
+    }
+
     // Test GET /api/session/{id} - ID invalide (non numérique)
     @Test
     @DisplayName("GET /api/session/{id} - Invalid ID")
@@ -23,6 +23,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.openclassrooms.starterjwt.dto.TeacherDto;
@@ -32,6 +33,7 @@ import com.openclassrooms.starterjwt.services.TeacherService;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@TestPropertySource(properties = "oc.app.responseCache.enabled=false")
 public class TeacherControllerTest {
 
     // MockMvc pour simuler les appels HTTP sur le contrôleur
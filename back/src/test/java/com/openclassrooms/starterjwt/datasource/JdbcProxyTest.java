@@ -0,0 +1,125 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Unit test of the proxy shared by the JDBC listeners
+@ExtendWith(MockitoExtension.class)
+public class JdbcProxyTest {
+
+    @Mock
+    private ObjectProvider<JdbcListener> listenerProvider;
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private final List<String> calls = new ArrayList<>();
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(listenerProvider.orderedStream()).thenReturn(Stream.of(new Recorder("outer"), new Recorder("inner")));
+        lenient().when(target.getConnection()).thenReturn(connection);
+        dataSource = (DataSource) new JdbcProxy(listenerProvider).postProcessAfterInitialization(target, "dataSource");
+    }
+
+    @Test
+    @DisplayName("Should wrap only the dataSource bean")
+    void postProcess_ShouldIgnoreOtherBeans() {
+        assertSame(target, new JdbcProxy(listenerProvider).postProcessAfterInitialization(target, "replicaDataSource"));
+    }
+
+    @Test
+    @DisplayName("Should nest the listeners in their order around each execution and report the rows read")
+    void execute_ShouldNestListenersInOrder() throws SQLException {
+        when(connection.prepareStatement("SELECT 1")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+
+        try (Connection proxied = dataSource.getConnection();
+             PreparedStatement prepared = proxied.prepareStatement("SELECT 1");
+             ResultSet rows = prepared.executeQuery()) {
+            while (rows.next()) {
+                calls.add("row read");
+            }
+        }
+
+        assertEquals(List.of("outer connection", "inner connection",
+                "outer execute SELECT 1 (0)", "inner execute SELECT 1 (0)", "inner end", "outer end",
+                "outer row", "inner row", "row read",
+                "inner close", "outer close"), calls);
+    }
+
+    @Test
+    @DisplayName("Should pass the batch size and the error of a failed execution")
+    void executeBatch_ShouldReportBatchSizeAndError() throws SQLException {
+        SQLException failure = new SQLException("constraint violated");
+        when(connection.prepareStatement("INSERT INTO T VALUES (?)")).thenReturn(statement);
+        when(statement.executeBatch()).thenThrow(failure);
+
+        Connection proxied = dataSource.getConnection();
+        PreparedStatement prepared = proxied.prepareStatement("INSERT INTO T VALUES (?)");
+        prepared.addBatch();
+        prepared.addBatch();
+
+        assertSame(failure, assertThrows(SQLException.class, prepared::executeBatch));
+        assertTrue(calls.contains("outer execute INSERT INTO T VALUES (?) (2)"));
+        assertTrue(calls.contains("inner end constraint violated"));
+    }
+
+    private final class Recorder implements JdbcListener {
+        private final String name;
+
+        private Recorder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Runnable onConnection() {
+            calls.add(this.name + " connection");
+            return () -> calls.add(this.name + " close");
+        }
+
+        @Override
+        public Execution onExecute(String sql, int batchSize) {
+            calls.add(this.name + " execute " + sql + " (" + batchSize + ")");
+            return new Execution() {
+                @Override
+                public void onRow() {
+                    calls.add(name + " row");
+                }
+
+                @Override
+                public void onEnd(Throwable error) {
+                    calls.add(name + " end" + (error != null ? " " + error.getMessage() : ""));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Unit test for the reactive read client: the configured MySQL URL resolves to a driver without connecting
+public class ReactiveReadConfigTest {
+
+    private final ReactiveReadConfig reactiveReadConfig = new ReactiveReadConfig();
+
+    @AfterEach
+    void tearDown() {
+        reactiveReadConfig.close();
+    }
+
+    @Test
+    @DisplayName("Should resolve the MySQL R2DBC driver from the configured URL")
+    void reactiveDatabaseClient_ShouldUseMySqlDriver() {
+        DatabaseClient databaseClient = reactiveReadConfig.reactiveDatabaseClient(
+                "r2dbc:mysql://localhost:3306/yogadb?sslMode=DISABLED", "user", "secret", 2);
+
+        assertEquals("MySQL", databaseClient.getConnectionFactory().getMetadata().getName());
+    }
+}
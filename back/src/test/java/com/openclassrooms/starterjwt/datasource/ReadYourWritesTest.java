@@ -0,0 +1,170 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource.Route;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.ResourceVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Unit test of the routing and of reading one's own writes
+@ExtendWith(MockitoExtension.class)
+public class ReadYourWritesTest {
+
+    @Mock
+    private JdbcTemplate replica;
+
+    @Mock
+    private ObjectProvider<ResourceVersionRepository> resourceVersionRepositoryProvider;
+
+    @Mock
+    private ResourceVersionRepository resourceVersionRepository;
+
+    private ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(resourceVersionRepositoryProvider.getObject()).thenReturn(resourceVersionRepository);
+        readYourWrites = new ReadYourWrites(1000, replica, resourceVersionRepositoryProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Should route only read-only transactions to the replica")
+    void current_ShouldRouteReadOnlyTransactionsToReplica() {
+
+        assertEquals(Route.PRIMARY, ReplicaRoutingDataSource.current(readYourWrites));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(Route.REPLICA, ReplicaRoutingDataSource.current(readYourWrites));
+    }
+
+    @Test
+    @DisplayName("Should route read-only transactions to the primary inside a primary scope")
+    void primary_ShouldOverrideReplicaUntilClosed() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (ReplicaRoutingDataSource.PrimaryScope outer = ReplicaRoutingDataSource.primary()) {
+            try (ReplicaRoutingDataSource.PrimaryScope inner = ReplicaRoutingDataSource.primary()) {
+                assertEquals(Route.PRIMARY, ReplicaRoutingDataSource.current(readYourWrites));
+            }
+            assertEquals(Route.PRIMARY, ReplicaRoutingDataSource.current(readYourWrites));
+        }
+        assertEquals(Route.REPLICA, ReplicaRoutingDataSource.current(readYourWrites));
+        assertEquals(Route.PRIMARY,
+                ReplicaRoutingDataSource.onPrimary(() -> ReplicaRoutingDataSource.current(readYourWrites)));
+    }
+
+    // A request that modifies reads everything from the primary, until the end of the request
+    @Test
+    @DisplayName("Should pin unsafe requests to the primary")
+    void preHandle_ShouldPinWriteRequestToPrimary() {
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/session");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        readYourWrites.preHandle(new MockHttpServletRequest("GET", "/api/session"), response, null);
+        assertFalse(readYourWrites.primaryRequired());
+
+        readYourWrites.preHandle(post, response, null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(Route.PRIMARY, ReplicaRoutingDataSource.current(readYourWrites));
+
+        readYourWrites.afterCompletion(post, response, null, null);
+        assertEquals(Route.REPLICA, ReplicaRoutingDataSource.current(readYourWrites));
+    }
+
+    // The write hands its client the version it commits, in a cookie kept for maxLagMs
+    @Test
+    @DisplayName("Should give the author of a write a cookie with the written version")
+    void onResourceWritten_ShouldSetVersionCookie() {
+        when(resourceVersionRepository.find(Resource.SESSION)).thenReturn(42L);
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/session");
+        post.setCookies(new Cookie(ReadYourWrites.COOKIE, "USER.7"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        readYourWrites.preHandle(post, response, null);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(post, response));
+
+        readYourWrites.onResourceWritten(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, 1L));
+
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.startsWith(ReadYourWrites.COOKIE + "=SESSION.42-USER.7;"));
+        assertTrue(cookie.contains("Max-Age=1"));
+    }
+
+    @Test
+    @DisplayName("Should not set a cookie for writes outside a request")
+    void onResourceWritten_ShouldIgnoreWritesOutsideRequest() {
+        readYourWrites.onResourceWritten(new ResourceChangedEvent(Resource.USER, ChangeType.CREATED, 1L));
+
+        verifyNoInteractions(resourceVersionRepository);
+    }
+
+    // Whichever instance serves the next read, it stays on the primary until the replica has the written version
+    @Test
+    @DisplayName("Should pin a client to the primary until the replica has its write")
+    void preHandle_ShouldPinClientUntilReplicaCatchesUp() {
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/session");
+        get.setCookies(new Cookie(ReadYourWrites.COOKIE, "SESSION.42"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(replica.query(anyString(), any(ResultSetExtractor.class))).thenReturn(Map.of("SESSION", 41L));
+        readYourWrites.preHandle(get, response, null);
+        assertTrue(readYourWrites.primaryRequired());
+        readYourWrites.afterCompletion(get, response, null, null);
+
+        when(replica.query(anyString(), any(ResultSetExtractor.class))).thenReturn(Map.of("SESSION", 42L));
+        readYourWrites.preHandle(get, response, null);
+        assertFalse(readYourWrites.primaryRequired());
+    }
+
+    @Test
+    @DisplayName("Should read from the primary when the replica versions are unavailable")
+    void preHandle_ShouldPinClient_WhenReplicaFails() {
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/session");
+        get.setCookies(new Cookie(ReadYourWrites.COOKIE, "SESSION.42"));
+        when(replica.query(anyString(), any(ResultSetExtractor.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("Replica down"));
+
+        readYourWrites.preHandle(get, new MockHttpServletResponse(), null);
+
+        assertTrue(readYourWrites.primaryRequired());
+    }
+
+    @Test
+    @DisplayName("Should ignore malformed parts of the cookie")
+    void parse_ShouldIgnoreMalformedParts() {
+        assertEquals(Map.of(Resource.SESSION, 3L, Resource.USER, 5L),
+                ReadYourWrites.parse("SESSION.3-BOGUS.1-TEACHER.x-USER-USER.5"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.LeaseRepository;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+// Unit test for the outbox relay
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private LeaseRepository leaseRepository;
+
+    @Mock
+    private OutboxSink firstSink;
+
+    @Mock
+    private OutboxSink secondSink;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxRepository, leaseRepository, List.of(firstSink, secondSink), 2, 100, 1000,
+                30000, null);
+        lenient().when(leaseRepository.acquire(LeaseRepository.OUTBOX_RELAY, 30000)).thenReturn(true);
+    }
+
+    private static OutboxMessage message(long id, Long sessionId) {
+        return new OutboxMessage(id, Resource.SESSION, ChangeType.PARTICIPANT_ADDED, sessionId, 5L,
+                LocalDateTime.now().minusSeconds(1));
+    }
+
+    // Each batch goes to every sink, then it is deleted; a full batch calls for another one
+    @Test
+    @DisplayName("Should deliver batches to every sink, then delete them")
+    void drain_ShouldDeliverBatchesToEverySinkThenDelete() throws Exception {
+        List<OutboxMessage> first = List.of(message(1, 10L), message(2, 10L));
+        List<OutboxMessage> second = List.of(message(3, 11L));
+        when(outboxRepository.findNext(2)).thenReturn(first, second);
+
+        int delivered = outboxRelay.drain();
+
+        assertEquals(3, delivered);
+        InOrder inOrder = inOrder(firstSink, secondSink, outboxRepository);
+        inOrder.verify(firstSink).deliver(first);
+        inOrder.verify(secondSink).deliver(first);
+        inOrder.verify(outboxRepository).delete(List.of(1L, 2L));
+        inOrder.verify(firstSink).deliver(second);
+        inOrder.verify(secondSink).deliver(second);
+        inOrder.verify(outboxRepository).delete(List.of(3L));
+        verify(outboxRepository, times(2)).findNext(2);
+        verify(leaseRepository, times(2)).acquire(LeaseRepository.OUTBOX_RELAY, 30000);
+    }
+
+    // Another instance relays: this one reads nothing
+    @Test
+    @DisplayName("Should not deliver while another instance holds the lease")
+    void drain_ShouldSkip_WhenLeaseIsHeldElsewhere() throws Exception {
+        when(leaseRepository.acquire(LeaseRepository.OUTBOX_RELAY, 30000)).thenReturn(false);
+
+        assertEquals(0, outboxRelay.drain());
+
+        verifyNoInteractions(outboxRepository, firstSink, secondSink);
+    }
+
+    // The lease is lost between two batches: the relay stops after the batch it had claimed
+    @Test
+    @DisplayName("Should stop draining when the lease cannot be renewed")
+    void drain_ShouldStop_WhenLeaseIsLost() throws Exception {
+        when(leaseRepository.acquire(LeaseRepository.OUTBOX_RELAY, 30000)).thenReturn(true, false);
+        when(outboxRepository.findNext(2)).thenReturn(List.of(message(1, 10L), message(2, 10L)));
+
+        assertEquals(2, outboxRelay.drain());
+
+        verify(outboxRepository, times(1)).findNext(2);
+    }
+
+    // A failing sink: nothing is deleted, the same batch is delivered again to all on the next pass
+    @Test
+    @DisplayName("Should keep and redeliver the batch when a sink fails")
+    void drain_ShouldKeepBatch_WhenSinkFails() throws Exception {
+        List<OutboxMessage> batch = List.of(message(1, 10L));
+        when(outboxRepository.findNext(2)).thenReturn(batch, batch, Collections.emptyList());
+        when(secondSink.name()).thenReturn("http");
+        doThrow(new IOException("connection refused")).doNothing().when(secondSink).deliver(batch);
+
+        assertEquals(0, outboxRelay.drain());
+        verify(outboxRepository, never()).delete(any());
+
+        assertEquals(1, outboxRelay.drain());
+        verify(firstSink, times(2)).deliver(batch);
+        verify(outboxRepository).delete(List.of(1L));
+    }
+
+    // After a failure, the periodic passes wait before retrying
+    @Test
+    @DisplayName("Should back off after a failure")
+    void tick_ShouldBackOff_AfterFailure() throws Exception {
+        when(outboxRepository.findNext(2)).thenReturn(List.of(message(1, 10L)));
+        when(firstSink.name()).thenReturn("logFile");
+        doThrow(new IOException("disk full")).when(firstSink).deliver(any());
+
+        outboxRelay.tick();
+        outboxRelay.tick();
+
+        verify(outboxRepository, times(1)).findNext(anyInt());
+        verifyNoInteractions(secondSink);
+    }
+
+    @Test
+    @DisplayName("Should report pending events, lag and the last error")
+    void stats_ShouldReportPendingAndLag() throws Exception {
+        when(outboxRepository.findNext(2)).thenReturn(List.of(message(1, 10L)));
+        when(firstSink.name()).thenReturn("logFile");
+        when(secondSink.name()).thenReturn("http");
+        doThrow(new IOException("disk full")).when(firstSink).deliver(any());
+        when(outboxRepository.pending()).thenReturn(
+                new OutboxRepository.Pending(1, LocalDateTime.now().minusSeconds(2)));
+
+        outboxRelay.drain();
+        OutboxRelay.Stats stats = outboxRelay.stats();
+
+        assertEquals(1, stats.getPending());
+        assertTrue(stats.getOldestPendingAgeMillis() >= 2000);
+        assertEquals(0, stats.getDelivered());
+        assertEquals(1, stats.getFailures());
+        assertEquals("logFile: disk full", stats.getLastError());
+        assertEquals(List.of("logFile", "http"), stats.getSinks());
+    }
+}
@@ -0,0 +1,211 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mocks.SessionMocks;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Unit test for the broadcast of session changes
+@ExtendWith(MockitoExtension.class)
+public class SessionEventHubTest {
+
+    private static final long SEND_TIMEOUT_MS = 100;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
+    private final SessionMocks sessionMocks = new SessionMocks();
+
+    private ExecutorService publisher;
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeats;
+    private SessionEventHub sessionEventHub;
+
+    @BeforeEach
+    void setUp() {
+        publisher = Executors.newSingleThreadExecutor();
+        dispatcher = Executors.newSingleThreadExecutor();
+        heartbeats = Executors.newSingleThreadScheduledExecutor();
+        sessionEventHub = new SessionEventHub(new ObjectMapper(), sessionRepository, sessionMapper, 2, 60_000,
+                SEND_TIMEOUT_MS, publisher, dispatcher, heartbeats);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdownNow();
+        dispatcher.shutdownNow();
+        heartbeats.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should push each session change to every subscriber")
+    void onResourceChanged_ShouldDeliverToSubscribers() throws Exception {
+        Session entity = new Session();
+        SessionDto created = sessionMocks.createSessionDto(1L, "Morning", 1L, Collections.emptyList(), false, false);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(entity));
+        when(sessionMapper.toDto(entity)).thenReturn(created);
+
+        sessionEventHub.subscribe();
+        sessionEventHub.subscribe();
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, 1L));
+        flush();
+
+        // A connection message then the delta, for each of the two subscribers
+        assertEquals(4, sessionEventHub.stats().getDelivered());
+        assertEquals(2, sessionEventHub.stats().getSubscribers());
+        verify(sessionRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Should load the session on the publisher thread, not on the thread that committed")
+    void onResourceChanged_ShouldLoadSessionOffCommittingThread() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        publisher.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        sessionEventHub.subscribe();
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, 1L));
+        verify(sessionRepository, never()).findById(any());
+
+        blocked.countDown();
+        flush();
+        verify(sessionRepository).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Should not read the database for deletions and participation changes")
+    void onResourceChanged_ShouldNotLoadSession_ForDeltasWithoutBody() throws Exception {
+        sessionEventHub.subscribe();
+        flush();
+
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 1L));
+        sessionEventHub.onResourceChanged(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, 1L, 2L));
+        flush();
+
+        assertEquals(3, sessionEventHub.stats().getDelivered());
+        verify(sessionRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should ignore events when nobody listens or when they concern another resource")
+    void onResourceChanged_ShouldIgnoreIrrelevantEvents() {
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, 1L));
+        sessionEventHub.subscribe();
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.TEACHER, ChangeType.UPDATED, 1L));
+
+        verifyNoInteractions(sessionRepository, sessionMapper);
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber whose buffer is full instead of blocking the writer")
+    void onResourceChanged_ShouldDropSlowConsumer() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        dispatcher.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        sessionEventHub.subscribe();
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 1L));
+        sessionEventHub.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 2L));
+        publisher.submit(() -> { }).get();
+
+        assertEquals(0, sessionEventHub.stats().getSubscribers());
+        assertEquals(1, sessionEventHub.stats().getDropped());
+
+        blocked.countDown();
+        flush();
+        assertEquals(0, sessionEventHub.stats().getDelivered());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber whose events have been pending longer than the send timeout")
+    void dropStalled_ShouldDropSubscriberPastSendTimeout() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        dispatcher.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sessionEventHub.subscribe();
+
+        // Still within the timeout
+        sessionEventHub.dropStalled();
+        assertEquals(1, sessionEventHub.stats().getSubscribers());
+
+        Thread.sleep(SEND_TIMEOUT_MS * 2);
+        sessionEventHub.dropStalled();
+        assertEquals(0, sessionEventHub.stats().getSubscribers());
+        assertEquals(1, sessionEventHub.stats().getDropped());
+
+        blocked.countDown();
+        flush();
+        assertEquals(0, sessionEventHub.stats().getDelivered());
+    }
+
+    @Test
+    @DisplayName("Should keep idle subscribers whose events were all delivered")
+    void dropStalled_ShouldKeepIdleSubscribers() throws Exception {
+        sessionEventHub.subscribe();
+        flush();
+
+        Thread.sleep(SEND_TIMEOUT_MS * 2);
+        sessionEventHub.dropStalled();
+
+        assertEquals(1, sessionEventHub.stats().getSubscribers());
+        assertEquals(0, sessionEventHub.stats().getDropped());
+    }
+
+    @Test
+    @DisplayName("Should send heartbeats to idle subscribers")
+    void heartbeat_ShouldReachSubscribers() throws Exception {
+        sessionEventHub.subscribe();
+
+        sessionEventHub.heartbeat();
+        flush();
+
+        assertEquals(2, sessionEventHub.stats().getDelivered());
+    }
+
+    // Waits until the publisher, then the broadcast pool, have processed every task already submitted
+    private void flush() throws Exception {
+        publisher.submit(() -> { }).get();
+        dispatcher.submit(() -> { }).get();
+    }
+}
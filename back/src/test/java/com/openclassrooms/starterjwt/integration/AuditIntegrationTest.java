@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Integration test of the audit log: the changes made through the API are written to AUDIT_LOG by the
+// writer thread (drained by hand here) with their author and the fields changed
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AuditIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        auditLog.flush();
+    }
+
+    private SessionDto sessionDto(String name) {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName(name);
+        sessionDto.setDescription("Audited session");
+        sessionDto.setDate(new Date());
+        sessionDto.setTeacher_id(1L);
+        sessionDto.setUsers(new ArrayList<>());
+        return sessionDto;
+    }
+
+    // Each change to a session leaves an entry, the most recent first
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void sessionMutations_ShouldBeAudited() throws Exception {
+        String created = mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto("Morning flow"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = ((Number) JsonPath.read(created, "$.id")).longValue();
+
+        mockMvc.perform(put("/api/session/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto("Evening flow"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/" + id + "/participate/2")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/session/" + id)).andExpect(status().isOk());
+
+        auditLog.flush();
+
+        mockMvc.perform(get("/api/audit").param("entity", "session").param("id", Long.toString(id)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].action", contains("DELETED", "PARTICIPANT_ADDED", "UPDATED", "CREATED")))
+                .andExpect(jsonPath("$[*].actor", everyItem(is("yoga@studio.com"))))
+                .andExpect(jsonPath("$[0].changes.name.from", is("Evening flow")))
+                .andExpect(jsonPath("$[1].changes.userId.to", is(2)))
+                .andExpect(jsonPath("$[2].changes.name.from", is("Morning flow")))
+                .andExpect(jsonPath("$[2].changes.name.to", is("Evening flow")))
+                .andExpect(jsonPath("$[2].changes.description").doesNotExist())
+                .andExpect(jsonPath("$[3].changes.name.to", is("Morning flow")));
+    }
+
+    // A sign-up is signed by the created account, without its password
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void register_ShouldBeAuditedWithoutPassword() throws Exception {
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setEmail("audited@test.com");
+        signupRequest.setFirstName("Audited");
+        signupRequest.setLastName("Member");
+        signupRequest.setPassword("secret123");
+
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signupRequest)))
+                .andExpect(status().isOk());
+        Long userId = userRepository.findByEmail("audited@test.com").orElseThrow().getId();
+
+        auditLog.flush();
+
+        mockMvc.perform(get("/api/audit").param("entity", "USER").param("id", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].actor", is("audited@test.com")))
+                .andExpect(jsonPath("$[0].action", is("CREATED")))
+                .andExpect(jsonPath("$[0].changes.email.to", is("audited@test.com")))
+                .andExpect(jsonPath("$[0].changes.password").doesNotExist());
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findByEntity_ShouldRejectUnknownEntity() throws Exception {
+        mockMvc.perform(get("/api/audit").param("entity", "invoice").param("id", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithUserDetails("user@test.com")
+    void findByEntity_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(get("/api/audit").param("entity", "session").param("id", "1"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,137 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Measures bulk writes (members, sessions, registrations): the throughput is logged, and the number of
+// prepared statements shows that the inserts go out in batches rather than one per row.
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkInsertIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(BulkInsertIntegrationTest.class);
+
+    private static final int USERS = 500;
+    private static final int SESSIONS = 500;
+    private static final int PARTICIPANTS_PER_SESSION = 4;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id IN "
+                + "(SELECT id FROM SESSIONS WHERE name LIKE 'Bulk %')");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Bulk %'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE 'bulk.%'");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @DisplayName("Bulk writes should be sent in JDBC batches")
+    void bulkWrites_ShouldBeBatched() {
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder()
+                    .email("bulk." + i + "@test.com")
+                    .firstName("Bulk")
+                    .lastName("User" + i)
+                    .password("password")
+                    .admin(false)
+                    .build());
+        }
+
+        long start = System.nanoTime();
+        List<User> savedUsers = transactionTemplate.execute(status -> userRepository.saveAll(users));
+        long userInserts = statistics.getPrepareStatementCount();
+        report("users", USERS, start, userInserts);
+
+        Teacher teacher = teacherRepository.findAll().get(0);
+        List<Session> sessions = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            List<User> participants = new ArrayList<>(PARTICIPANTS_PER_SESSION);
+            for (int p = 0; p < PARTICIPANTS_PER_SESSION; p++) {
+                participants.add(savedUsers.get((i + p) % USERS));
+            }
+            sessions.add(Session.builder()
+                    .name("Bulk " + i)
+                    .description("Bulk session")
+                    .date(new Date(TimeUnit.DAYS.toMillis(20000 + i)))
+                    .duration(60)
+                    .teacher(teacher)
+                    .users(participants)
+                    .build());
+        }
+
+        statistics.clear();
+        start = System.nanoTime();
+        transactionTemplate.execute(status -> sessionRepository.saveAll(sessions));
+        long sessionInserts = statistics.getPrepareStatementCount();
+        report("sessions + participations", SESSIONS * (1 + PARTICIPANTS_PER_SESSION), start, sessionInserts);
+
+        assertEquals(SESSIONS * PARTICIPANTS_PER_SESSION, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM PARTICIPATE p JOIN SESSIONS s ON s.id = p.session_id WHERE s.name LIKE 'Bulk %'",
+                Integer.class));
+        // One statement per batch (plus the identifier reservations), far from one per row
+        assertThat(userInserts, lessThan((long) USERS / 10));
+        assertThat(sessionInserts, lessThan((long) SESSIONS * (1 + PARTICIPANTS_PER_SESSION) / 10));
+    }
+
+    private void report(String what, int rows, long start, long statements) {
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("Bulk insert of {} {} rows: {} ms, {} rows/s, {} prepared statements",
+                rows, what, elapsedMillis, rows * 1000L / elapsedMillis, statements);
+    }
+}
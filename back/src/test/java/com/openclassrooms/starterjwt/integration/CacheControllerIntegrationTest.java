@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the cache statistics endpoint
+@SpringBootTest
+@ActiveProfiles("test")
+class CacheControllerIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    // An administrator sees the statistics of the second-level cache regions
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void stats_ShouldReturnRegions_ForAdmin() throws Exception {
+        mockMvc.perform(get("/api/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.secondLevelCache[*].region", hasItem("teachers")))
+                .andExpect(jsonPath("$.secondLevelCache[*].region", hasItem("users")))
+                .andExpect(jsonPath("$.sessionEvents.subscribers").exists());
+    }
+
+    // A non-admin user is refused
+    @Test
+    @WithUserDetails("user@test.com")
+    void stats_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(get("/api/cache/stats"))
+                .andExpect(status().isForbidden());
+    }
+}
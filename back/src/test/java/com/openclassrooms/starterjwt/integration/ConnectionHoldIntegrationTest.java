@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Integration test of the per-endpoint measurement of connection hold times
+@SpringBootTest
+@ActiveProfiles("test")
+class ConnectionHoldIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionHoldIntegrationTest.class);
+
+    private static final int REQUESTS = 20;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    // Connections counted under the endpoint's pattern: one per read request, plus one for the stored version the
+    // ETag of a collection is derived from
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void stats_ShouldRecordHoldTimePerEndpoint() throws Exception {
+        mockMvc.perform(delete("/api/datasource/stats")).andExpect(status().isOk());
+
+        for (int i = 0; i < REQUESTS; i++) {
+            mockMvc.perform(get("/api/session")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/teacher")).andExpect(status().isOk());
+            mockMvc.perform(get("/api/user/1")).andExpect(status().isOk());
+        }
+
+        String body = mockMvc.perform(get("/api/datasource/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.connectionHold[?(@.endpoint == 'GET /api/session')].count",
+                        contains(2 * REQUESTS)))
+                .andExpect(jsonPath("$.connectionHold[?(@.endpoint == 'GET /api/teacher')].count",
+                        contains(2 * REQUESTS)))
+                .andExpect(jsonPath("$.connectionHold[?(@.endpoint == 'GET /api/user/{id}')].count", contains(REQUESTS)))
+                .andReturn().getResponse().getContentAsString();
+
+        List<Object> stats = JsonPath.read(body, "$.connectionHold[*]");
+        stats.forEach(endpoint -> logger.info("Connection hold: {}", endpoint));
+    }
+
+    @Test
+    @WithUserDetails("user@test.com")
+    void stats_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(get("/api/datasource/stats")).andExpect(status().isForbidden());
+    }
+}
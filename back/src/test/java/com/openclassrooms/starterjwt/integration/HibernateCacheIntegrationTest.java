@@ -0,0 +1,60 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Integration test of the second-level cache: without a test transaction, each mapper call opens its own
+// Hibernate session, so only the shared cache can avoid the database
+@SpringBootTest
+@ActiveProfiles("test")
+class HibernateCacheIntegrationTest {
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    // The second mapping of a session reads the teacher and the participants from the cache
+    @Test
+    void toEntity_ShouldServeReferenceDataFromCache() {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setTeacher_id(1L);
+        sessionDto.setUsers(Arrays.asList(1L, 2L));
+
+        Session first = sessionMapper.toEntity(sessionDto);
+        long statementsAfterFirst = statistics.getPrepareStatementCount();
+        long hitsAfterFirst = statistics.getSecondLevelCacheHitCount();
+
+        Session second = sessionMapper.toEntity(sessionDto);
+
+        assertTrue(statementsAfterFirst > 0);
+        assertEquals(statementsAfterFirst, statistics.getPrepareStatementCount());
+        assertEquals(hitsAfterFirst + 3, statistics.getSecondLevelCacheHitCount());
+        assertEquals(first.getTeacher().getLastName(), second.getTeacher().getLastName());
+        assertEquals(2, second.getUsers().size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the CSV imports: no test transaction, each batch being committed in its own transaction
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.import.chunkSize=2")
+class ImportControllerIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    // Cleans up the imported rows, committed in the database
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name LIKE 'IMPORT%'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@import.test'");
+    }
+
+    // Valid teachers are inserted, invalid rows appear in the report
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void importTeachers_ShouldInsertValidRows() throws Exception {
+        long before = teacherRepository.count();
+
+        mockMvc.perform(post("/api/import/teachers")
+                        .contentType("text/csv")
+                        .content("first_name,last_name\nAnne,IMPORT1\nBruno,IMPORT2\nCamille,\nDavid,IMPORT3\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(4));
+
+        assertEquals(before + 3, teacherRepository.count());
+    }
+
+    // Imported members can log in with their password, duplicates are rejected
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void importUsers_ShouldHashPasswordsAndRejectDuplicates() throws Exception {
+        mockMvc.perform(post("/api/import/users")
+                        .contentType("text/csv")
+                        .content("email,first_name,last_name,password\n"
+                                + "anne@import.test,Anne,Martin,secret1\n"
+                                + "yoga@studio.com,Yoga,Studio,secret2\n"
+                                + "anne@import.test,Anne,Again,secret3\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.errors[1].line").value(4));
+
+        String hash = userRepository.findByEmail("anne@import.test").orElseThrow(AssertionError::new).getPassword();
+        assertTrue(passwordEncoder.matches("secret1", hash));
+    }
+
+    // A file without the expected columns is refused
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void importUsers_ShouldReturnBadRequest_WhenColumnsAreMissing() throws Exception {
+        mockMvc.perform(post("/api/import/users").contentType("text/csv").content("email\nanne@import.test\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // A non-admin user cannot import
+    @Test
+    @WithUserDetails("user@test.com")
+    void importTeachers_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(post("/api/import/teachers").contentType("text/csv").content("first_name,last_name\n"))
+                .andExpect(status().isForbidden());
+    }
+}
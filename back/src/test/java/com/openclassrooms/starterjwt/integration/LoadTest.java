@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.integration;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Small load bench for the integration tests on a real server: sends the requests in waves of
+// concurrency, measures the throughput and the p50/p99 latencies
+final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    static Result run(HttpClient httpClient, Supplier<HttpRequest> request, int requests, int concurrency) {
+        long[] latencies = new long[requests];
+        AtomicInteger succeeded = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int from = 0; from < requests; from += concurrency) {
+            List<CompletableFuture<Void>> wave = new ArrayList<>();
+            for (int i = from; i < Math.min(requests, from + concurrency); i++) {
+                int index = i;
+                long sent = System.nanoTime();
+                wave.add(httpClient.sendAsync(request.get(), HttpResponse.BodyHandlers.ofString())
+                        .thenAccept(response -> {
+                            latencies[index] = System.nanoTime() - sent;
+                            if (response.statusCode() == 200) {
+                                succeeded.incrementAndGet();
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(wave.toArray(new CompletableFuture[0])).join();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(succeeded.get(), requests * 1_000_000_000L / Math.max(elapsed, 1),
+                latencies[requests / 2] / 1_000_000, latencies[requests * 99 / 100] / 1_000_000);
+    }
+
+    static class Result {
+        final int succeeded;
+        final long requestsPerSecond;
+        final long p50Millis;
+        final long p99Millis;
+
+        Result(int succeeded, long requestsPerSecond, long p50Millis, long p99Millis) {
+            this.succeeded = succeeded;
+            this.requestsPerSecond = requestsPerSecond;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        @Override
+        public String toString() {
+            return requestsPerSecond + " req/s, p50 " + p50Millis + " ms, p99 " + p99Millis + " ms";
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Metrics integration test: after a signup, a login and session reads, the Prometheus page, served without a token on
+// the management port only, holds the timers (with histograms and percentiles) of every measured path.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+@ActiveProfiles("test")
+class MetricsIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void prometheus_ShouldExposeHotPathTimers() throws Exception {
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setEmail("metrics@test.com");
+        signupRequest.setFirstName("Metrics");
+        signupRequest.setLastName("Test");
+        signupRequest.setPassword("password123");
+        assertEquals(200, post("/api/auth/register", signupRequest).statusCode());
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("metrics@test.com");
+        loginRequest.setPassword("password123");
+        HttpResponse<String> login = post("/api/auth/login", loginRequest);
+        assertEquals(200, login.statusCode());
+        String token = objectMapper.readTree(login.body()).get("token").asText();
+
+        for (String path : new String[]{"/api/session", "/api/session", "/api/teacher/1"}) {
+            assertEquals(200, httpClient.send(HttpRequest.newBuilder(uri(path))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+
+        HttpResponse<String> apiPort = httpClient.send(HttpRequest.newBuilder(uri("/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, apiPort.statusCode());
+
+        HttpResponse<String> prometheus = httpClient.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + managementPort + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, prometheus.statusCode());
+        String body = prometheus.body();
+
+        assertFalse(lines(body, "http_server_requests_seconds_bucket", "uri=\"/api/session\"").isEmpty());
+        assertFalse(lines(body, "http_server_requests_seconds{", "uri=\"/api/teacher/{id}\"", "quantile=\"0.99\"")
+                .isEmpty());
+        assertEquals(3.0, value(body, "jwt_verification_seconds_count", "outcome=\"valid\""));
+        // The sign-up, plus the dummy hash DaoAuthenticationProvider makes against timing attacks
+        assertTrue(value(body, "password_encoder_seconds_count", "operation=\"encode\"") >= 1.0);
+        assertEquals(1.0, value(body, "password_encoder_seconds_count", "operation=\"matches\""));
+        assertFalse(lines(body, "password_encoder_seconds_bucket").isEmpty());
+        assertEquals(2.0, value(body, "mapper_conversions_seconds_count", "mapper=\"SessionMapper\"",
+                "method=\"toDtoList\""));
+        assertFalse(lines(body, "spring_data_repository_invocations_seconds_count",
+                "repository=\"UserRepository\"", "method=\"findByEmail\"").isEmpty());
+        assertFalse(lines(body, "hibernate_statements_total").isEmpty());
+        assertEquals(2.0, value(body, "jdbc_request_statements_count", "method=\"GET\"", "uri=\"/api/session\""));
+        assertTrue(value(body, "jdbc_request_statements_sum", "method=\"GET\"", "uri=\"/api/session\"") >= 2.0);
+        assertFalse(lines(body, "jdbc_request_time_seconds_bucket", "uri=\"/api/session\"").isEmpty());
+        assertFalse(lines(body, "jdbc_request_rows_sum", "uri=\"/api/teacher/{id}\"").isEmpty());
+        assertTrue(lines(body, "jwt_verification_seconds_count").stream()
+                .allMatch(line -> line.contains("application=\"yoga-app\"")));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(uri(path))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<String> lines(String body, String metric, String... labels) {
+        return Arrays.stream(body.split("\n"))
+                .filter(line -> line.startsWith(metric))
+                .filter(line -> Arrays.stream(labels).allMatch(line::contains))
+                .collect(Collectors.toList());
+    }
+
+    private static double value(String body, String metric, String... labels) {
+        List<String> lines = lines(body, metric, labels);
+        assertEquals(1, lines.size(), metric + " " + Arrays.toString(labels) + ": " + lines);
+        return Double.parseDouble(lines.get(0).substring(lines.get(0).lastIndexOf(' ') + 1));
+    }
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the name search with the in-memory index, on the initial data
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.nameSearch.enabled=true")
+class NameSearchIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    }
+
+    // Accents and case are ignored
+    @Test
+    @WithUserDetails("user@test.com")
+    void searchTeachers_ShouldIgnoreAccentsAndCase() throws Exception {
+        mockMvc.perform(get("/api/teacher/search").param("q", "HELENE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lastName", is("THIERCELIN")));
+    }
+
+    // An administrator finds a member by the start of their email, without exposing the password
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void searchUsers_ShouldMatchEmailPrefix_ForAdmin() throws Exception {
+        mockMvc.perform(get("/api/user/search").param("q", "user@"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is("user@test.com")))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    // Member search is reserved for administrators
+    @Test
+    @WithUserDetails("user@test.com")
+    void searchUsers_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(get("/api/user/search").param("q", "user"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,161 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Smoke test of the native image, enabled by native.smoke=true (set by the native Maven profile, which CI builds):
+// starts the binary on an in-memory H2 database, logs the startup time and resident memory, then walks through
+// signup, login and reads over HTTP. A missing binary fails the test instead of skipping it.
+@EnabledIfSystemProperty(named = "native.smoke", matches = "true")
+class NativeImageSmokeIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(NativeImageSmokeIntegrationTest.class);
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Process process;
+    private int port;
+    private double startupSeconds;
+    private long launchMillis;
+
+    @BeforeEach
+    void start() throws Exception {
+        String binary = System.getProperty("native.binary");
+        assertTrue(binary != null && Files.isExecutable(Path.of(binary)), "No native binary at " + binary);
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        long launched = System.nanoTime();
+        process = new ProcessBuilder(binary,
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:native;MODE=MySQL;DATABASE_TO_UPPER=false",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--oc.app.outbox.pollMs=0")
+                .redirectErrorStream(true)
+                .start();
+
+        CompletableFuture<Double> started = CompletableFuture.supplyAsync(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        // The rest of the output is drained by another thread so the process never blocks
+                        BufferedReader rest = reader;
+                        CompletableFuture.runAsync(() -> rest.lines().forEach(ignored -> {
+                        }));
+                        return Double.parseDouble(matcher.group(1));
+                    }
+                }
+                return null;
+            } catch (Exception e) {
+                return null;
+            }
+        });
+        Double seconds = started.get(60, TimeUnit.SECONDS);
+        assertNotNull(seconds, "Native application did not start");
+        startupSeconds = seconds;
+        launchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        if (process != null) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void nativeBinary_ShouldStartFastAndServeRequests() throws Exception {
+        long rssKilobytes = residentSetKilobytes(process.pid());
+        logger.info("Native image started in {} s (reported by Spring), {} ms until ready, RSS {} MB",
+                startupSeconds, launchMillis, rssKilobytes / 1024);
+        assertTrue(startupSeconds > 0);
+        assertTrue(rssKilobytes > 0);
+
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setEmail("native@test.com");
+        signupRequest.setFirstName("Native");
+        signupRequest.setLastName("Image");
+        signupRequest.setPassword("password123");
+        assertEquals(200, post("/api/auth/register", signupRequest).statusCode());
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("native@test.com");
+        loginRequest.setPassword("password123");
+        HttpResponse<String> login = post("/api/auth/login", loginRequest);
+        assertEquals(200, login.statusCode());
+        String token = objectMapper.readTree(login.body()).get("token").asText();
+
+        for (String path : new String[]{"/api/session", "/api/teacher"}) {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri(path))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), path);
+            assertTrue(objectMapper.readTree(response.body()).isArray(), path);
+        }
+
+        HttpResponse<String> anonymous = httpClient.send(HttpRequest.newBuilder(uri("/api/session")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(401, anonymous.statusCode());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(uri(path))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Resident memory read from /proc (Linux), 0 elsewhere
+    private static long residentSetKilobytes(long pid) throws Exception {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")))
+                .findFirst()
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,172 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.OutboxRelay;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.LeaseRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Integration test of the outbox: the events are written with the change, then delivered by the relay to a
+// local HTTP service (stub) and to a file. Without a test transaction: the changes are committed.
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxIntegrationTest {
+
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static volatile int status = 200;
+    private static HttpServer server;
+    private static Path logFile;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void sinks(DynamicPropertyRegistry registry) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/events", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (status == 200) {
+                received.add(new String(body, StandardCharsets.UTF_8));
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        logFile = Files.createTempFile("outbox", ".log");
+
+        registry.add("oc.app.outbox.httpSink.url",
+                () -> "http://localhost:" + server.getAddress().getPort() + "/events");
+        registry.add("oc.app.outbox.logSink.file", () -> logFile.toString());
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.stop(0);
+        Files.deleteIfExists(logFile);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        outboxRelay.drain();
+        received.clear();
+        Files.write(logFile, new byte[0]);
+        status = 200;
+    }
+
+    private Session createSession() {
+        return sessionService.create(Session.builder()
+                .name("Outbox session")
+                .description("Outbox")
+                .date(new Date())
+                .users(new ArrayList<>())
+                .build());
+    }
+
+    private List<JsonNode> delivered() throws IOException {
+        List<JsonNode> events = new ArrayList<>();
+        for (String batch : received) {
+            objectMapper.readTree(batch).forEach(events::add);
+        }
+        return events;
+    }
+
+    // Committed changes are delivered in order; a refused registration wrote nothing
+    @Test
+    void drain_ShouldDeliverCommittedChangesInOrder() throws IOException {
+        Long sessionId = createSession().getId();
+        sessionService.participate(sessionId, 1L);
+        sessionService.participate(sessionId, 2L);
+        assertThrows(BadRequestException.class, () -> sessionService.participate(sessionId, 2L));
+        sessionService.noLongerParticipate(sessionId, 1L);
+
+        assertEquals(4, outboxRelay.stats().getPending());
+        assertEquals(4, outboxRelay.drain());
+
+        List<JsonNode> events = delivered();
+        assertEquals(List.of("CREATED", "PARTICIPANT_ADDED", "PARTICIPANT_ADDED", "PARTICIPANT_REMOVED"),
+                events.stream().map(event -> event.get("type").asText()).collect(Collectors.toList()));
+        assertTrue(events.stream().allMatch(event -> event.get("aggregateId").asLong() == sessionId));
+        assertEquals(2, events.get(2).get("userId").asLong());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).get("id").asLong() > events.get(i - 1).get("id").asLong());
+        }
+
+        List<String> lines = Files.readAllLines(logFile);
+        assertEquals(4, lines.size());
+        assertEquals(events.get(0), objectMapper.readTree(lines.get(0)));
+        assertEquals(0, outboxRelay.stats().getPending());
+    }
+
+    // Recipient unavailable: the events stay pending, then are delivered once the service is back
+    @Test
+    void drain_ShouldKeepEvents_UntilSinkRecovers() throws IOException {
+        Long sessionId = createSession().getId();
+        status = 503;
+
+        assertEquals(0, outboxRelay.drain());
+        OutboxRelay.Stats stats = outboxRelay.stats();
+        assertEquals(1, stats.getPending());
+        assertTrue(stats.getLastError().startsWith("http: "));
+
+        status = 200;
+        assertEquals(1, outboxRelay.drain());
+        assertEquals(sessionId, delivered().get(0).get("aggregateId").asLong());
+        assertEquals(0, outboxRelay.stats().getPending());
+    }
+
+    // The lease of this instance expires and another instance takes it over: this one leaves the events to it, then
+    // relays again once the other has released the lease
+    @Test
+    void drain_ShouldLeaveEvents_WhileAnotherInstanceRelays() throws IOException {
+        jdbcTemplate.update("UPDATE LEASES SET expires_at = TIMESTAMPADD(SECOND, -1, LOCALTIMESTAMP(3)) WHERE name = ?",
+                LeaseRepository.OUTBOX_RELAY);
+        LeaseRepository otherInstance = new LeaseRepository(jdbcTemplate, "other-instance");
+        assertTrue(otherInstance.acquire(LeaseRepository.OUTBOX_RELAY, 60_000));
+        Long sessionId = createSession().getId();
+
+        try {
+            assertEquals(0, outboxRelay.drain());
+            assertTrue(received.isEmpty());
+            assertEquals(1, outboxRelay.stats().getPending());
+        } finally {
+            otherInstance.release(LeaseRepository.OUTBOX_RELAY);
+        }
+
+        assertEquals(1, outboxRelay.drain());
+        assertEquals(sessionId, delivered().get(0).get("aggregateId").asLong());
+    }
+}
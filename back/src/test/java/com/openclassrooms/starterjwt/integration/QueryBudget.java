@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// SQL query budget: each HTTP request of the test (or of each test of the class) must execute at most
+// value statements, without any statement shape repeating beyond the N+1 detection threshold.
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface QueryBudget {
+    int value();
+}
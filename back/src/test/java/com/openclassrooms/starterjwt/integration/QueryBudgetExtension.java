@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.datasource.QueryCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks @QueryBudget: the SQL summary of each HTTP request executed during the test is collected by the
+// QueryCounter of the Spring context, then compared with the budget once the test is over.
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        QueryCounter queryCounter = SpringExtension.getApplicationContext(context).getBean(QueryCounter.class);
+        context.getStore(NAMESPACE).put("recording", queryCounter.record());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        QueryCounter.Recording recording = context.getStore(NAMESPACE).remove("recording", QueryCounter.Recording.class);
+        if (recording == null) {
+            return;
+        }
+        recording.close();
+
+        int budget = budget(context).orElseThrow(() -> new IllegalStateException("No @QueryBudget found"));
+        assertFalse(recording.summaries().isEmpty(), "No HTTP request was recorded");
+        for (QueryCounter.Summary summary : recording.summaries()) {
+            assertTrue(summary.getStatements() <= budget, () -> summary.getEndpoint() + " ran "
+                    + summary.getStatements() + " SQL statements, over the budget of " + budget);
+            assertTrue(summary.getRepeated().isEmpty(), () -> "Possible N+1 on " + summary.getEndpoint() + ": "
+                    + summary.getRepeated());
+        }
+    }
+
+    // The method's budget takes precedence over the class's
+    private static Optional<Integer> budget(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getElement(), QueryBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getTestClass(), QueryBudget.class))
+                .map(QueryBudget::value);
+    }
+}
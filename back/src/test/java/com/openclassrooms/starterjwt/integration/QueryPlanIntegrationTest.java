@@ -0,0 +1,195 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserDirectoryQuery;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// Checks with EXPLAIN, on the schema built by the migrations, that frequent queries go through an index rather than
+// scanning the table. Each repository call is made for real: the statements it sends to the database
+// are captured with their parameters (SqlCapture) and replayed under EXPLAIN, so the plan is the one of the SQL
+// Hibernate generated, not of a hand-written equivalent.
+// H2 cannot read an index backwards to return rows in descending order, so the descending directory sorts are not
+// covered here; MySQL reads the same indexes backwards.
+@SpringBootTest
+@ActiveProfiles("test")
+class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlCapture sqlCapture;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name = 'Planned session'");
+    }
+
+    // Plan of each statement the call sent to the database
+    private List<String> plans(Runnable call) {
+        List<SqlCapture.Statement> statements = sqlCapture.during(call);
+        assertThat("No SQL statement captured", statements, not(empty()));
+
+        return statements.stream().map(this::explain).collect(Collectors.toList());
+    }
+
+    private String explain(SqlCapture.Statement statement) {
+        return jdbcTemplate.execute("EXPLAIN " + statement.getSql(), (PreparedStatement explain) -> {
+            List<Object> parameters = statement.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                explain.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        });
+    }
+
+    private void assertUsesIndex(Runnable call, String index) {
+        for (String plan : plans(call)) {
+            assertThat(plan, not(containsStringIgnoringCase("tableScan")));
+            assertThat(plan, containsStringIgnoringCase(index));
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    // Login, uniqueness check and batch import
+    @Test
+    @DisplayName("Email lookups should use the unique email index")
+    void emailLookups_ShouldUseUniqueIndex() {
+        assertUsesIndex(() -> userRepository.findByEmail("yoga@studio.com"), "uk_users_email");
+        assertUsesIndex(() -> userRepository.findExistingEmails(Arrays.asList("yoga@studio.com", "user@test.com")),
+                "uk_users_email");
+    }
+
+    // Teacher schedule conflict check, a locking read that needs a transaction
+    @Test
+    @Transactional
+    @DisplayName("Teacher slots should use an index on the teacher")
+    void teacherSlots_ShouldUseTeacherIndex() {
+        Date from = new Date();
+        assertUsesIndex(() -> sessionRepository.findSlotsByTeacherIdStartingBetween(1L, from,
+                new Date(from.getTime() + 86_400_000L)), "idx_sessions_teacher_date");
+
+        // Without a date bound H2 prefers the foreign key's own index; MySQL has none and uses
+        // idx_sessions_teacher_date for the foreign key
+        for (String plan : plans(() -> sessionRepository.findSlotsByTeacherId(1L))) {
+            assertThat(plan, not(containsStringIgnoringCase("tableScan")));
+            assertThat(plan, anyOf(containsStringIgnoringCase("idx_sessions_teacher_date"),
+                    containsStringIgnoringCase("fk_sessions_teacher")));
+        }
+    }
+
+    // Optimistic locking: current version of a session
+    @Test
+    @DisplayName("Session version lookup should use the primary key")
+    void sessionVersion_ShouldUsePrimaryKey() {
+        assertUsesIndex(() -> sessionRepository.findVersionById(1L), "PRIMARY_KEY");
+    }
+
+    // Participants of a session, sessions followed by a member (account purge)
+    @Test
+    @DisplayName("Participations should be reachable from both sides")
+    void participations_ShouldUseIndexOnBothSides() {
+        jdbcTemplate.update("INSERT INTO SESSIONS (name, date, description, teacher_id) "
+                + "VALUES ('Planned session', '2030-01-01 10:00:00', 'Plan', 1)");
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM SESSIONS WHERE name = 'Planned session'", Long.class);
+
+        List<String> plans = plans(() -> sessionRepository.findProjected(Collections.singleton("users"), false, id));
+        assertThat(plans, hasSize(2));
+        assertThat(plans.get(1), containsString("PARTICIPATE"));
+        for (String plan : plans) {
+            assertThat(plan, not(containsStringIgnoringCase("tableScan")));
+            assertThat(plan, containsStringIgnoringCase("PRIMARY_KEY"));
+        }
+
+        // JdbcTemplate statements written out in UserPurgeService
+        String plan = explain("SELECT DISTINCT session_id FROM PARTICIPATE WHERE user_id = 1 LIMIT 500");
+        assertThat(plan, not(containsStringIgnoringCase("tableScan")));
+        assertThat(plan, containsStringIgnoringCase("idx_participate_user"));
+    }
+
+    // Purges resumed at startup
+    @Test
+    @DisplayName("Pending purges lookup should use the disabled index")
+    void disabledUsers_ShouldUseDisabledIndex() {
+        assertUsesIndex(() -> userRepository.findDisabledIds(), "idx_users_disabled");
+    }
+
+    // Each sort walks the index that matches it, on the first page and after a key, with or without filters
+    @Test
+    @DisplayName("Directory pages should walk the index of their sort")
+    void directory_ShouldWalkIndexOfSort() {
+        LocalDateTime now = LocalDateTime.now();
+        assertDirectoryUsesIndex("id", null, "PRIMARY_KEY");
+        assertDirectoryUsesIndex("email", "m@test.com", "uk_users_email");
+        assertDirectoryUsesIndex("lastName", "M", "idx_users_last_name");
+        assertDirectoryUsesIndex("createdAt", now, "idx_users_created_at");
+
+        assertUsesIndex(() -> userRepository.findDirectory(UserDirectoryQuery.builder().sort("createdAt")
+                .admin(true).createdFrom(now.minusDays(30)).createdTo(now).afterId(5L).afterValue(now.minusDays(1))
+                .limit(20).build()), "idx_users_created_at");
+    }
+
+    private void assertDirectoryUsesIndex(String sort, Object afterValue, String index) {
+        assertUsesIndex(() -> userRepository.findDirectory(UserDirectoryQuery.builder().sort(sort).limit(20).build()),
+                index);
+        assertUsesIndex(() -> userRepository.findDirectory(UserDirectoryQuery.builder().sort(sort).afterId(5L)
+                .afterValue(afterValue).limit(20).build()), index);
+    }
+
+    // Name search with the in-memory index disabled: rows are read along the last name index, in the order of the
+    // query, and the reading stops at the limit
+    @Test
+    @DisplayName("Database name search should walk the last name index")
+    void namePrefix_ShouldWalkLastNameIndex() {
+        assertUsesIndex(() -> userRepository.findByNamePrefix("mar%", PageRequest.of(0, 10)), "idx_users_last_name");
+        assertUsesIndex(() -> teacherRepository.findByNamePrefix("mar%", PageRequest.of(0, 10)),
+                "idx_teachers_last_name");
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Capture {
+        @Bean
+        static SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+}
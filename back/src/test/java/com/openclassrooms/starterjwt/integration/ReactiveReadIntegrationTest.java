@@ -0,0 +1,179 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Integration test of the reactive profile, on a real server limited to 4 Tomcat threads: the NDJSON streams read by
+// R2DBC return the same objects as the JSON lists read by JPA, and both paths are measured under
+// high concurrency. The H2 database is named so that the JDBC and R2DBC connections share it.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:REACTIVE_TESTDB;MODE=MySQL;DB_CLOSE_DELAY=0;DATABASE_TO_UPPER=false",
+        "oc.app.reactive.url=r2dbc:h2:mem:///REACTIVE_TESTDB?options=MODE=MySQL;DATABASE_TO_UPPER=false",
+        "oc.app.reactive.maxPoolSize=4",
+        "server.tomcat.threads.max=4",
+        "server.tomcat.threads.min-spare=4"
+})
+@ActiveProfiles({"test", "reactive"})
+class ReactiveReadIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveReadIntegrationTest.class);
+
+    private static final int SESSIONS = 100;
+    private static final int CONCURRENCY = 64;
+    private static final int REQUESTS = 256;
+
+    private static String token;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        if (token != null) {
+            return;
+        }
+        for (int i = 0; i < SESSIONS; i++) {
+            Long id = sessionService.create(Session.builder()
+                    .name("Reactive session " + i)
+                    .description("Streamed")
+                    .date(new Date())
+                    .users(new ArrayList<>())
+                    .build()).getId();
+            if (i % 2 == 0) {
+                sessionService.participate(id, 1L);
+                sessionService.participate(id, 2L);
+            }
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername("user@test.com");
+        token = jwtUtils.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpRequest get(String path, String accept) {
+        return HttpRequest.newBuilder(uri(path))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.ACCEPT, accept)
+                .build();
+    }
+
+    private List<JsonNode> json(String path) throws Exception {
+        HttpResponse<String> response = httpClient.send(get(path, MediaType.APPLICATION_JSON_VALUE),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        List<JsonNode> items = new ArrayList<>();
+        objectMapper.readTree(response.body()).forEach(items::add);
+        return items;
+    }
+
+    private List<JsonNode> ndjson(String path) throws Exception {
+        HttpResponse<String> response = httpClient.send(get(path, MediaType.APPLICATION_NDJSON_VALUE),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("")
+                .startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+        List<JsonNode> items = new ArrayList<>();
+        for (String line : response.body().split("\n")) {
+            if (!line.isBlank()) {
+                items.add(objectMapper.readTree(line));
+            }
+        }
+        return items;
+    }
+
+    // Same objects, in the same order, as the JPA lists; participants grouped by session
+    @Test
+    void stream_ShouldMatchServletLists() throws Exception {
+        List<JsonNode> sessions = ndjson("/api/session");
+        assertEquals(json("/api/session"), sessions);
+        assertEquals(SESSIONS, sessions.size());
+        assertEquals(2, sessions.get(0).get("users").size());
+        assertEquals(0, sessions.get(1).get("users").size());
+
+        assertEquals(json("/api/teacher"), ndjson("/api/teacher"));
+    }
+
+    // Without an Accept header, existing clients still receive the JSON list
+    @Test
+    void defaultAccept_ShouldStayOnServletPath() throws Exception {
+        HttpResponse<String> response = httpClient.send(get("/api/teacher", "*/*"),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("")
+                .startsWith(MediaType.APPLICATION_JSON_VALUE));
+    }
+
+    @Test
+    void stream_ShouldRequireAuthentication() throws Exception {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/api/session"))
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(401, response.statusCode());
+    }
+
+    // Benchmark: REQUESTS reads of the session list, CONCURRENCY at a time, on 4 Tomcat threads.
+    // The times are logged; only the success of every request is checked (embedded H2 has no network
+    // latency, the real gap is measured against MySQL).
+    @Test
+    void benchmark_ServletVersusReactive() throws Exception {
+        // Warm-up of both paths
+        run(MediaType.APPLICATION_JSON_VALUE, CONCURRENCY);
+        run(MediaType.APPLICATION_NDJSON_VALUE, CONCURRENCY);
+
+        LoadTest.Result servlet = run(MediaType.APPLICATION_JSON_VALUE, REQUESTS);
+        LoadTest.Result reactive = run(MediaType.APPLICATION_NDJSON_VALUE, REQUESTS);
+
+        logger.info("GET /api/session x{} ({} concurrent, 4 Tomcat threads) - servlet: {} - reactive: {}",
+                REQUESTS, CONCURRENCY, servlet, reactive);
+        assertEquals(REQUESTS, servlet.succeeded);
+        assertEquals(REQUESTS, reactive.succeeded);
+    }
+
+    private LoadTest.Result run(String accept, int requests) {
+        return LoadTest.run(httpClient, () -> get("/api/session", accept), requests, CONCURRENCY);
+    }
+}
@@ -0,0 +1,97 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Caches must be filled from the primary. The replica is a copy of the primary taken before each test and never
+// updated, like a replica that lags behind every write the test makes; the reads are made by a member who did not
+// write, so read-your-writes does not send them to the primary.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:LAG_PRIMARY;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false",
+        "oc.app.datasource.replica.url=jdbc:h2:mem:LAG_REPLICA;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false",
+        "oc.app.datasource.replica.maxLagMs=60000",
+        "oc.app.sessionCatalog.enabled=true",
+        "oc.app.nameSearch.enabled=true"
+})
+class ReplicaLagIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @TempDir
+    Path tempDir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+
+        String script = tempDir.resolve("primary.sql").toString();
+        new JdbcTemplate(primaryDataSource).execute("SCRIPT TO '" + script + "'");
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + script + "'");
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        primary.update("DELETE FROM SESSIONS WHERE name = 'Lagging session'");
+        primary.update("DELETE FROM TEACHERS WHERE last_name = 'LAGGING'");
+    }
+
+    // The catalog is built on the first read after the write: from the replica it would miss the new session
+    // until the next write
+    @Test
+    @WithUserDetails("user@test.com")
+    void catalogBuiltAfterWrite_ShouldContainIt() throws Exception {
+        new JdbcTemplate(primaryDataSource).update("INSERT INTO SESSIONS (name, date, description, teacher_id) "
+                + "VALUES ('Lagging session', '2030-01-01 10:00:00', 'Lag', 1)");
+
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", hasItem("Lagging session")));
+    }
+
+    @Test
+    @WithUserDetails("user@test.com")
+    void searchIndexLoadedAfterWrite_ShouldContainIt() throws Exception {
+        new JdbcTemplate(primaryDataSource).update("INSERT INTO TEACHERS (first_name, last_name) "
+                + "VALUES ('Lena', 'LAGGING')");
+
+        mockMvc.perform(get("/api/teacher/search").param("q", "lagg"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].lastName", contains("LAGGING")));
+    }
+}
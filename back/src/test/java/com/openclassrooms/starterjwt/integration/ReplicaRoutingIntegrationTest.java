@@ -0,0 +1,120 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.datasource.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.http.Cookie;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the primary / replica routing, with two separate H2 databases. The replica only contains
+// a "REPLICA" teacher: this shows which database served each read.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ROUTING_PRIMARY;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false",
+        "oc.app.datasource.replica.url=jdbc:h2:mem:ROUTING_REPLICA;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false",
+        "oc.app.datasource.replica.maxLagMs=60000"
+})
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String SESSION = "{\"name\":\"Routing session\",\"date\":\"2030-01-01T10:00:00.000+00:00\","
+            + "\"teacher_id\":1,\"description\":\"Routing\",\"users\":[]}";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS TEACHERS (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "first_name VARCHAR(20), last_name VARCHAR(20), created_at TIMESTAMP, updated_at TIMESTAMP)");
+        replica.update("DELETE FROM TEACHERS");
+        replica.update("INSERT INTO TEACHERS (first_name, last_name) VALUES ('Read', 'REPLICA')");
+        // ETags are read where the data is read
+        replica.execute("CREATE TABLE IF NOT EXISTS RESOURCE_VERSIONS (resource VARCHAR(16) PRIMARY KEY, "
+                + "version BIGINT NOT NULL DEFAULT 0)");
+        replica.update("DELETE FROM RESOURCE_VERSIONS");
+        replica.update("INSERT INTO RESOURCE_VERSIONS (resource) VALUES ('TEACHER')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name = 'Routing session'");
+    }
+
+    // A read in a readOnly transaction is served by the replica
+    @Test
+    @WithUserDetails("user@test.com")
+    void readOnlyTransaction_ShouldBeServedByReplica() throws Exception {
+        mockMvc.perform(get("/api/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].lastName", contains("REPLICA")));
+    }
+
+    // The write goes to the primary (the replica does not even have a SESSIONS table), then its author reads the
+    // primary again, with the cookie of its write, as long as the replica has not received that write
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void readAfterOwnWrite_ShouldBeServedByPrimary() throws Exception {
+        Cookie written = mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(SESSION))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists(ReadYourWrites.COOKIE))
+                .andReturn().getResponse().getCookie(ReadYourWrites.COOKIE);
+
+        mockMvc.perform(get("/api/teacher").cookie(written))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].lastName", hasItems("DELAHAYE", "THIERCELIN")))
+                .andExpect(jsonPath("$[*].lastName", not(hasItem("REPLICA"))));
+    }
+
+    // Once the replica has the written version, the cookie no longer keeps the reads on the primary
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void readAfterReplicaCaughtUp_ShouldBeServedByReplica() throws Exception {
+        Cookie written = mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(SESSION))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(ReadYourWrites.COOKIE);
+        long version = jdbcTemplate.queryForObject(
+                "SELECT version FROM RESOURCE_VERSIONS WHERE resource = 'SESSION'", Long.class);
+        new JdbcTemplate(replicaDataSource).update(
+                "MERGE INTO RESOURCE_VERSIONS (resource, version) KEY (resource) VALUES ('SESSION', ?)", version);
+
+        mockMvc.perform(get("/api/teacher").cookie(written))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].lastName", contains("REPLICA")));
+    }
+}
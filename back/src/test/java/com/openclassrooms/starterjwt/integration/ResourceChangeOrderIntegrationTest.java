@@ -0,0 +1,56 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.cache.SessionCatalog;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.services.ResourceVersionService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+
+// After a committed write, the session catalog and the response cache must be up to date before the version
+// counter publishes the new ETag; otherwise a concurrent GET could cache the previous bytes under the new ETag.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"oc.app.sessionCatalog.enabled=true", "oc.app.responseCache.enabled=true"})
+class ResourceChangeOrderIntegrationTest {
+
+    @SpyBean
+    private SessionCatalog sessionCatalog;
+
+    @SpyBean
+    private ResponseCache responseCache;
+
+    @SpyBean
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Test
+    void write_ShouldRefreshCachesBeforePublishingTheNewVersion() {
+        sessionService.create(Session.builder()
+                .name("Ordered session")
+                .description("Listener order")
+                .date(new Date())
+                .users(new ArrayList<>())
+                .build());
+
+        InOrder inOrder = inOrder(sessionCatalog, responseCache, resourceVersionService);
+        inOrder.verify(sessionCatalog).onResourceChanged(any(ResourceChangedEvent.class));
+        inOrder.verify(responseCache).onResourceChanged(any(ResourceChangedEvent.class));
+        inOrder.verify(resourceVersionService).onResourceChanged(any(ResourceChangedEvent.class));
+    }
+}
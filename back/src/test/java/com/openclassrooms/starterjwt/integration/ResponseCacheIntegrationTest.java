@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the response cache: the cached bytes do go through Spring MVC
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.responseCache.enabled=true")
+@WithMockUser
+class ResponseCacheIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    void findAll_ShouldServeCachedJson() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/teacher"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                    .andExpect(jsonPath("$[0].lastName").value("DELAHAYE"));
+        }
+    }
+
+    @Test
+    void findAll_ShouldServeGzip_WhenAccepted() throws Exception {
+        byte[] compressed = mockMvc.perform(get("/api/teacher").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String json = new String(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"lastName\":\"THIERCELIN\""));
+    }
+}
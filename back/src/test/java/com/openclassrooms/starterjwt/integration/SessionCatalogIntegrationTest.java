@@ -0,0 +1,115 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the session catalog: no test transaction, so that after-commit events are published
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.sessionCatalog.enabled=true")
+@WithMockUser
+class SessionCatalogIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private MockMvc mockMvc;
+    private Teacher teacher;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        sessionRepository.deleteAll();
+        teacher = teacherRepository.findAll().get(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+    }
+
+    // Writes going through SessionService are applied to the catalog
+    @Test
+    void findAll_ShouldReflectWritesMadeThroughTheService() throws Exception {
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        Session created = sessionService.create(newSession("Catalog class"));
+
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("Catalog class"));
+
+        sessionService.delete(created.getId());
+
+        mockMvc.perform(get("/api/session/{id}", created.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    // Reads are served by the catalog, without reading the database again
+    @Test
+    void findById_ShouldBeServedFromMemory() throws Exception {
+        Session created = sessionService.create(newSession("Cached class"));
+        mockMvc.perform(get("/api/session/{id}", created.getId()))
+                .andExpect(status().isOk());
+
+        // Deleted directly in the database, invisible to the catalog
+        sessionRepository.deleteById(created.getId());
+
+        mockMvc.perform(get("/api/session/{id}", created.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Cached class"));
+
+        // Brings the catalog back in line for the following tests
+        eventPublisher.publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, created.getId()));
+    }
+
+    private Session newSession(String name) {
+        return Session.builder()
+                .name(name)
+                .description("Catalog test")
+                .date(new Date())
+                .teacher(teacher)
+                .users(new ArrayList<>())
+                .build();
+    }
+}
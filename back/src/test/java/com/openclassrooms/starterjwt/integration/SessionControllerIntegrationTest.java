@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.datasource.QueryCountInterceptor;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
@@ -20,12 +21,17 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,6 +57,9 @@ class SessionControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private MockMvc mockMvc;
     private Session testSession;
     private Teacher testTeacher;
@@ -456,4 +465,303 @@ class SessionControllerIntegrationTest {
                 .andExpect(jsonPath("$.name").value("Yoga & Méditation"))
                 .andExpect(jsonPath("$.description").value("Session with special chars: àáâãäå"));
     }
-}
\ No newline at end of file
+
+    // Tests for the detection of a teacher's double bookings
+    @Test
+    void create_ShouldReturnConflict_WhenTeacherIsAlreadyBooked() throws Exception {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Overlapping Session");
+        sessionDto.setDescription("Same teacher, thirty minutes later");
+        sessionDto.setDate(new Date(testSession.getDate().getTime() + 30 * 60_000));
+        sessionDto.setTeacher_id(testTeacher.getId());
+
+        mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isConflict());
+
+        assertEquals(1, sessionRepository.count());
+    }
+
+    @Test
+    void create_ShouldAcceptSession_WhenItStartsWhenTheOtherEnds() throws Exception {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Next Session");
+        sessionDto.setDescription("Starts right after the first one");
+        sessionDto.setDate(new Date(testSession.getDate().getTime() + Session.DEFAULT_DURATION_MINUTES * 60_000L));
+        sessionDto.setDuration(45);
+        sessionDto.setTeacher_id(testTeacher.getId());
+
+        mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.duration").value(45));
+    }
+
+    @Test
+    void update_ShouldNotConflictWithItself() throws Exception {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Longer Yoga Class");
+        sessionDto.setDescription("Morning yoga session");
+        sessionDto.setDate(testSession.getDate());
+        sessionDto.setDuration(120);
+        sessionDto.setTeacher_id(testTeacher.getId());
+
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.duration").value(120));
+    }
+
+    // Tests for conditional requests (ETag / If-None-Match)
+    @Test
+    void findAll_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/session")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void findById_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/session/{id}", testSession.getId())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void findById_ShouldReturnOk_WhenEtagIsStale() throws Exception {
+        mockMvc.perform(get("/api/session/{id}", testSession.getId())
+                        .header("If-None-Match", "\"session-0-stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Yoga Class"));
+    }
+
+    // Tests for optimistic locking (If-Match / version)
+    @Test
+    void update_ShouldReturnNewEtag_WhenIfMatchIsCurrent() throws Exception {
+        String etag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto("First edit"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(header().string("ETag", "\"session-" + testSession.getId() + "-v1\""));
+    }
+
+    @Test
+    void update_ShouldReturnPreconditionFailed_WhenIfMatchIsStale() throws Exception {
+        String etag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto("First edit"))))
+                .andExpect(status().isOk());
+
+        // The second administrator starts from the same version: their change is refused
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto("Second edit"))))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andExpect(jsonPath("$.name").value("First edit"));
+    }
+
+    @Test
+    void update_ShouldReturnPreconditionFailed_WhenBodyVersionIsStale() throws Exception {
+        SessionDto first = updateDto("First edit");
+        first.setVersion(0L);
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+
+        SessionDto second = updateDto("Second edit");
+        second.setVersion(0L);
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void update_ShouldReturnPreconditionFailed_WhenIfMatchIsForeign() throws Exception {
+        mockMvc.perform(put("/api/session/{id}", testSession.getId())
+                        .header("If-Match", "\"teacher-1-v0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto("Edit"))))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void participate_ShouldChangeSessionEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/session/{id}", testSession.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+        User newUser = userRepository.save(User.builder()
+                .email("etag@example.com")
+                .firstName("Etag")
+                .lastName("User")
+                .password("password123")
+                .admin(false)
+                .build());
+
+        mockMvc.perform(post("/api/session/{id}/participate/{userId}", testSession.getId(), newUser.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session/{id}", testSession.getId())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    private SessionDto updateDto(String name) {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName(name);
+        sessionDto.setDescription("Morning yoga session");
+        sessionDto.setDate(testSession.getDate());
+        sessionDto.setTeacher_id(testTeacher.getId());
+        return sessionDto;
+    }
+
+    // Tests for field selection (fields) and teacher expansion (expand)
+    @Test
+    void findAll_ShouldReturnOnlyRequestedFields_WhenFieldsIsGiven() throws Exception {
+        mockMvc.perform(get("/api/session").param("fields", "name,date"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(testSession.getId().intValue()))
+                .andExpect(jsonPath("$[0].name").value("Yoga Class"))
+                .andExpect(jsonPath("$[0].date").exists())
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].createdAt").doesNotExist())
+                .andExpect(jsonPath("$[0].teacher").doesNotExist());
+    }
+
+    @Test
+    void findAll_ShouldEmbedTeacher_WhenExpandTeacherIsGiven() throws Exception {
+        mockMvc.perform(get("/api/session").param("fields", "name,users").param("expand", "teacher"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Yoga Class"))
+                .andExpect(jsonPath("$[0].users", hasSize(1)))
+                .andExpect(jsonPath("$[0].users[0]").value(testUser.getId().intValue()))
+                .andExpect(jsonPath("$[0].teacher.id").value(testTeacher.getId().intValue()))
+                .andExpect(jsonPath("$[0].teacher.firstName").value("John"))
+                .andExpect(jsonPath("$[0].teacher.lastName").value("YogaMaster"));
+    }
+
+    @Test
+    void findById_ShouldReturnOnlyRequestedFields_WhenFieldsIsGiven() throws Exception {
+        mockMvc.perform(get("/api/session/{id}", testSession.getId()).param("fields", "teacher_id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(testSession.getId().intValue()))
+                .andExpect(jsonPath("$.teacher_id").value(testTeacher.getId().intValue()))
+                .andExpect(jsonPath("$.name").doesNotExist());
+    }
+
+    @Test
+    void findById_ShouldReturnNotFound_WhenProjectedSessionDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/session/{id}", 999L).param("expand", "teacher"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findAll_ShouldReturnBadRequest_WhenFieldOrExpandIsUnknown() throws Exception {
+        mockMvc.perform(get("/api/session").param("fields", "name,password"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/session").param("expand", "users"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAll_ShouldUseDistinctEtags_ForDistinctFieldSelections() throws Exception {
+        String fullEtag = mockMvc.perform(get("/api/session"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/session").param("fields", "name")
+                        .header("If-None-Match", fullEtag))
+                .andExpect(status().isOk());
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(userRepository.save(User.builder()
+                    .email("budget" + i + "@example.com")
+                    .firstName("Budget")
+                    .lastName("User" + i)
+                    .password("password123")
+                    .admin(false)
+                    .build()));
+        }
+        return users;
+    }
+
+    // Query budgets: the number of sessions and participants must not multiply the queries (N+1).
+    // The persistence context is cleared so that the reads go to the database.
+    @Test
+    @QueryBudget(4)
+    void findAll_ShouldStayWithinQueryBudget_WithManySessionsAndParticipants() throws Exception {
+        List<User> users = createUsers(12);
+        for (int i = 0; i < 12; i++) {
+            sessionRepository.save(Session.builder()
+                    .name("Budget session " + i)
+                    .description("Budget")
+                    .date(new Date(System.currentTimeMillis() + i * 86_400_000L))
+                    .teacher(i % 2 == 0 ? testTeacher2 : testTeacher3)
+                    .users(new ArrayList<>(users.subList(i % 6, i % 6 + 3)))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        mockMvc.perform(get("/api/session"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(13)))
+                .andExpect(jsonPath("$[1].users", hasSize(3)))
+                .andExpect(header().exists(QueryCountInterceptor.STATEMENTS_HEADER));
+    }
+
+    // Includes the lock the schedule check takes on the teacher's row
+    @Test
+    @QueryBudget(5)
+    void create_ShouldStayWithinQueryBudget_WithManyParticipants() throws Exception {
+        List<User> users = createUsers(12);
+        entityManager.flush();
+        entityManager.clear();
+
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Crowded session");
+        sessionDto.setDescription("Many participants");
+        sessionDto.setDate(new Date());
+        sessionDto.setTeacher_id(testTeacher2.getId());
+        sessionDto.setUsers(users.stream().map(User::getId).collect(Collectors.toList()));
+
+        mockMvc.perform(post("/api/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(12)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// Integration test of the SSE stream: no test transaction, so that events are broadcast immediately
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.sessionEvents.heartbeatMs=200")
+@WithMockUser
+class SessionEventsIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    // Changes published by the service reach the open stream
+    @Test
+    void events_ShouldStreamSessionDeltas() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/session/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The headers are only written on the first send, made by the broadcast thread
+        MockHttpServletResponse response = result.getResponse();
+        awaitContent(response, ":connected");
+        assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, response.getContentType());
+
+        eventPublisher.publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, 42L, 7L));
+        eventPublisher.publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, 42L));
+
+        awaitContent(response, "event:deleted");
+
+        String content = response.getContentAsString();
+        assertTrue(content.contains(":connected"));
+        assertTrue(content.contains("event:participant_added"));
+        assertTrue(content.contains("\"sessionId\":42"));
+        assertTrue(content.contains("\"userId\":7"));
+        assertTrue(content.indexOf("event:participant_added") < content.indexOf("event:deleted"));
+
+        // The idle stream receives heartbeats
+        awaitContent(response, ":heartbeat");
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!response.getContentAsString().contains(expected)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + expected);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Keeps the SQL statements the application runs through its DataSource (Hibernate and JdbcTemplate alike), with
+// the parameters they were bound to, so that a test can replay them. Wraps the "dataSource" bean like QueryCounter;
+// only the statements run by the calling thread inside during() are kept, background work is ignored.
+public class SqlCapture implements BeanPostProcessor {
+    private final ThreadLocal<List<Statement>> capturing = new ThreadLocal<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return connection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return connection(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    // Statements run by the call, in order
+    public List<Statement> during(Runnable call) {
+        List<Statement> statements = new ArrayList<>();
+        this.capturing.set(statements);
+        try {
+            call.run();
+        } finally {
+            this.capturing.remove();
+        }
+        return statements;
+    }
+
+    private Connection connection(Connection connection) {
+        return (Connection) proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement) {
+                return this.statement((PreparedStatement) result, (String) args[0]);
+            }
+            return result;
+        });
+    }
+
+    private PreparedStatement statement(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+
+        return (PreparedStatement) proxy(PreparedStatement.class, statement, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("execute")) {
+                List<Statement> statements = this.capturing.get();
+                if (statements != null) {
+                    statements.add(new Statement(sql, new ArrayList<>(parameters.values())));
+                }
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Object proxy(Class<?> type, Object target, Handler handler) {
+        return Proxy.newProxyInstance(SqlCapture.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return target.toString();
+                        default:
+                            return handler.handle(method, args);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    public static final class Statement {
+        private final String sql;
+        private final List<Object> parameters;
+
+        private Statement(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = Collections.unmodifiableList(parameters);
+        }
+
+        public String getSql() {
+            return this.sql;
+        }
+
+        public List<Object> getParameters() {
+            return this.parameters;
+        }
+
+        @Override
+        public String toString() {
+            return this.sql + " " + this.parameters;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.SpringBootSecurityJwtApplication;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.startup.StartupReport;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Integration test of the startup: application launched as by main (steps recorded) with the warm-up
+// enabled. The instance is not ready during the warm-up, then the report exposes steps, beans and tasks.
+class StartupIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(StartupIntegrationTest.class);
+
+    private static final int ITERATIONS = 50;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void startup_ShouldWarmUpBeforeReadiness_AndReportPhases() throws Exception {
+        // Runner added next to the warm-up: records the availability state while the runners run
+        AtomicReference<ReadinessState> duringRunners = new AtomicReference<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+                .profiles("test")
+                .applicationStartup(new BufferingApplicationStartup(StartupReport.CAPACITY))
+                .initializers(applicationContext -> applicationContext.getBeanFactory().registerSingleton(
+                        "readinessRecorder", (ApplicationRunner) args -> duringRunners.set(
+                                applicationContext.getBean(ApplicationAvailability.class).getReadinessState())))
+                .run("--server.port=0", "--oc.app.warmup.enabled=true", "--oc.app.warmup.iterations=" + ITERATIONS)) {
+            assertEquals(ReadinessState.REFUSING_TRAFFIC, duringRunners.get());
+
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<String> readiness = this.httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/startup/readiness")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, readiness.statusCode());
+            assertEquals("ACCEPTING_TRAFFIC", this.objectMapper.readTree(readiness.body()).get("state").asText());
+
+            UserDetails admin = context.getBean(UserDetailsService.class).loadUserByUsername("yoga@studio.com");
+            String token = context.getBean(JwtUtils.class).generateJwtToken(
+                    new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+            HttpResponse<String> response = this.httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/startup"))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            logger.info("Startup report: {}", response.body());
+
+            JsonNode report = this.objectMapper.readTree(response.body());
+            assertTrue(report.get("timelineRecorded").asBoolean());
+            assertTrue(report.get("jvmToReadyMillis").asLong() > 0);
+            assertTrue(names(report.get("phases")).contains("spring.context.refresh"));
+            assertEquals(10, report.get("slowestBeans").size());
+
+            JsonNode tasks = report.get("warmUp").get("tasks");
+            assertEquals(List.of("jwt", "sessionMapper", "jackson", "repositories"), names(tasks));
+            for (JsonNode task : tasks) {
+                assertEquals(ITERATIONS, task.get("iterations").asInt(), task.toString());
+                assertTrue(task.get("error").isNull(), task.toString());
+            }
+        }
+    }
+
+    @Test
+    void report_ShouldRequireAuthentication_AndHaveNoPhasesWithoutRecorder() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+                .profiles("test")
+                .run("--server.port=0")) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<String> report = this.httpClient.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/startup")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(401, report.statusCode());
+
+            // Without BufferingApplicationStartup or warm-up: report without steps
+            StartupReport.Report direct = context.getBean(StartupReport.class).report();
+            assertFalse(direct.isTimelineRecorded());
+            assertTrue(direct.getPhases().isEmpty());
+            assertNull(direct.getWarmUp());
+        }
+    }
+
+    private static List<String> names(JsonNode array) {
+        List<String> names = new ArrayList<>();
+        array.forEach(node -> names.add(node.get("name").asText()));
+        return names;
+    }
+}
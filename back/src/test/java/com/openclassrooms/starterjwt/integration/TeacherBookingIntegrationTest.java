@@ -0,0 +1,119 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.cache.TeacherSchedule;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+
+// Bookings of a teacher, committed for real: the conflict check must hold against concurrent requests and against
+// sessions written by another instance, which the in-memory schedule of this one never sees.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "oc.app.teacherSchedule.enabled=true")
+class TeacherBookingIntegrationTest {
+    private static final int REQUESTS = 4;
+    private static final long CHECK_DELAY_MS = 100;
+
+    @SpyBean
+    private TeacherSchedule teacherSchedule;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Booking%'");
+    }
+
+    @Test
+    void concurrentBookings_ShouldKeepOnlyOne() throws Exception {
+        // Widens the window between the schedule check and the insert, where concurrent bookings could slip in
+        doAnswer(invocation -> {
+            Object conflict = invocation.callRealMethod();
+            Thread.sleep(CHECK_DELAY_MS);
+            return conflict;
+        }).when(teacherSchedule).findConflict(anyLong(), any(Date.class), anyInt(), isNull());
+        Date date = new Date(System.currentTimeMillis() + 86_400_000L);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            List<Future<Session>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                String name = "Booking " + i;
+                Callable<Session> booking = () -> {
+                    start.await();
+                    return sessionService.create(session(name, date));
+                };
+                results.add(executor.submit(booking));
+            }
+            start.countDown();
+
+            int booked = 0;
+            for (Future<Session> result : results) {
+                try {
+                    result.get();
+                    booked++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(ConflictException.class, e.getCause());
+                }
+            }
+            assertEquals(1, booked);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM SESSIONS WHERE name LIKE 'Booking%'", Integer.class));
+    }
+
+    @Test
+    void sessionBookedElsewhere_ShouldConflict() {
+        Date date = new Date(System.currentTimeMillis() + 2 * 86_400_000L);
+        // Loads the teacher's schedule into memory
+        sessionService.create(session("Booking loaded", new Date(date.getTime() + 3_600_000L * 5)));
+
+        // Written by another instance: no event reaches this one. Explicit id, outside the blocks reserved here
+        jdbcTemplate.update("INSERT INTO SESSIONS (id, name, date, description, teacher_id, duration) "
+                + "VALUES (900001, 'Booking elsewhere', ?, 'Other instance', 1, 60)", date);
+
+        assertThrows(ConflictException.class, () -> sessionService.create(session("Booking here", date)));
+    }
+
+    private static Session session(String name, Date date) {
+        return Session.builder()
+                .name(name)
+                .description("Teacher booking")
+                .date(date)
+                .teacher(Teacher.builder().id(1L).build())
+                .users(new ArrayList<>())
+                .build();
+    }
+}
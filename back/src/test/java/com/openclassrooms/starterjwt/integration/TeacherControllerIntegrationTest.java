@@ -1,12 +1,15 @@
 package com.openclassrooms.starterjwt.integration;
 
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.ResourceVersionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -33,6 +36,12 @@ class TeacherControllerIntegrationTest {
     @Autowired
     private TeacherRepository teacherRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
 
     private MockMvc mockMvc;
     private Teacher testTeacher;
@@ -404,4 +413,73 @@ class TeacherControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2))); // Should still be 2
     }
-}
\ No newline at end of file
+
+    // Tests for conditional requests (ETag / If-None-Match)
+    @Test
+    void findAll_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/teacher"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void findById_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/teacher/{id}", testTeacher.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/teacher/{id}", testTeacher.getId())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    // The ETag of another id must not hide that this one does not exist
+    @Test
+    void findById_ShouldReturnNotFound_WhenEtagMatchesUnknownId() throws Exception {
+        long unknownId = testTeacher.getId() + 1000;
+
+        mockMvc.perform(get("/api/teacher/{id}", unknownId)
+                        .header("If-None-Match", resourceVersionService.etag(Resource.TEACHER, unknownId)))
+                .andExpect(status().isNotFound());
+    }
+
+    // A write made by another instance, or outside the application, increments the stored version
+    @Test
+    void findAll_ShouldReturnNewEtag_WhenStoredVersionChanges() throws Exception {
+        String etag = mockMvc.perform(get("/api/teacher"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        jdbcTemplate.update("UPDATE RESOURCE_VERSIONS SET version = version + 1 WHERE resource = 'TEACHER'");
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    // Without the in-memory index (test profile), the search queries the database
+    @Test
+    void search_ShouldReturnTeachersByNamePrefix() throws Exception {
+        mockMvc.perform(get("/api/teacher/search").param("q", "yogam"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lastName", is("YogaMaster")));
+
+        mockMvc.perform(get("/api/teacher/search").param("q", "ja"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].firstName", is("Jane")));
+    }
+
+    @Test
+    void search_ShouldReturnBadRequest_WhenLimitIsOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/teacher/search").param("q", "yoga").param("limit", "500"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,191 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.tracing.InMemorySpanExporter;
+import com.openclassrooms.starterjwt.tracing.TracingFilter;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Integration test of the traces: a session change produces a single trace, from the HTTP filter down to the
+// JDBC queries, read back through /api/traces; the context follows the tasks handed to the application executor.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TracingIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InMemorySpanExporter spanExporter;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        spanExporter.reset();
+        UserDetails userDetails = userDetailsService.loadUserByUsername("yoga@studio.com");
+        token = jwtUtils.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    // The root span ends after the response is sent
+    private List<SpanData> awaitTrace(String traceId, String rootName) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            List<SpanData> spans = spanExporter.trace(traceId);
+            if (spans.stream().anyMatch(span -> span.getName().equals(rootName))) {
+                return spans;
+            }
+            Thread.sleep(20);
+        }
+        return fail("no root span " + rootName + " for trace " + traceId);
+    }
+
+    private static SpanData span(List<SpanData> spans, String name) {
+        Optional<SpanData> span = spans.stream().filter(candidate -> candidate.getName().equals(name)).findFirst();
+        return span.orElseGet(() -> fail("no span " + name + " in " + spans));
+    }
+
+    @Test
+    void update_ShouldProduceOneTraceAcrossLayers() throws Exception {
+        Session session = sessionService.create(Session.builder()
+                .name("Traced session")
+                .description("Tracing")
+                .date(new Date())
+                .users(new ArrayList<>())
+                .build());
+        spanExporter.reset();
+
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Traced session, renamed");
+        sessionDto.setDescription("Tracing");
+        sessionDto.setDate(new Date());
+        sessionDto.setTeacher_id(1L);
+        sessionDto.setUsers(new ArrayList<>());
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/api/session/" + session.getId()))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(sessionDto)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        String traceId = response.headers().firstValue(TracingFilter.TRACE_ID_HEADER).orElseThrow();
+
+        List<SpanData> spans = awaitTrace(traceId, "PUT /api/session/{id}");
+        SpanData server = span(spans, "PUT /api/session/{id}");
+        SpanData authentication = span(spans, "AuthTokenFilter");
+        SpanData controller = span(spans, "SessionController.update");
+        SpanData mapper = span(spans, "SessionMapper.toEntity");
+        SpanData service = span(spans, "SessionService.update");
+
+        assertEquals(SpanKind.SERVER, server.getKind());
+        assertFalse(server.getParentSpanContext().isValid());
+        assertEquals(200L, server.getAttributes().get(AttributeKey.longKey("http.status_code")));
+        assertEquals(server.getSpanId(), authentication.getParentSpanId());
+        assertEquals(server.getSpanId(), controller.getParentSpanId());
+        assertEquals(controller.getSpanId(), mapper.getParentSpanId());
+        assertEquals(controller.getSpanId(), service.getParentSpanId());
+        assertTrue(spans.stream().anyMatch(span -> span.getKind() == SpanKind.CLIENT
+                && span.getName().equals("UPDATE") && span.getParentSpanId().equals(service.getSpanId())));
+        assertTrue(spans.stream().anyMatch(span -> span.getKind() == SpanKind.CLIENT
+                && span.getName().equals("SELECT")));
+        assertTrue(spans.stream().allMatch(span -> span.getTraceId().equals(traceId)));
+
+        HttpResponse<String> trace = httpClient.send(HttpRequest.newBuilder(uri("/api/traces/" + traceId))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, trace.statusCode());
+        JsonNode views = objectMapper.readTree(trace.body());
+        assertEquals(spans.size(), views.size());
+        assertEquals("PUT /api/session/{id}", views.get(0).get("name").asText());
+        assertEquals(0, views.get(0).get("startOffsetMicros").asLong());
+    }
+
+    @Test
+    void applicationTaskExecutor_ShouldPropagateTraceContext() throws Exception {
+        Span root = tracer.spanBuilder("job").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            applicationTaskExecutor.submit(() -> teacherService.findAll()).get();
+        } finally {
+            root.end();
+        }
+
+        List<SpanData> spans = spanExporter.trace(root.getSpanContext().getTraceId());
+        assertEquals(root.getSpanContext().getSpanId(), span(spans, "TeacherService.findAll").getParentSpanId());
+    }
+
+    @Test
+    void traces_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        UserDetails userDetails = userDetailsService.loadUserByUsername("user@test.com");
+        String userToken = jwtUtils.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/api/traces"))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, response.statusCode());
+    }
+}
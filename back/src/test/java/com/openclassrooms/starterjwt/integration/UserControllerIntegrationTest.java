@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -103,13 +104,15 @@ class UserControllerIntegrationTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
-    // Test pour un ID vide
+    // Test for an empty ID: the request lands on the administrators' directory
     @Test
+    @WithUserDetails("yoga@studio.com")
     void findById_ShouldReturnBadRequest_WhenIdIsEmpty() throws Exception {
         // Act & Assert
         mockMvc.perform(get("/api/user/{id}", "")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isNotFound());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isArray());
     }
     // Test pour un ID avec des caractères spéciaux
     @Test
@@ -211,13 +214,13 @@ class UserControllerIntegrationTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
-    // Test pour un ID vide
+    // Test for an empty ID: /api/user only accepts GET
     @Test
     void delete_ShouldReturnBadRequest_WhenIdIsEmpty() throws Exception {
         // Act & Assert
         mockMvc.perform(delete("/api/user/{id}", "")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isNotFound());
+                .andExpect(status().isMethodNotAllowed());
     }
     // Test pour un ID très grand
     @Test
@@ -360,21 +363,18 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.lastName").value("TestUser"))
                 .andExpect(jsonPath("$.admin").value(true));
     }
-    // Test pour un ID valide mais autre utilisateur
+    // Deletion disables the account right away, the purge follows in the background
     @Test
-    void delete_ShouldRemoveUserFromDatabase() throws Exception {
-        // Arrange - Get initial count
-        long initialCount = userRepository.count();
-
+    void delete_ShouldDisableUserAndQueuePurge() throws Exception {
         // Act
         mockMvc.perform(delete("/api/user/{id}", testUser.getId())
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(testUser.getId()))
+                .andExpect(jsonPath("$.state").exists());
 
         // Assert
-        long finalCount = userRepository.count();
-        assert finalCount == initialCount - 1;
-        assert !userRepository.existsById(testUser.getId());
+        assert userRepository.findById(testUser.getId()).orElseThrow().isDisabled();
     }
 
     // Test pour des données avec des caractères spéciaux
@@ -418,9 +418,9 @@ class UserControllerIntegrationTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
-        // Verify other user still exists
-        assert userRepository.existsById(otherUser.getId());
-        assert !userRepository.existsById(testUser.getId());
+        // Verify other user is untouched
+        assert !userRepository.findById(otherUser.getId()).orElseThrow().isDisabled();
+        assert userRepository.findById(testUser.getId()).orElseThrow().isDisabled();
     }
 
     // Test de la gestion des requêtes multiples
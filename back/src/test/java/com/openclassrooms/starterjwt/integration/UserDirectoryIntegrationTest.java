@@ -0,0 +1,201 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.jayway.jsonpath.JsonPath;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Integration test of the member directory, paged by key
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class UserDirectoryIntegrationTest {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2024, 1, 15, 10, 0);
+    private static final LocalDateTime MARCH = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+
+        // Two members created at the same instant, for ties on the sort field, and a deleted account
+        createUser("dir.alice@test.com", "Martin", false, JANUARY);
+        createUser("dir.bruno@test.com", "Durand", true, JANUARY);
+        createUser("dir.chloe@test.com", "Martin", false, MARCH);
+        createUser("dir.david@test.com", "Bernard", false, null);
+        User deleted = createUser("dir.eve@test.com", "Petit", false, MARCH);
+        jdbcTemplate.update("UPDATE USERS SET disabled = true WHERE id = ?", deleted.getId());
+        // Managed entities do not see JDBC updates
+        entityManager.clear();
+    }
+
+    private User createUser(String email, String lastName, boolean admin, LocalDateTime createdAt) {
+        User user = userRepository.saveAndFlush(User.builder()
+                .email(email)
+                .firstName("Dir")
+                .lastName(lastName)
+                .password("password")
+                .admin(admin)
+                .build());
+        jdbcTemplate.update("UPDATE USERS SET created_at = ? WHERE id = ?",
+                createdAt != null ? Timestamp.valueOf(createdAt) : null, user.getId());
+        return user;
+    }
+
+    // Walks every two-row page by following nextCursor
+    private List<Long> walk(String sort) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/user").param("sort", sort).param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            List<Number> page = JsonPath.read(body, "$.items[*].id");
+            page.forEach(id -> ids.add(id.longValue()));
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+        return ids;
+    }
+
+    // Expected order, computed in memory: NULL first ascending, last descending, then the id
+    private List<Long> expected(Comparator<User> order) {
+        return userRepository.findAll().stream()
+                .filter(user -> !user.isDisabled())
+                .sorted(order)
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldWalkEveryActiveUserOnce_SortedById() throws Exception {
+        assertEquals(expected(Comparator.comparing(User::getId)), walk("id"));
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldWalkEveryActiveUserOnce_SortedByCreationDateDescending() throws Exception {
+        Comparator<User> order = Comparator.comparing(User::getCreatedAt,
+                        Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                .thenComparing(User::getId)
+                .reversed();
+
+        assertEquals(expected(order), walk("createdAt,desc"));
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldWalkEveryActiveUserOnce_SortedByCreationDate() throws Exception {
+        Comparator<User> order = Comparator.comparing(User::getCreatedAt,
+                        Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                .thenComparing(User::getId);
+
+        assertEquals(expected(order), walk("createdAt"));
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldWalkEveryActiveUserOnce_SortedByEmailDescending() throws Exception {
+        Comparator<User> order = Comparator.comparing(User::getEmail).thenComparing(User::getId).reversed();
+
+        assertEquals(expected(order), walk("email,desc"));
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldWalkEveryActiveUserOnce_SortedByLastName() throws Exception {
+        Comparator<User> order = Comparator.comparing(User::getLastName).thenComparing(User::getId);
+
+        assertEquals(expected(order), walk("lastName"));
+    }
+
+    // Filters on the role and the creation date, never returning the password
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldFilterOnAdminAndCreationDate() throws Exception {
+        mockMvc.perform(get("/api/user")
+                        .param("admin", "false")
+                        .param("createdFrom", "2024-01-01T00:00:00")
+                        .param("createdTo", "2024-04-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].email", contains("dir.alice@test.com", "dir.chloe@test.com")))
+                .andExpect(jsonPath("$.items[0].password").doesNotExist())
+                .andExpect(jsonPath("$.items[0].createdAt").exists())
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    // A cursor is only valid for the sort that produced it
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldRejectCursorFromAnotherSort() throws Exception {
+        String body = mockMvc.perform(get("/api/user").param("sort", "email").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(body, "$.nextCursor");
+
+        mockMvc.perform(get("/api/user").param("sort", "id").param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithUserDetails("yoga@studio.com")
+    void findAll_ShouldRejectUnknownSortAndOversizedPage() throws Exception {
+        mockMvc.perform(get("/api/user").param("sort", "password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/user").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // The directory is reserved for administrators
+    @Test
+    @WithUserDetails("user@test.com")
+    void findAll_ShouldBeForbidden_ForNonAdmin() throws Exception {
+        mockMvc.perform(get("/api/user"))
+                .andExpect(status().isForbidden());
+    }
+}
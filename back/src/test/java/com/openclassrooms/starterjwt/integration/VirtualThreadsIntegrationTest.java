@@ -0,0 +1,137 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.SpringBootSecurityJwtApplication;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.servlet.Filter;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Load test of the virtual thread mode: the same application started twice, with an 8-thread Tomcat pool and then
+// with virtual threads, under CONCURRENCY simultaneous requests (session list, BCrypt logins). Every request must run
+// on a virtual thread in virtual mode and on a platform thread otherwise; throughput and p99 are logged.
+class VirtualThreadsIntegrationTest {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsIntegrationTest.class);
+
+    private static final int CONCURRENCY = 64;
+    private static final int SESSION_REQUESTS = 256;
+    private static final int LOGIN_REQUESTS = 32;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void loadTest_PlatformVersusVirtualThreads() throws Exception {
+        String platform = this.measure(false);
+        String virtual = this.measure(true);
+
+        logger.info("{} concurrent requests, Java {} - platform threads: {} - virtual threads: {}",
+                CONCURRENCY, Runtime.version().feature(), platform, virtual);
+    }
+
+    private String measure(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class,
+                RequestThreads.class)
+                .profiles("test")
+                .run("--server.port=0", "--server.tomcat.threads.max=8",
+                        "--oc.app.threads.virtual=" + virtualThreads)) {
+            Executor executor = ((TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer())
+                    .getTomcat().getConnector().getProtocolHandler().getExecutor();
+            boolean tomcatPool = executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor;
+            assertEquals(!virtualThreads, tomcatPool);
+            assertNotNull(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                    AsyncTaskExecutor.class));
+
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String token = this.registerAndLogin(port);
+
+            HttpRequest sessions = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/session"))
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .build();
+            HttpRequest login = this.login(port);
+
+            // Warm-up
+            LoadTest.run(this.httpClient, () -> sessions, CONCURRENCY, CONCURRENCY);
+            LoadTest.run(this.httpClient, () -> login, 8, 8);
+
+            LoadTest.Result sessionResult = LoadTest.run(this.httpClient, () -> sessions, SESSION_REQUESTS,
+                    CONCURRENCY);
+            LoadTest.Result loginResult = LoadTest.run(this.httpClient, () -> login, LOGIN_REQUESTS, CONCURRENCY);
+            assertEquals(SESSION_REQUESTS, sessionResult.succeeded);
+            assertEquals(LOGIN_REQUESTS, loginResult.succeeded);
+
+            Queue<Boolean> virtual = context.getBean(RequestThreads.class).virtual;
+            assertTrue(virtual.size() >= SESSION_REQUESTS + LOGIN_REQUESTS);
+            assertTrue(virtual.stream().allMatch(isVirtual -> isVirtual == virtualThreads));
+
+            return "GET /api/session " + sessionResult + ", POST /api/auth/login " + loginResult
+                    + (tomcatPool ? " (Tomcat pool)" : " (virtual)");
+        }
+    }
+
+    private String registerAndLogin(int port) throws Exception {
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setEmail("load@test.com");
+        signupRequest.setFirstName("Load");
+        signupRequest.setLastName("Test");
+        signupRequest.setPassword("password123");
+        HttpResponse<String> register = this.httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/register"))
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .POST(HttpRequest.BodyPublishers.ofString(this.objectMapper.writeValueAsString(signupRequest)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, register.statusCode());
+
+        HttpResponse<String> login = this.httpClient.send(this.login(port), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode());
+        return this.objectMapper.readTree(login.body()).get("token").asText();
+    }
+
+    private HttpRequest login(int port) throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("load@test.com");
+        loginRequest.setPassword("password123");
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(this.objectMapper.writeValueAsString(loginRequest)))
+                .build();
+    }
+
+    // Records, for each request, whether the thread serving it is virtual
+    @TestConfiguration(proxyBeanMethods = false)
+    static class RequestThreads {
+        final Queue<Boolean> virtual = new ConcurrentLinkedQueue<>();
+
+        @Bean
+        Filter requestThreadFilter() {
+            return (request, response, chain) -> {
+                this.virtual.add(Thread.currentThread().isVirtual());
+                chain.doFilter(request, response);
+            };
+        }
+    }
+}
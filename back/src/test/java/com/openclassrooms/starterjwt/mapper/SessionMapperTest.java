@@ -58,8 +58,7 @@ public class SessionMapperTest {
         SessionDto sessionDto = sessionMocks.createSessionDto(null, null, teacher.getId(), users, false, false);
 
         when(teacherService.findById(teacher.getId())).thenReturn(teacher);
-        when(userService.findById(1L)).thenReturn(firstUser);
-        when(userService.findById(2L)).thenReturn(secondUser);
+        when(userService.findAllById(Arrays.asList(1L, 2L))).thenReturn(users);
 
         Session session = sessionMapper.toEntity(sessionDto);
 
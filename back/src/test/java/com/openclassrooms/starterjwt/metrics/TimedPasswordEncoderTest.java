@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the timed password encoder
+public class TimedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TimedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new TimedPasswordEncoder(new BCryptPasswordEncoder(4), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should delegate to BCrypt and time each operation")
+    void encodeAndMatches_ShouldDelegateAndTime() {
+        String hash = passwordEncoder.encode("secret");
+
+        assertTrue(passwordEncoder.matches("secret", hash));
+        assertFalse(passwordEncoder.matches("wrong", hash));
+        assertEquals(1, meterRegistry.get(TimedPasswordEncoder.METRIC).tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get(TimedPasswordEncoder.METRIC).tag("operation", "matches").timer().count());
+        assertTrue(meterRegistry.get(TimedPasswordEncoder.METRIC).tag("operation", "encode").timer()
+                .totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+}
@@ -2,11 +2,15 @@ package com.openclassrooms.starterjwt.repository;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -96,4 +100,32 @@ public class SessionRepositoryTest {
         assertEquals(savedSessionInDB.getDescription(), updatedSessionInDB.getDescription());
         assertEquals(savedSessionInDB.getDate(), updatedSessionInDB.getDate());
     }
-}
\ No newline at end of file
+    // Projection: only the requested columns are returned
+    @Test
+    @DisplayName("Find projected session")
+    public void shouldFindProjectedSession() {
+        List<Map<String, Object>> rows = sessionRepository.findProjected(
+                new HashSet<>(Arrays.asList("name", "teacher_id")), true, savedSessionInDB.getId());
+
+        assertEquals(1, rows.size());
+        Map<String, Object> row = rows.get(0);
+        assertEquals(savedSessionInDB.getId(), row.get("id"));
+        assertEquals(savedSessionInDB.getName(), row.get("name"));
+        assertEquals(savedSessionInDB.getTeacher().getId(), row.get("teacher_id"));
+        assertFalse(row.containsKey("description"));
+        assertNotNull(row.get("teacher"));
+    }
+
+    @Test
+    @DisplayName("Find projected session without teacher")
+    public void shouldFindProjectedSessionWithoutTeacher() {
+        savedSessionInDB.setTeacher(null);
+        sessionRepository.save(savedSessionInDB);
+
+        List<Map<String, Object>> rows = sessionRepository.findProjected(
+                new HashSet<>(Arrays.asList("name")), true, savedSessionInDB.getId());
+
+        assertEquals(1, rows.size());
+        assertNull(rows.get(0).get("teacher"));
+    }
+}
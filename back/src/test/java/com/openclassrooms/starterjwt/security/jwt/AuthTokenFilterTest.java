@@ -1,6 +1,8 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.TracerProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -42,6 +44,7 @@ public class AuthTokenFilterTest {
     private MockHttpServletResponse response;
     private FilterChain filterChain;
     private UserDetails userDetails;
+    private SimpleMeterRegistry meterRegistry;
 
     private static final String VALID_TOKEN = "validToken";
     private static final String USERNAME = "testuser";
@@ -52,6 +55,9 @@ public class AuthTokenFilterTest {
 
         ReflectionTestUtils.setField(authTokenFilter, "jwtUtils", jwtUtils);
         ReflectionTestUtils.setField(authTokenFilter, "userDetailsService", userDetailsService);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(authTokenFilter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(authTokenFilter, "tracer", TracerProvider.noop().get("test"));
 
         request = new MockHttpServletRequest();
         response = new MockHttpServletResponse();
@@ -61,6 +67,7 @@ public class AuthTokenFilterTest {
 
         userDetails = mock(UserDetails.class);
         when(userDetails.getUsername()).thenReturn(USERNAME);
+        when(userDetails.isEnabled()).thenReturn(true);
     }
     // Test unitaire pour si le token JWT est valide et l'utilisateur est authentifié
     @Test
@@ -81,6 +88,41 @@ public class AuthTokenFilterTest {
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
         assertEquals(USERNAME, SecurityContextHolder.getContext().getAuthentication().getName());
     }
+    // Unit test for the timing of token checks, per outcome
+    @Test
+    @DisplayName("Should time JWT verification by outcome")
+    void doFilterInternal_ShouldTimeJwtVerification() throws ServletException, IOException {
+        when(jwtUtils.validateJwtToken(VALID_TOKEN)).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken(VALID_TOKEN)).thenReturn(USERNAME);
+        when(userDetailsService.loadUserByUsername(USERNAME)).thenReturn(userDetails);
+        when(jwtUtils.validateJwtToken("forged")).thenReturn(false);
+
+        request.addHeader("Authorization", "Bearer " + VALID_TOKEN);
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.addHeader("Authorization", "Bearer forged");
+        authTokenFilter.doFilterInternal(forged, response, new MockFilterChain());
+        authTokenFilter.doFilterInternal(new MockHttpServletRequest(), response, new MockFilterChain());
+
+        assertEquals(1, meterRegistry.get("jwt.verification").tag("outcome", "valid").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.verification").tag("outcome", "invalid").timer().count());
+    }
+    // Unit test for a deleted account whose token is still valid
+    @Test
+    @DisplayName("Should not authenticate a disabled account even with a valid JWT token")
+    void doFilterInternal_ShouldNotAuthenticateUser_WhenAccountIsDisabled() throws ServletException, IOException {
+        request.addHeader("Authorization", "Bearer " + VALID_TOKEN);
+
+        when(jwtUtils.validateJwtToken(VALID_TOKEN)).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken(VALID_TOKEN)).thenReturn(USERNAME);
+        when(userDetailsService.loadUserByUsername(USERNAME)).thenReturn(userDetails);
+        when(userDetails.isEnabled()).thenReturn(false);
+
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(1, meterRegistry.get("jwt.verification").tag("outcome", "disabled").timer().count());
+    }
     // Test unitaire pour si le token JWT est invalide
     @Test
     @DisplayName("Should not authenticate user when invalid JWT token is provided")
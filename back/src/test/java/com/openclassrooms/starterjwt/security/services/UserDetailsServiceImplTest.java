@@ -54,6 +54,7 @@ public class UserDetailsServiceImplTest {
         assertEquals("Test", userDetailsImpl.getFirstName());
         assertEquals("User", userDetailsImpl.getLastName());
         assertEquals("encoded_password", userDetailsImpl.getPassword());
+        assertFalse(userDetailsImpl.getAdmin());
 
         verify(userRepository, times(1)).findByEmail(email);
     }
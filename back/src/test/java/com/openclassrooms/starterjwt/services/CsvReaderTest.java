@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the CSV reader of the imports
+public class CsvReaderTest {
+
+    @Test
+    @DisplayName("Should split records and unescape quoted fields")
+    void next_ShouldParseQuotedFields() throws IOException {
+        CsvReader reader = reader(64, "\uFEFFa,b,c\r\n\"x, y\",\"say \"\"hi\"\"\",\n\n\"multi\nline\",2,3");
+
+        CsvReader.Record header = reader.next();
+        assertEquals(Arrays.asList("a", "b", "c"), header.getFields());
+        assertEquals(1, header.getLine());
+
+        CsvReader.Record quoted = reader.next();
+        assertEquals(Arrays.asList("x, y", "say \"hi\"", ""), quoted.getFields());
+        assertEquals(2, quoted.getLine());
+
+        // The blank line is skipped, the line number counts the line break inside quotes
+        CsvReader.Record multiline = reader.next();
+        assertEquals(Arrays.asList("multi\nline", "2", "3"), multiline.getFields());
+        assertEquals(4, multiline.getLine());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Should report an oversized row and resume on the next line")
+    void next_ShouldSkipOversizedRow() throws IOException {
+        CsvReader reader = reader(16, "a,b\nxxxxxxxxxxxxxxxxxxxx\nc,d\n");
+
+        reader.next();
+        CsvReader.Record tooLong = reader.next();
+        assertNotNull(tooLong.getError());
+        assertEquals(2, tooLong.getLine());
+
+        assertEquals(Arrays.asList("c", "d"), reader.next().getFields());
+        assertNull(reader.next());
+    }
+
+    @Test
+    @DisplayName("Should report an unterminated quoted field")
+    void next_ShouldReportUnterminatedQuote() throws IOException {
+        CsvReader reader = reader(16, "a\n\"open");
+
+        reader.next();
+        assertEquals("Unterminated quoted field", reader.next().getError());
+        assertNull(reader.next());
+    }
+
+    private static CsvReader reader(int maxRecordChars, String content) {
+        return new CsvReader(new StringReader(content), maxRecordChars);
+    }
+}
@@ -0,0 +1,236 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.repository.IdGeneratorRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Unit test for the CSV import
+@ExtendWith(MockitoExtension.class)
+public class ImportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private IdGeneratorRepository idGeneratorRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ValidatorFactory validatorFactory;
+    private ExecutorService hashPool;
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        hashPool = Executors.newFixedThreadPool(2);
+        importService = new ImportService(jdbcTemplate, transactionManager, userRepository, idGeneratorRepository,
+                passwordEncoder,
+                validatorFactory.getValidator(), eventPublisher, 2, 10, hashPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashPool.shutdownNow();
+        validatorFactory.close();
+    }
+
+    @Test
+    @DisplayName("Should insert valid teachers in batches and report invalid rows")
+    @SuppressWarnings("unchecked")
+    void importTeachers_ShouldBatchValidRows() throws Exception {
+        when(idGeneratorRepository.reserve("TEACHERS", 2)).thenReturn(100L);
+        when(idGeneratorRepository.reserve("TEACHERS", 1)).thenReturn(150L);
+
+        ImportReport report = importService.importTeachers(csv(
+                "last_name,first_name\nDELAHAYE,Margot\nTHIERCELIN,Hélène\n,Nobody\nDOE,John\nA,B,C\n"));
+
+        assertEquals(3, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(4, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("lastName"));
+        assertEquals(6, report.getErrors().get(1).getLine());
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO TEACHERS"), batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(100L, batches.getAllValues().get(0).get(0)[0]);
+        assertEquals("Margot", batches.getAllValues().get(0).get(0)[1]);
+        assertEquals(101L, batches.getAllValues().get(0).get(1)[0]);
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals(150L, batches.getAllValues().get(1).get(0)[0]);
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(2)).publishEvent(new ResourceChangedEvent(Resource.TEACHER, ChangeType.CREATED, null));
+    }
+
+    @Test
+    @DisplayName("Should hash passwords and skip emails already taken in the database or earlier in the file")
+    @SuppressWarnings("unchecked")
+    void importUsers_ShouldRejectDuplicateEmails() throws Exception {
+        when(userRepository.findExistingEmails(anyCollection()))
+                .thenReturn(Collections.singletonList("taken@test.com"));
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed-" + invocation.getArgument(0));
+        when(idGeneratorRepository.reserve("USERS", 1)).thenReturn(7L);
+
+        ImportReport report = importService.importUsers(csv(
+                "email,firstName,lastName,password,admin\n"
+                        + "taken@test.com,Taken,User,secret1,false\n"
+                        + "new@test.com,New,User,secret2,true\n"
+                        + "bad@test.com,Bad,User,secret3,maybe\n"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals("Email is already taken", report.getErrors().get(0).getMessage());
+        assertEquals("admin must be true or false", report.getErrors().get(1).getMessage());
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO USERS"), batch.capture());
+        Object[] row = batch.getValue().get(0);
+        assertEquals(7L, row[0]);
+        assertEquals("new@test.com", row[1]);
+        assertEquals("hashed-secret2", row[4]);
+        assertEquals(true, row[5]);
+        verify(passwordEncoder, never()).encode("secret1");
+    }
+
+    @Test
+    @DisplayName("Should retry a batch refused by the database row by row and keep importing")
+    void importTeachers_ShouldRetryFailedBatchRowByRow() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("boom"))
+                .thenReturn(new int[]{1});
+        when(jdbcTemplate.update(anyString(), (Object[]) any()))
+                .thenThrow(new DataIntegrityViolationException("boom"))
+                .thenReturn(1);
+
+        when(idGeneratorRepository.reserve("TEACHERS", 2)).thenReturn(100L);
+        when(idGeneratorRepository.reserve("TEACHERS", 1)).thenReturn(150L);
+
+        ImportReport report = importService.importTeachers(csv("first_name,last_name\nA,B\nC,D\nE,F\n"));
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("Violates a database constraint", report.getErrors().get(0).getMessage());
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO TEACHERS"), (Object[]) any());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Should report the rows of a failed user batch that collide on the email")
+    void importUsers_ShouldReportEachRowOfFailedBatch() throws Exception {
+        when(passwordEncoder.encode(anyString())).thenReturn("hashed");
+        when(idGeneratorRepository.reserve("USERS", 2)).thenReturn(7L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DuplicateKeyException("uk_users_email"));
+        when(jdbcTemplate.update(anyString(), (Object[]) any()))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("uk_users_email"));
+
+        ImportReport report = importService.importUsers(csv(
+                "email,firstName,lastName,password\n"
+                        + "one@test.com,One,User,secret1\n"
+                        + "two@test.com,Two,User,secret2\n"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals("Email is already taken", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("Should compare emails without case, in the database and within the file")
+    @SuppressWarnings("unchecked")
+    void importUsers_ShouldIgnoreEmailCase() throws Exception {
+        when(userRepository.findExistingEmails(anyCollection()))
+                .thenReturn(Collections.singletonList("Taken@Test.com"));
+        when(passwordEncoder.encode(anyString())).thenReturn("hashed");
+        when(idGeneratorRepository.reserve("USERS", 1)).thenReturn(7L);
+
+        ImportReport report = importService.importUsers(csv(
+                "email,firstName,lastName,password\n"
+                        + "New@Test.com,New,User,secret1\n"
+                        + "new@test.com,New,Again,secret2\n"
+                        + "TAKEN@test.com,Taken,User,secret3\n"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals(4, report.getErrors().get(1).getLine());
+
+        ArgumentCaptor<Collection<String>> emails = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository, times(2)).findExistingEmails(emails.capture());
+        assertEquals(Arrays.asList("new@test.com", "new@test.com"), new ArrayList<>(emails.getAllValues().get(0)));
+        assertEquals(Collections.singletonList("taken@test.com"), new ArrayList<>(emails.getAllValues().get(1)));
+    }
+
+    @Test
+    @DisplayName("Should refuse a file without the required columns")
+    void importUsers_ShouldRejectMissingColumns() {
+        assertThrows(BadRequestException.class, () -> importService.importUsers(csv("email,password\na@b.c,secret\n")));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should only detail the first errors of the report")
+    void importTeachers_ShouldTruncateErrors() throws Exception {
+        StringBuilder content = new StringBuilder("first_name,last_name\n");
+        for (int i = 0; i < 25; i++) {
+            content.append(",\n");
+        }
+
+        ImportReport report = importService.importTeachers(csv(content.toString()));
+
+        assertEquals(25, report.getRejected());
+        assertEquals(10, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.repository.ResourceVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Unit test for ResourceVersionService
+@ExtendWith(MockitoExtension.class)
+public class ResourceVersionServiceTest {
+
+    @Mock
+    private ResourceVersionRepository resourceVersionRepository;
+
+    private ResourceVersionService resourceVersionService;
+
+    @BeforeEach
+    void setUp() {
+        resourceVersionService = new ResourceVersionService(resourceVersionRepository);
+        lenient().when(resourceVersionRepository.find(any())).thenReturn(0L);
+    }
+
+    @Test
+    @DisplayName("ETags should be stable while nothing changes")
+    void etags_ShouldBeStable_WhenNoChange() {
+        assertEquals(resourceVersionService.collectionEtag(Resource.SESSION),
+                resourceVersionService.collectionEtag(Resource.SESSION));
+        assertEquals(resourceVersionService.etag(Resource.SESSION, 1L),
+                resourceVersionService.etag(Resource.SESSION, 1L));
+        assertTrue(resourceVersionService.collectionEtag(Resource.SESSION).startsWith("\"session-"));
+    }
+
+    @Test
+    @DisplayName("A change should invalidate the ETags of its resource type only")
+    void onResourceChanged_ShouldBumpCollectionAndItems() {
+        String collection = resourceVersionService.collectionEtag(Resource.SESSION);
+        String item = resourceVersionService.etag(Resource.SESSION, 1L);
+        String teachers = resourceVersionService.collectionEtag(Resource.TEACHER);
+
+        resourceVersionService.onResourceChanged(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, 1L));
+
+        assertNotEquals(collection, resourceVersionService.collectionEtag(Resource.SESSION));
+        assertNotEquals(item, resourceVersionService.etag(Resource.SESSION, 1L));
+        assertEquals(teachers, resourceVersionService.collectionEtag(Resource.TEACHER));
+    }
+
+    @Test
+    @DisplayName("A write committed by another instance should change the ETags here")
+    void etags_ShouldFollowStoredVersion() {
+        String collection = resourceVersionService.collectionEtag(Resource.SESSION);
+        String item = resourceVersionService.etag(Resource.SESSION, 1L);
+
+        when(resourceVersionRepository.find(Resource.SESSION)).thenReturn(1L);
+
+        assertNotEquals(collection, resourceVersionService.collectionEtag(Resource.SESSION));
+        assertNotEquals(item, resourceVersionService.etag(Resource.SESSION, 1L));
+    }
+
+    @Test
+    @DisplayName("A write should increment the stored version of its resource type")
+    void onResourceWritten_ShouldIncrementStoredVersion() {
+        resourceVersionService.onResourceWritten(new ResourceChangedEvent(Resource.TEACHER, ChangeType.DELETED, 4L));
+
+        verify(resourceVersionRepository).increment(Resource.TEACHER);
+    }
+
+    @Test
+    @DisplayName("ETags should not be reused across restarts")
+    void etags_ShouldDiffer_BetweenInstances() throws InterruptedException {
+        Thread.sleep(2);
+        ResourceVersionService restarted = new ResourceVersionService(resourceVersionRepository);
+
+        assertNotEquals(resourceVersionService.collectionEtag(Resource.SESSION),
+                restarted.collectionEtag(Resource.SESSION));
+    }
+
+    @Test
+    @DisplayName("Version ETags should round-trip and only match the same resource and id")
+    void parseVersionEtag_ShouldReadBackVersion() {
+        String etag = resourceVersionService.versionEtag(Resource.SESSION, 3L, 7L);
+
+        assertEquals("\"session-3-v7\"", etag);
+        assertEquals(7L, resourceVersionService.parseVersionEtag(Resource.SESSION, 3L, " " + etag + " "));
+        assertNull(resourceVersionService.parseVersionEtag(Resource.SESSION, 4L, etag));
+        assertNull(resourceVersionService.parseVersionEtag(Resource.TEACHER, 3L, etag));
+        assertNull(resourceVersionService.parseVersionEtag(Resource.SESSION, 3L, "W/" + etag));
+        assertNull(resourceVersionService.parseVersionEtag(Resource.SESSION, 3L, "\"session-3-vx\""));
+    }
+}
@@ -1,9 +1,21 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.audit.AuditEntry;
+import com.openclassrooms.starterjwt.audit.AuditLog;
+import com.openclassrooms.starterjwt.cache.TeacherSchedule;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.PreconditionFailedException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,14 +25,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.*;
 
 // Service de test pour la gestion des sessions
@@ -36,6 +57,24 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TeacherSchedule teacherSchedule;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
+    @Mock
+    private AuditLog auditLog;
+
     // Mock de données
     private Session session;
     private User user;
@@ -53,6 +92,14 @@ public class SessionServiceTest {
         user.setId(USER_ID);
     }
 
+    // Row currently stored for the updated session
+    private Session stored(Long version) {
+        Session stored = new Session();
+        stored.setId(SESSION_ID);
+        stored.setVersion(version);
+        return stored;
+    }
+
     // Tests pour la méthode create
     @Test
     @DisplayName("Should create a session")
@@ -74,6 +121,82 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).deleteById(SESSION_ID);
     }
 
+    // Tests for the teacher schedule check
+    @Test
+    @DisplayName("Should reject a session overlapping another session of the same teacher")
+    void create_ShouldThrowConflictException_WhenTeacherIsAlreadyBooked() {
+        Date date = new Date();
+        session.setTeacher(Teacher.builder().id(2L).build());
+        session.setDate(date);
+        when(teacherSchedule.findConflict(2L, date, Session.DEFAULT_DURATION_MINUTES, null)).thenReturn(Optional.of(5L));
+
+        assertThrows(ConflictException.class, () -> sessionService.create(session));
+
+        verify(sessionRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should ignore the updated session itself when checking the teacher schedule")
+    void update_ShouldExcludeSessionFromConflictCheck() {
+        Date date = new Date();
+        session.setTeacher(Teacher.builder().id(2L).build());
+        session.setDate(date);
+        session.setDuration(90);
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(0L)));
+        when(sessionRepository.save(session)).thenReturn(session);
+
+        sessionService.update(SESSION_ID, session);
+
+        verify(teacherSchedule).findConflict(2L, date, 90, SESSION_ID);
+        verify(sessionRepository).save(session);
+    }
+
+    @Test
+    @DisplayName("Should give a default duration to sessions created without one")
+    void create_ShouldApplyDefaultDuration() {
+        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+
+        sessionService.create(session);
+
+        assertEquals(Session.DEFAULT_DURATION_MINUTES, session.getDuration());
+        verifyNoInteractions(teacherSchedule);
+    }
+
+    // Tests for the publication of change events
+    @Test
+    @DisplayName("Should publish a change event for each mutation")
+    void mutations_ShouldPublishResourceChangedEvents() {
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(0L)));
+        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+
+        sessionService.create(session);
+        sessionService.update(SESSION_ID, session);
+        sessionService.delete(SESSION_ID);
+
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, SESSION_ID));
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, SESSION_ID));
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, SESSION_ID));
+        // Each event is also written to the outbox, in the transaction of the change
+        verify(outboxRepository).append(new ResourceChangedEvent(Resource.SESSION, ChangeType.CREATED, SESSION_ID));
+        verify(outboxRepository).append(new ResourceChangedEvent(Resource.SESSION, ChangeType.UPDATED, SESSION_ID));
+        verify(outboxRepository).append(new ResourceChangedEvent(Resource.SESSION, ChangeType.DELETED, SESSION_ID));
+    }
+
+    // Tests for error cases: no event must be published
+    @Test
+    @DisplayName("Should not publish an event when participation fails")
+    void participate_ShouldNotPublishEvent_WhenSessionDoesNotExist() {
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () ->
+            sessionService.participate(SESSION_ID, USER_ID)
+        );
+
+        verifyNoInteractions(eventPublisher);
+        verifyNoInteractions(outboxRepository);
+    }
+
     // Tests pour la méthode findAll
     @Test
     @DisplayName("Should return all sessions")
@@ -117,6 +240,38 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).findById(SESSION_ID);
     }
 
+    // Tests for the projection methods
+    @Test
+    @DisplayName("Should return the projected session when it exists")
+    void getProjectedById_ShouldReturnRow_WhenSessionExists() {
+        Set<String> fields = new HashSet<>(Arrays.asList("id", "name"));
+        Map<String, Object> row = Collections.singletonMap("id", SESSION_ID);
+        when(sessionRepository.findProjected(fields, true, SESSION_ID)).thenReturn(Collections.singletonList(row));
+
+        assertEquals(row, sessionService.getProjectedById(SESSION_ID, fields, true));
+    }
+
+    @Test
+    @DisplayName("Should return null when the projected session doesn't exist")
+    void getProjectedById_ShouldReturnNull_WhenSessionDoesNotExist() {
+        Set<String> fields = Collections.singleton("name");
+        when(sessionRepository.findProjected(fields, false, SESSION_ID)).thenReturn(Collections.emptyList());
+
+        assertNull(sessionService.getProjectedById(SESSION_ID, fields, false));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown fields")
+    void findAllProjected_ShouldThrowBadRequestException_WhenFieldIsUnknown() {
+        Set<String> fields = new HashSet<>(Arrays.asList("name", "password"));
+
+        assertThrows(BadRequestException.class, () ->
+            sessionService.findAllProjected(fields, false)
+        );
+
+        verify(sessionRepository, never()).findProjected(any(), anyBoolean(), any());
+    }
+
     // Tests pour la méthode update
     @Test
     @DisplayName("Should update session")
@@ -124,6 +279,7 @@ public class SessionServiceTest {
         Session updatedSession = new Session();
         updatedSession.setId(2L);
 
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(0L)));
         when(sessionRepository.save(any(Session.class))).thenReturn(updatedSession);
 
         Session result = sessionService.update(SESSION_ID, updatedSession);
@@ -133,6 +289,109 @@ public class SessionServiceTest {
         assertEquals(SESSION_ID, updatedSession.getId());
     }
 
+    // Tests for optimistic locking
+    @Test
+    @DisplayName("Should apply an update without expected version to the current version")
+    void update_ShouldUseCurrentVersion_WhenNoVersionIsGiven() {
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(4L)));
+        when(sessionRepository.save(session)).thenReturn(session);
+
+        sessionService.update(SESSION_ID, session);
+
+        assertEquals(4L, session.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should reject an update based on a stale version")
+    void update_ShouldThrowPreconditionFailedException_WhenVersionIsStale() {
+        session.setVersion(1L);
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(1L)));
+        when(sessionRepository.save(session)).thenThrow(new ObjectOptimisticLockingFailureException(Session.class, SESSION_ID));
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(SESSION_ID, session));
+
+        verifyNoInteractions(eventPublisher, auditLog);
+    }
+
+    @Test
+    @DisplayName("Should reject an update whose version differs from the stored row without saving it")
+    void update_ShouldThrowPreconditionFailedException_WhenVersionDiffersFromStoredRow() {
+        session.setVersion(1L);
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored(3L)));
+
+        assertThrows(PreconditionFailedException.class, () -> sessionService.update(SESSION_ID, session));
+
+        verify(sessionRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher, auditLog);
+    }
+
+    // The audit diff starts from the row loaded for the update: no other read of the session
+    @Test
+    @DisplayName("Should audit an update against the stored row")
+    void update_ShouldAuditChangesFromStoredRow() {
+        Session stored = stored(2L);
+        SessionDto before = new SessionDto();
+        SessionDto after = new SessionDto();
+        Map<String, AuditEntry.Change> changes = Map.of("name", new AuditEntry.Change("Before", "After"));
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(stored));
+        when(sessionRepository.save(session)).thenReturn(session);
+        when(sessionMapper.toDto(stored)).thenReturn(before);
+        when(sessionMapper.toDto(session)).thenReturn(after);
+        when(auditLog.diff(before, after)).thenReturn(changes);
+
+        sessionService.update(SESSION_ID, session);
+
+        verify(sessionRepository, times(1)).findById(SESSION_ID);
+        verify(auditLog).record(ChangeType.UPDATED, Resource.SESSION, SESSION_ID, changes);
+    }
+
+    @Test
+    @DisplayName("Should throw NotFoundException when updating a session that doesn't exist")
+    void update_ShouldThrowNotFoundException_WhenSessionDoesNotExist() {
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(SESSION_ID, session));
+
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should answer NotFoundException rather than a conflict for a session that doesn't exist")
+    void update_ShouldThrowNotFoundException_BeforeCheckingSchedule() {
+        session.setTeacher(Teacher.builder().id(2L).build());
+        session.setDate(new Date());
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(SESSION_ID, session));
+
+        verifyNoInteractions(teacherSchedule);
+    }
+
+    @Test
+    @DisplayName("Should replay a participation when the session changed concurrently")
+    void participate_ShouldRetry_WhenSessionChangedConcurrently() {
+        // Each read returns a new instance, as the database would
+        when(sessionRepository.findById(SESSION_ID)).thenAnswer(invocation ->
+                Optional.of(Session.builder().id(SESSION_ID).users(new ArrayList<>()).build()));
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(sessionRepository.save(any(Session.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Session.class, SESSION_ID))
+                .thenReturn(session);
+
+        sessionService.participate(SESSION_ID, USER_ID);
+
+        verify(sessionRepository, times(2)).findById(SESSION_ID);
+        // One attempt per transaction: the first is rolled back, the second committed
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(eventPublisher).publishEvent(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, SESSION_ID, USER_ID));
+        // Only the committed attempt wrote to the outbox
+        verify(outboxRepository, times(1)).append(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, SESSION_ID, USER_ID));
+    }
+
     // Tests pour la méthode participate
     @Test
     @DisplayName("Should add user to session participants")
@@ -146,6 +405,8 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).findById(SESSION_ID);
         verify(userRepository, times(1)).findById(USER_ID);
         verify(sessionRepository, times(1)).save(session);
+        verify(eventPublisher).publishEvent(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_ADDED, SESSION_ID, USER_ID));
     }
 
     // Tests pour les cas d'erreur dans la méthode participate
@@ -179,6 +440,19 @@ public class SessionServiceTest {
         verify(sessionRepository, never()).save(any(Session.class));
     }
 
+    @Test
+    @DisplayName("Should throw NotFoundException when the user is being deleted")
+    void participate_ShouldThrowNotFoundException_WhenUserIsDisabled() {
+        user.setDisabled(true);
+        when(sessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(session));
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
+        assertThrows(NotFoundException.class, () -> sessionService.participate(SESSION_ID, USER_ID));
+
+        verify(sessionRepository, never()).save(any(Session.class));
+        verifyNoInteractions(eventPublisher, outboxRepository);
+    }
+
     // Tests pour les cas d'erreur dans la méthode participate
     @Test
     @DisplayName("Should throw BadRequestException when user already participates")
@@ -208,6 +482,8 @@ public class SessionServiceTest {
         assertFalse(session.getUsers().contains(user));
         verify(sessionRepository, times(1)).findById(SESSION_ID);
         verify(sessionRepository, times(1)).save(session);
+        verify(eventPublisher).publishEvent(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, SESSION_ID, USER_ID));
     }
 
     // Tests pour les cas d'erreur dans la méthode noLongerParticipate
@@ -0,0 +1,247 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.LeaseRepository;
+import com.openclassrooms.starterjwt.repository.OutboxRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Unit test for the purge of deleted accounts
+@ExtendWith(MockitoExtension.class)
+public class UserPurgeServiceTest {
+
+    private static final String SELECT_SESSIONS = "SELECT DISTINCT session_id FROM PARTICIPATE WHERE user_id = ? LIMIT ?";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private LeaseRepository leaseRepository;
+
+    @Mock
+    private Cache secondLevelCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ExecutorService worker;
+    private UserPurgeService userPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        worker = Executors.newSingleThreadExecutor();
+        userPurgeService = new UserPurgeService(jdbcTemplate, transactionManager, userRepository, outboxRepository,
+                leaseRepository, secondLevelCache, eventPublisher, 2, 0, 60000, worker);
+        lenient().when(leaseRepository.acquire(startsWith("USER_PURGE:"), eq(60000L))).thenReturn(true);
+    }
+
+    // Waits for the queued purges to finish
+    private void drain() throws InterruptedException {
+        worker.shutdown();
+        assertTrue(worker.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // Participations are erased batch by batch, then the account itself
+    @Test
+    @DisplayName("Should delete participations in chunks, then the user")
+    void purge_ShouldDeleteParticipationsInChunksThenUser() throws InterruptedException {
+        when(jdbcTemplate.queryForList(eq(SELECT_SESSIONS), eq(Long.class), eq(7L), eq(2)))
+                .thenReturn(List.of(10L, 11L), List.of(12L), Collections.emptyList());
+        when(jdbcTemplate.update(startsWith("DELETE FROM PARTICIPATE"), (Object[]) any())).thenReturn(2, 1);
+
+        userPurgeService.purge(7L);
+        drain();
+
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM PARTICIPATE"), (Object[]) any());
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE SESSIONS SET version = version + 1"),
+                (Object[]) any());
+        verify(secondLevelCache).evictCollectionData(Session.class.getName() + ".users", 10L);
+        verify(secondLevelCache).evictCollectionData(Session.class.getName() + ".users", 12L);
+        verify(eventPublisher).publishEvent(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, 11L, 7L));
+        verify(outboxRepository).appendAll(List.of(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, 10L, 7L),
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, 11L, 7L)));
+        verify(outboxRepository).appendAll(List.of(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, 12L, 7L)));
+        verify(userRepository).deleteById(7L);
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.DELETED, 7L));
+
+        UserPurgeService.Progress progress = userPurgeService.progress(7L).orElseThrow();
+        assertEquals(UserPurgeService.State.DONE, progress.getState());
+        assertEquals(3, progress.getParticipationsDeleted());
+        assertEquals(3, progress.getSessionsUpdated());
+        assertNotNull(progress.getFinishedAt());
+    }
+
+    // A participation added during the purge is swept with the account; one committed between that sweep and the
+    // delete breaks the foreign key once, and the last step is replayed
+    @Test
+    @DisplayName("Should sweep late participations before deleting the user and retry a blocked delete")
+    void purge_ShouldSweepLateParticipations_BeforeDeletingUser() throws InterruptedException {
+        when(jdbcTemplate.queryForList(eq(SELECT_SESSIONS), eq(Long.class), eq(7L), eq(2)))
+                .thenReturn(Collections.emptyList(), List.of(20L), Collections.emptyList(),
+                        List.of(20L, 21L), Collections.emptyList());
+        when(jdbcTemplate.update(startsWith("DELETE FROM PARTICIPATE"), (Object[]) any())).thenReturn(1, 2);
+        doThrow(new DataIntegrityViolationException("fk_participate_user")).doNothing()
+                .when(userRepository).flush();
+
+        userPurgeService.purge(7L);
+        drain();
+
+        verify(userRepository, times(2)).deleteById(7L);
+        verify(secondLevelCache, times(1)).evictCollectionData(Session.class.getName() + ".users", 21L);
+        verify(eventPublisher).publishEvent(
+                new ResourceChangedEvent(Resource.SESSION, ChangeType.PARTICIPANT_REMOVED, 21L, 7L));
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.DELETED, 7L));
+
+        UserPurgeService.Progress progress = userPurgeService.progress(7L).orElseThrow();
+        assertEquals(UserPurgeService.State.DONE, progress.getState());
+        assertEquals(2, progress.getParticipationsDeleted());
+        assertEquals(2, progress.getSessionsUpdated());
+    }
+
+    // A database error stops the purge, the account stays disabled and will be resumed
+    @Test
+    @DisplayName("Should mark the purge as failed and keep the user when a chunk fails")
+    void purge_ShouldFail_WhenChunkFails() throws InterruptedException {
+        when(jdbcTemplate.queryForList(eq(SELECT_SESSIONS), eq(Long.class), eq(7L), eq(2)))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        userPurgeService.purge(7L);
+        drain();
+
+        verify(userRepository, never()).deleteById(any());
+        UserPurgeService.Progress progress = userPurgeService.progress(7L).orElseThrow();
+        assertEquals(UserPurgeService.State.FAILED, progress.getState());
+        assertEquals("connection lost", progress.getError());
+    }
+
+    // Another instance holds the account's lease: it runs the purge, this one leaves the account alone
+    @Test
+    @DisplayName("Should leave the purge to the instance holding the lease")
+    void purge_ShouldSkip_WhenLeaseIsHeldElsewhere() throws InterruptedException {
+        when(leaseRepository.acquire("USER_PURGE:7", 60000L)).thenReturn(false);
+
+        userPurgeService.purge(7L);
+        drain();
+
+        verifyNoInteractions(jdbcTemplate);
+        verify(userRepository, never()).deleteById(any());
+        verify(leaseRepository, never()).release(any());
+        assertFalse(userPurgeService.progress(7L).isPresent());
+    }
+
+    // The lease expired during a batch and another instance took the purge over: this one stops
+    @Test
+    @DisplayName("Should stop the purge when the lease is lost")
+    void purge_ShouldFail_WhenLeaseIsLost() throws InterruptedException {
+        when(leaseRepository.acquire("USER_PURGE:7", 60000L)).thenReturn(true, false);
+        when(jdbcTemplate.queryForList(eq(SELECT_SESSIONS), eq(Long.class), eq(7L), eq(2)))
+                .thenReturn(List.of(10L, 11L));
+        when(jdbcTemplate.update(startsWith("DELETE FROM PARTICIPATE"), (Object[]) any())).thenReturn(2);
+
+        userPurgeService.purge(7L);
+        drain();
+
+        verify(jdbcTemplate, times(1)).update(startsWith("DELETE FROM PARTICIPATE"), (Object[]) any());
+        verify(userRepository, never()).deleteById(any());
+        verify(leaseRepository).release("USER_PURGE:7");
+        assertEquals(UserPurgeService.State.FAILED, userPurgeService.progress(7L).orElseThrow().getState());
+    }
+
+    // A second request during the purge returns the running purge
+    @Test
+    @DisplayName("Should not queue the same user twice")
+    void purge_ShouldReturnPendingPurge_WhenAlreadyQueued() throws InterruptedException {
+        ExecutorService idle = mock(ExecutorService.class);
+        UserPurgeService service = new UserPurgeService(jdbcTemplate, transactionManager, userRepository,
+                outboxRepository, leaseRepository, secondLevelCache, eventPublisher, 2, 0, 60000, idle);
+
+        UserPurgeService.Progress first = service.purge(7L);
+        UserPurgeService.Progress second = service.purge(7L);
+
+        assertSame(first, second);
+        assertEquals(UserPurgeService.State.QUEUED, second.getState());
+        verify(idle, times(1)).execute(any());
+        drain();
+    }
+
+    // Inside a transaction, the purge waits for the commit; rolled back, it never happened
+    @Test
+    @DisplayName("Should start the purge only once the calling transaction commits")
+    void purge_ShouldWaitForCommit_WhenCalledInTransaction() throws InterruptedException {
+        ExecutorService idle = mock(ExecutorService.class);
+        UserPurgeService service = new UserPurgeService(jdbcTemplate, transactionManager, userRepository,
+                outboxRepository, leaseRepository, secondLevelCache, eventPublisher, 2, 0, 60000, idle);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.purge(7L);
+            service.purge(8L);
+            verify(idle, never()).execute(any());
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(idle, times(1)).execute(any());
+        assertTrue(service.progress(7L).isPresent());
+        assertFalse(service.progress(8L).isPresent());
+        drain();
+    }
+
+    // At startup, disabled accounts not yet purged are queued again
+    @Test
+    @DisplayName("Should resume pending purges at startup")
+    void resume_ShouldQueueDisabledUsers() throws InterruptedException {
+        when(userRepository.findDisabledIds()).thenReturn(List.of(3L, 4L));
+        when(jdbcTemplate.queryForList(eq(SELECT_SESSIONS), eq(Long.class), anyLong(), eq(2)))
+                .thenReturn(Collections.emptyList());
+
+        userPurgeService.resume();
+        drain();
+
+        verify(userRepository).deleteById(3L);
+        verify(userRepository).deleteById(4L);
+        assertEquals(2, userPurgeService.progress().size());
+    }
+}
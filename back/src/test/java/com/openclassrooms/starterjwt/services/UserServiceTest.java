@@ -1,19 +1,32 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.ChangeType;
+import com.openclassrooms.starterjwt.events.ResourceChangedEvent.Resource;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.mocks.UserMocks;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.UserPage;
+import com.openclassrooms.starterjwt.repository.UserDirectoryQuery;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.UserSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 // Test pour la classe UserService
@@ -26,6 +39,12 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UserPurgeService userPurgeService;
+
     private final UserMocks userMocks = new UserMocks();
     private User user;
 
@@ -39,18 +58,40 @@ public class UserServiceTest {
 
     // Tests pour la méthode delete
     @Test
-    @DisplayName("Should delete a user successfully")
-    void delete_ShouldCallRepositoryDeleteById() {
+    @DisplayName("Should disable the account and queue its purge")
+    void delete_ShouldDisableUserAndQueuePurge() {
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
         userService.delete(USER_ID);
-        verify(userRepository, times(1)).deleteById(USER_ID);
+
+        assertTrue(user.isDisabled());
+        verify(userRepository, times(1)).save(user);
+        verify(userRepository, never()).deleteById(any());
+        verify(eventPublisher).publishEvent(new ResourceChangedEvent(Resource.USER, ChangeType.UPDATED, USER_ID));
+        verify(userPurgeService).purge(USER_ID);
+    }
+
+    // An account already disabled is not written again, its purge is simply restarted if needed
+    @Test
+    @DisplayName("Should only queue the purge of an account already disabled")
+    void delete_ShouldNotSaveAgain_WhenAlreadyDisabled() {
+        user.setDisabled(true);
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+
+        userService.delete(USER_ID);
+
+        verify(userRepository, never()).save(any());
+        verify(userPurgeService).purge(USER_ID);
     }
 
     // Tests pour les cas d'erreur dans la méthode delete
     @Test
-    @DisplayName("Should handle null ID")
-    void delete_ShouldHandleNullId() {
-        userService.delete(null);
-        verify(userRepository, times(1)).deleteById(null);
+    @DisplayName("Should throw NotFoundException for an unknown user")
+    void delete_ShouldThrow_WhenUserDoesNotExist() {
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> userService.delete(USER_ID));
+        verifyNoInteractions(userPurgeService);
     }
 
     // Tests pour la méthode findById
@@ -81,6 +122,31 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findById(USER_ID);
     }
 
+    // Several ids loaded at once by the repository, not one findById per id
+    @Test
+    @DisplayName("Should load users in one call")
+    void findAllById_ShouldLoadUsersInOneCall() {
+        List<Long> ids = List.of(USER_ID, 99L);
+        when(userRepository.findAllByIdInOrder(ids)).thenReturn(Arrays.asList(user, null));
+
+        List<User> result = userService.findAllById(ids);
+
+        assertEquals(2, result.size());
+        assertSame(user, result.get(0));
+        assertNull(result.get(1));
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should reject users being deleted")
+    void findAllById_ShouldThrowNotFoundException_WhenUserIsDisabled() {
+        user.setDisabled(true);
+        List<Long> ids = List.of(USER_ID);
+        when(userRepository.findAllByIdInOrder(ids)).thenReturn(Arrays.asList(user));
+
+        assertThrows(NotFoundException.class, () -> userService.findAllById(ids));
+    }
+
     @Test
     @DisplayName("Should handle null ID")
     void findById_ShouldHandleNullId() {
@@ -91,4 +157,39 @@ public class UserServiceTest {
         assertNull(result);
         verify(userRepository, times(1)).findById(null);
     }
+
+    // Tests for the directory method
+    @Test
+    @DisplayName("Should return a cursor only when another page exists")
+    void directory_ShouldReturnNextCursor_WhenMoreRowsThanLimit() {
+        UserSummary first = summary(1L);
+        UserSummary second = summary(2L);
+        when(userRepository.findDirectory(any())).thenReturn(List.of(first, second));
+
+        UserPage page = userService.directory(null, null, null, "id", null, 1);
+
+        assertEquals(List.of(first), page.getItems());
+        assertNotNull(page.getNextCursor());
+
+        ArgumentCaptor<UserDirectoryQuery> query = ArgumentCaptor.forClass(UserDirectoryQuery.class);
+        userService.directory(null, null, null, "id", page.getNextCursor(), 1);
+        verify(userRepository, times(2)).findDirectory(query.capture());
+        assertEquals(2, query.getValue().getLimit());
+        assertEquals(1L, query.getValue().getAfterId());
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown sort field or a malformed cursor")
+    void directory_ShouldThrow_WhenSortOrCursorIsInvalid() {
+        assertThrows(BadRequestException.class, () -> userService.directory(null, null, null, "password", null, 10));
+        assertThrows(BadRequestException.class, () -> userService.directory(null, null, null, "id,up", null, 10));
+        assertThrows(BadRequestException.class, () -> userService.directory(null, null, null, "id", "%%%", 10));
+        verifyNoInteractions(userRepository);
+    }
+
+    private UserSummary summary(Long id) {
+        UserSummary summary = mock(UserSummary.class);
+        lenient().when(summary.getId()).thenReturn(id);
+        return summary;
+    }
 }
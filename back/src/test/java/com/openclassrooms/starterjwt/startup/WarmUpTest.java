@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.startup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the warm-up
+public class WarmUpTest {
+
+    @Test
+    @DisplayName("Should repeat every task, in order, and report the iterations")
+    void run_ShouldRepeatEveryTask() {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        tasks.put("first", first::incrementAndGet);
+        tasks.put("second", second::incrementAndGet);
+        WarmUp warmUp = new WarmUp(tasks, true, 25, 10000);
+
+        warmUp.run(null);
+
+        assertEquals(25, first.get());
+        assertEquals(25, second.get());
+        List<WarmUp.TaskResult> results = warmUp.summary().getTasks();
+        assertEquals(List.of("first", "second"),
+                results.stream().map(WarmUp.TaskResult::getName).collect(Collectors.toList()));
+        assertTrue(results.stream().allMatch(result -> result.getIterations() == 25 && result.getError() == null));
+    }
+
+    // A failing task is dropped and reported, the following ones still run
+    @Test
+    @DisplayName("Should record a failing task and carry on")
+    void run_ShouldRecordFailure_AndCarryOn() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        tasks.put("failing", () -> {
+            if (calls.incrementAndGet() == 3) {
+                throw new IllegalStateException("database down");
+            }
+        });
+        tasks.put("next", () -> {
+        });
+        WarmUp warmUp = new WarmUp(tasks, true, 10, 10000);
+
+        warmUp.run(null);
+
+        WarmUp.TaskResult failing = warmUp.summary().getTasks().get(0);
+        assertEquals(2, failing.getIterations());
+        assertEquals("IllegalStateException: database down", failing.getError());
+        assertEquals(10, warmUp.summary().getTasks().get(1).getIterations());
+    }
+
+    @Test
+    @DisplayName("Should stop once the time budget is spent")
+    void run_ShouldStop_WhenBudgetIsSpent() {
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        tasks.put("slow", () -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        tasks.put("skipped", () -> {
+        });
+        WarmUp warmUp = new WarmUp(tasks, true, 1000, 100);
+
+        warmUp.run(null);
+
+        List<WarmUp.TaskResult> results = warmUp.summary().getTasks();
+        assertTrue(results.get(0).getIterations() < 1000);
+        assertEquals(0, results.get(1).getIterations());
+    }
+
+    @Test
+    @DisplayName("Should do nothing when disabled")
+    void run_ShouldDoNothing_WhenDisabled() {
+        AtomicInteger calls = new AtomicInteger();
+        WarmUp warmUp = new WarmUp(Map.of("task", calls::incrementAndGet), false, 10, 10000);
+
+        warmUp.run(null);
+
+        assertEquals(0, calls.get());
+        assertNull(warmUp.summary());
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the in-memory span exporter
+public class InMemorySpanExporterTest {
+
+    private InMemorySpanExporter exporter;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new InMemorySpanExporter(3);
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+        tracer = tracerProvider.get(TracingConfig.INSTRUMENTATION);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    private String request(String name) {
+        Span root = tracer.spanBuilder(name).startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder(name + ".child").startSpan().end();
+        } finally {
+            root.end();
+        }
+        return root.getSpanContext().getTraceId();
+    }
+
+    @Test
+    @DisplayName("Should group spans by trace in start order")
+    void trace_ShouldReturnSpansOfOneTrace() {
+        String traceId = request("first");
+        tracer.spanBuilder("other").startSpan().end();
+
+        List<SpanData> spans = exporter.trace(traceId);
+
+        assertEquals(List.of("first", "first.child"), spans.stream().map(SpanData::getName)
+                .collect(Collectors.toList()));
+        assertEquals(spans.get(0).getSpanId(), spans.get(1).getParentSpanId());
+        InMemorySpanExporter.SpanView view = InMemorySpanExporter.SpanView.of(spans.get(1),
+                spans.get(0).getStartEpochNanos());
+        assertEquals(spans.get(0).getSpanId(), view.getParentSpanId());
+        assertTrue(view.getStartOffsetMicros() >= 0);
+    }
+
+    @Test
+    @DisplayName("Should forget the oldest spans beyond maxSpans")
+    void export_ShouldKeepAtMostMaxSpans() {
+        // Four spans for three slots: the child of the first trace, finished first, is forgotten
+        String first = request("first");
+        request("second");
+
+        assertEquals(List.of("second", "first"), exporter.roots(10).stream().map(SpanData::getName)
+                .collect(Collectors.toList()));
+        assertEquals(List.of("first"), exporter.trace(first).stream().map(SpanData::getName)
+                .collect(Collectors.toList()));
+
+        exporter.reset();
+        assertTrue(exporter.roots(10).isEmpty());
+    }
+}
@@ -0,0 +1,107 @@
+package com.openclassrooms.starterjwt.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Unit test for the OTLP/JSON span exporter
+public class OtlpFileSpanExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path file;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("traces", ".jsonl");
+        tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), "yoga-test")))
+                .addSpanProcessor(SimpleSpanProcessor.create(new OtlpFileSpanExporter(file)))
+                .build();
+        tracer = tracerProvider.get(TracingConfig.INSTRUMENTATION);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        tracerProvider.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("Should write one OTLP/JSON export request per line")
+    void export_ShouldWriteOtlpJsonLines() throws IOException {
+        Span parent = tracer.spanBuilder("GET /api/session").setSpanKind(SpanKind.SERVER).startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            Span child = tracer.spanBuilder("SELECT").setSpanKind(SpanKind.CLIENT)
+                    .setAttribute("db.statement", "select * from sessions")
+                    .setAttribute("db.batch_size", 3L)
+                    .startSpan();
+            child.recordException(new IllegalStateException("boom"));
+            child.setStatus(StatusCode.ERROR);
+            child.end();
+        } finally {
+            parent.end();
+        }
+        tracerProvider.forceFlush();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+
+        JsonNode child = span(lines.get(0));
+        JsonNode server = span(lines.get(1));
+        assertEquals("yoga-test", objectMapper.readTree(lines.get(0)).at("/resourceSpans/0/resource/attributes")
+                .findValue("stringValue").asText());
+        assertEquals(TracingConfig.INSTRUMENTATION,
+                objectMapper.readTree(lines.get(0)).at("/resourceSpans/0/scopeSpans/0/scope/name").asText());
+
+        assertEquals("SELECT", child.get("name").asText());
+        assertEquals(3, child.get("kind").asInt());
+        assertEquals(server.get("traceId").asText(), child.get("traceId").asText());
+        assertEquals(server.get("spanId").asText(), child.get("parentSpanId").asText());
+        assertEquals(32, child.get("traceId").asText().length());
+        assertTrue(child.get("startTimeUnixNano").isTextual());
+        assertEquals(2, child.at("/status/code").asInt());
+        assertEquals("select * from sessions", attribute(child, "db.statement").get("stringValue").asText());
+        assertEquals("3", attribute(child, "db.batch_size").get("intValue").asText());
+        assertEquals("exception", child.at("/events/0/name").asText());
+
+        assertEquals(2, server.get("kind").asInt());
+        assertFalse(server.has("parentSpanId"));
+        assertEquals(0, server.at("/status/code").asInt());
+    }
+
+    private JsonNode span(String line) throws IOException {
+        return objectMapper.readTree(line).at("/resourceSpans/0/scopeSpans/0/spans/0");
+    }
+
+    private static JsonNode attribute(JsonNode span, String key) {
+        for (JsonNode attribute : span.get("attributes")) {
+            if (attribute.get("key").asText().equals(key)) {
+                return attribute.get("value");
+            }
+        }
+        return fail("missing attribute " + key);
+    }
+}
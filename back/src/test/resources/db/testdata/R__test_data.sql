@@ -12,4 +12,7 @@ VALUES ('Admin', 'Admin', true, 'yoga@studio.com',
 -- email: user@test.com / password: password
 INSERT INTO USERS (first_name, last_name, admin, email, password)
 VALUES ('Test', 'User', false, 'user@test.com',
-        '$2a$10$7EqJtq98hPqEX7fNZaFWoOe.VeF7qZ/3GQ8LNk31DJ7tY79DbDeXO');
\ No newline at end of file
+        '$2a$10$7EqJtq98hPqEX7fNZaFWoOe.VeF7qZ/3GQ8LNk31DJ7tY79DbDeXO');
+-- realigns the identifier generators after the AUTO_INCREMENT inserts
+UPDATE ID_GENERATORS SET next_val = (SELECT COALESCE(MAX(id), 0) + 1 FROM TEACHERS) WHERE name = 'TEACHERS';
+UPDATE ID_GENERATORS SET next_val = (SELECT COALESCE(MAX(id), 0) + 1 FROM USERS) WHERE name = 'USERS';
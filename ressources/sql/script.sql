@@ -1,40 +1,5 @@
-CREATE TABLE `TEACHERS` (
-  `id` INT PRIMARY KEY AUTO_INCREMENT,
-  `last_name` VARCHAR(40),
-  `first_name` VARCHAR(40),
-  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-);
-
-CREATE TABLE `SESSIONS` (
-  `id` INT PRIMARY KEY AUTO_INCREMENT,
-  `name` VARCHAR(50),
-  `description` VARCHAR(2000),
-  `date` TIMESTAMP,
-  `teacher_id` int,
-  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-);
-
-CREATE TABLE `USERS` (
-  `id` INT PRIMARY KEY AUTO_INCREMENT,
-  `last_name` VARCHAR(40),
-  `first_name` VARCHAR(40),
-  `admin` BOOLEAN NOT NULL DEFAULT false,
-  `email` VARCHAR(255),
-  `password` VARCHAR(255),
-  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-);
-
-CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
-  `session_id` INT
-);
-
-ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
-ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
-ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+-- Initial data. The schema is created by the Flyway migrations (back/src/main/resources/db/migration)
+-- on the first startup of the application: run this script afterwards.
 
 INSERT INTO TEACHERS (first_name, last_name)
 VALUES ('Margot', 'DELAHAYE'),
@@ -44,3 +9,7 @@ VALUES ('Margot', 'DELAHAYE'),
 INSERT INTO USERS (first_name, last_name, admin, email, password)
 VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq'); 
 
+
+-- Realigns the application's identifier generators after these inserts
+UPDATE ID_GENERATORS SET next_val = (SELECT COALESCE(MAX(id), 0) + 1 FROM TEACHERS) WHERE name = 'TEACHERS';
+UPDATE ID_GENERATORS SET next_val = (SELECT COALESCE(MAX(id), 0) + 1 FROM USERS) WHERE name = 'USERS';